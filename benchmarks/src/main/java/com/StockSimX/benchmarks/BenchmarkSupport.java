@@ -0,0 +1,17 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.EventLog;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+final class BenchmarkSupport {
+    private BenchmarkSupport() {
+    }
+
+    // The simulator logs every order and trade; benchmarks measure the engine, not the console
+    static void silenceConsole() {
+        EventLog.setLevel(EventLog.Level.OFF);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.Order;
+import com.StockSimX.OrderBook;
+import com.StockSimX.OrderType;
+import com.StockSimX.TimeInForce;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// matchOrders cost at several resting book depths. Each invocation fills one aggressive
+// buy against the best ask and replenishes that ask, so the book depth stays constant.
+// partialFill instead buys 100 shares from a large resting ask that stays at the head of its level,
+// which is the case where a book may allocate a remainder order per fill (run with -prof gc).
+// fillOrKillRejected sends a FOK buy one share larger than the whole ask side, so the book must add up every
+// level's aggregate before killing it, without a single fill.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchOrdersBenchmark {
+    private static final double REFERENCE_PRICE = 100.0;
+    private static final double TICK = 0.01;
+
+    @Param({"SKIP_LIST", "TICK_LADDER"})
+    public OrderBook.BookType bookType;
+
+    @Param({"1", "10", "100", "1000"})
+    public int depth;
+
+    private OrderBook orderBook;
+    private Order aggressiveBuy;
+    private Order replenishSell;
+    private Order largeSell;
+    private Order aggressiveBuyAtReference;
+    private Order oversizedFillOrKill;
+    private int largeSellRemaining;
+    private long matchedQuantity;
+
+    private final OrderBook.FillListener fillListener =
+            (buyOrder, sellOrder, quantity, price) -> matchedQuantity += quantity;
+
+    @Setup(Level.Iteration)
+    public void createBook() {
+        BenchmarkSupport.silenceConsole();
+        orderBook = OrderBook.create(bookType, "BENCH", REFERENCE_PRICE);
+
+        double bestAsk = REFERENCE_PRICE + TICK;
+        for (int level = 0; level < depth; level++) {
+            orderBook.addOrders(new Order("Maker", "BENCH", OrderType.BUY, 100, REFERENCE_PRICE - TICK * (level + 1)));
+            orderBook.addOrders(new Order("Maker", "BENCH", OrderType.SELL, 100, bestAsk + TICK * level));
+        }
+        aggressiveBuy = new Order("Taker", "BENCH", OrderType.BUY, 100, bestAsk);
+        replenishSell = new Order("Maker", "BENCH", OrderType.SELL, 100, bestAsk);
+        largeSell = new Order("Maker", "BENCH", OrderType.SELL, 1_000_000, REFERENCE_PRICE);
+        aggressiveBuyAtReference = new Order("Taker", "BENCH", OrderType.BUY, 100, REFERENCE_PRICE);
+        largeSellRemaining = 0;
+        oversizedFillOrKill = Order.limit("Taker", "BENCH", OrderType.BUY, depth * 100 + 1,
+                Math.round((bestAsk + TICK * depth) / TICK), TICK, TimeInForce.FOK);
+    }
+
+    @Benchmark
+    public int matchAtDepth() {
+        orderBook.addOrders(aggressiveBuy);
+        int fills = orderBook.matchOrders(fillListener);
+        orderBook.addOrders(replenishSell);
+        return fills;
+    }
+
+    @Benchmark
+    public int partialFill() {
+        if (largeSellRemaining == 0) {
+            orderBook.addOrders(largeSell);
+            largeSellRemaining = largeSell.getQuantity();
+        }
+        orderBook.addOrders(aggressiveBuyAtReference);
+        largeSellRemaining -= aggressiveBuyAtReference.getQuantity();
+        return orderBook.matchOrders(fillListener);
+    }
+
+    @Benchmark
+    public long fillOrKillRejected() {
+        orderBook.addOrders(oversizedFillOrKill);
+        return orderBook.getUnfilledImmediateQuantity();
+    }
+
+    @TearDown(Level.Iteration)
+    public void consume(Blackhole blackhole) {
+        blackhole.consume(matchedQuantity);
+    }
+}
@@ -0,0 +1,99 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// One POLLING matching cycle over a large symbol universe in which only a few books received orders: each
+// active book gets a crossing buy/sell pair, then the cycle matches them. DIRTY_BOOKS is the engine's cycle,
+// which only visits books marked dirty; ALL_BOOKS is the previous shape of a cycle, one CompletableFuture per
+// book whether or not it has work (without the old 100 ms wait per idle book). With -prof gc, allocation per
+// cycle should not move with the universe size for DIRTY_BOOKS.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchingCycleBenchmark {
+    private static final double PRICE = 100.0;
+
+    @Param({"100", "1000", "10000"})
+    public int symbols;
+
+    @Param({"16"})
+    public int activeSymbols;
+
+    @Param({"DIRTY_BOOKS", "ALL_BOOKS"})
+    public String scheduler;
+
+    private MatchingEngine matchingEngine;
+    private List<OrderBook> books;
+    private OrderBook[] activeBooks;
+    private ExecutorService allBooksPool;
+
+    @Setup(Level.Trial)
+    public void createUniverse() {
+        BenchmarkSupport.silenceConsole();
+        Map<String, Stock> stocks = new HashMap<>();
+        Map<String, OrderBook> orderBooks = new HashMap<>();
+        books = new ArrayList<>();
+        for (int i = 0; i < symbols; i++) {
+            String symbol = "S" + i;
+            stocks.put(symbol, new Stock(symbol, PRICE));
+            // The scheduler is what is measured; skip-list books keep 10k symbols small in memory
+            OrderBook orderBook = OrderBook.create(OrderBook.BookType.SKIP_LIST, symbol, PRICE);
+            orderBooks.put(symbol, orderBook);
+            books.add(orderBook);
+        }
+        activeBooks = new OrderBook[activeSymbols];
+        for (int i = 0; i < activeSymbols; i++) {
+            activeBooks[i] = orderBooks.get("S" + (i * (symbols / activeSymbols)));
+        }
+        if (scheduler.equals("DIRTY_BOOKS")) {
+            // The benchmark thread drives the cycles itself, so the engine thread is never run; start() only
+            // starts the settlement and reporting stages
+            matchingEngine = new MatchingEngine(orderBooks, stocks, MatchingEngine.Mode.POLLING);
+            matchingEngine.start();
+        } else {
+            allBooksPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Benchmark
+    public int cycle() throws Exception {
+        for (OrderBook orderBook : activeBooks) {
+            orderBook.addOrders(new Order("Buyer", orderBook.getSymbol(), OrderType.BUY, 100, PRICE));
+            orderBook.addOrders(new Order("Seller", orderBook.getSymbol(), OrderType.SELL, 100, PRICE));
+        }
+        if (matchingEngine != null) {
+            // The cycle only forks the books' tasks; wait until they and the later stages are done with them
+            int books = matchingEngine.runMatchingCycle();
+            matchingEngine.awaitPipelineIdle(1, TimeUnit.SECONDS);
+            return books;
+        }
+        List<CompletableFuture<List<Trade>>> cycle = new ArrayList<>();
+        for (OrderBook orderBook : books) {
+            cycle.add(CompletableFuture.supplyAsync(orderBook::matchOrders, allBooksPool));
+        }
+        CompletableFuture.allOf(cycle.toArray(new CompletableFuture<?>[0])).get();
+        return cycle.size();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopEngine() {
+        if (matchingEngine != null) {
+            matchingEngine.stop();
+        } else {
+            allBooksPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end throughput: several trader threads submit random orders into a running
+// MatchingEngine. CONTINUOUS matches on the submitting thread; SHARDED hands orders
+// to the shard threads through their ingress rings (producers wait when a ring is full).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MatchingEngineBenchmark {
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "TSLA", "MSFT"};
+    private static final double[] PRICES = {150.0, 2800.0, 250.0, 300.0};
+
+    @Param({"SKIP_LIST", "TICK_LADDER"})
+    public OrderBook.BookType bookType;
+
+    @Param({"CONTINUOUS", "SHARDED"})
+    public MatchingEngine.Mode mode;
+
+    private MatchingEngine matchingEngine;
+
+    @Setup(Level.Trial)
+    public void startEngine() {
+        BenchmarkSupport.silenceConsole();
+        Map<String, Stock> stocks = new HashMap<>();
+        Map<String, OrderBook> orderBooks = new HashMap<>();
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            stocks.put(SYMBOLS[i], new Stock(SYMBOLS[i], PRICES[i]));
+            orderBooks.put(SYMBOLS[i], OrderBook.create(bookType, SYMBOLS[i], PRICES[i]));
+        }
+        matchingEngine = new MatchingEngine(orderBooks, stocks, mode);
+        matchingEngine.start();
+    }
+
+    @Benchmark
+    public void submitOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int book = random.nextInt(SYMBOLS.length);
+        OrderType type = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+        double price = PRICES[book] * (1 + random.nextGaussian() * 0.002);
+        matchingEngine.submit(new Order("Bench", SYMBOLS[book], type, (random.nextInt(10) + 1) * 100, price));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopEngine() {
+        matchingEngine.stop();
+    }
+}
@@ -0,0 +1,80 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.Order;
+import com.StockSimX.OrderBook;
+import com.StockSimX.OrderType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// addOrders cost for both book implementations, with and without crossing flow
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+    private static final int ORDER_POOL_SIZE = 1 << 16;
+    private static final double REFERENCE_PRICE = 100.0;
+
+    @Param({"SKIP_LIST", "TICK_LADDER"})
+    public OrderBook.BookType bookType;
+
+    private OrderBook orderBook;
+    private Order[] restingOrders;
+    private Order[] crossingOrders;
+    private int next;
+    private long matchedQuantity;
+
+    private final OrderBook.FillListener fillListener =
+            (buyOrder, sellOrder, quantity, price) -> matchedQuantity += quantity;
+
+    @Setup(Level.Trial)
+    public void createOrders() {
+        BenchmarkSupport.silenceConsole();
+        Random random = new Random(42);
+
+        // Resting flow: bids strictly below asks, so nothing ever matches
+        restingOrders = new Order[ORDER_POOL_SIZE];
+        for (int i = 0; i < ORDER_POOL_SIZE; i++) {
+            OrderType type = (i & 1) == 0 ? OrderType.BUY : OrderType.SELL;
+            double offset = 0.01 * (1 + random.nextInt(500));
+            double price = type == OrderType.BUY ? REFERENCE_PRICE - offset : REFERENCE_PRICE + offset;
+            restingOrders[i] = new Order("T" + (i % 64), "BENCH", type, (random.nextInt(10) + 1) * 100, price);
+        }
+
+        // Crossing flow: alternating buy/sell at the same price and size, so every pair fully matches
+        crossingOrders = new Order[ORDER_POOL_SIZE];
+        for (int i = 0; i < ORDER_POOL_SIZE; i++) {
+            OrderType type = (i & 1) == 0 ? OrderType.BUY : OrderType.SELL;
+            crossingOrders[i] = new Order("T" + (i % 64), "BENCH", type, 100, REFERENCE_PRICE);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createBook() {
+        orderBook = OrderBook.create(bookType, "BENCH", REFERENCE_PRICE);
+        next = 0;
+    }
+
+    @Benchmark
+    public void addOrdersNoCross() {
+        orderBook.addOrders(restingOrders[next++ & (ORDER_POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public int addOrdersHeavyCross() {
+        orderBook.addOrders(crossingOrders[next++ & (ORDER_POOL_SIZE - 1)]);
+        orderBook.addOrders(crossingOrders[next++ & (ORDER_POOL_SIZE - 1)]);
+        return orderBook.matchOrders(fillListener);
+    }
+
+    @TearDown(Level.Iteration)
+    public void consume(Blackhole blackhole) {
+        blackhole.consume(matchedQuantity);
+    }
+}
@@ -0,0 +1,85 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.Order;
+import com.StockSimX.OrderBook;
+import com.StockSimX.OrderType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Quote-driven order flow with a 90% cancel ratio. The book holds ORDERS_PER_LEVEL resting orders on each of
+// depth levels per side. Nine operations in ten cancel a random resting order, anywhere in its level, and
+// enter it again at the back of the level; the tenth is a marketable buy that fills the best ask's head,
+// which is then entered again. Every order in the pool is resting between operations, so depth is constant.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderCancelBenchmark {
+    private static final double REFERENCE_PRICE = 100.0;
+    private static final double TICK = 0.01;
+    private static final int ORDERS_PER_LEVEL = 10;
+
+    @Param({"SKIP_LIST", "TICK_LADDER"})
+    public OrderBook.BookType bookType;
+
+    @Param({"10", "100", "1000"})
+    public int depth;
+
+    private OrderBook orderBook;
+    private Order[] resting;
+    private Order aggressiveBuy;
+    private SplittableRandom random;
+    private int operation;
+    private Order filledSell;
+    private long cancelled;
+
+    private final OrderBook.FillListener fillListener =
+            (buyOrder, sellOrder, quantity, price) -> filledSell = sellOrder;
+
+    @Setup(Level.Iteration)
+    public void createBook() {
+        BenchmarkSupport.silenceConsole();
+        orderBook = OrderBook.create(bookType, "BENCH", REFERENCE_PRICE);
+        random = new SplittableRandom(42);
+
+        resting = new Order[2 * depth * ORDERS_PER_LEVEL];
+        int next = 0;
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                resting[next++] = new Order("Maker", "BENCH", OrderType.BUY, 100, REFERENCE_PRICE - TICK * (level + 1));
+                resting[next++] = new Order("Maker", "BENCH", OrderType.SELL, 100, REFERENCE_PRICE + TICK * (level + 1));
+            }
+        }
+        for (Order order : resting) {
+            orderBook.addOrders(order);
+        }
+        aggressiveBuy = new Order("Taker", "BENCH", OrderType.BUY, 100, REFERENCE_PRICE + TICK);
+    }
+
+    @Benchmark
+    public int cancelRatio90() {
+        if (++operation == 10) {
+            operation = 0;
+            orderBook.addOrders(aggressiveBuy);
+            int fills = orderBook.matchOrders(fillListener);
+            orderBook.addOrders(filledSell);
+            return fills;
+        }
+        Order order = resting[random.nextInt(resting.length)];
+        if (orderBook.cancelOrder(order.getOrderId())) {
+            cancelled++;
+        }
+        orderBook.addOrders(order);
+        return 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void consume(Blackhole blackhole) {
+        blackhole.consume(cancelled);
+    }
+}
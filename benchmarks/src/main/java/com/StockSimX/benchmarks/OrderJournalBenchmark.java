@@ -0,0 +1,73 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Sustained journal throughput. Producers only publish into the journal's ring, but once the ring is
+// full they wait for the writer thread, so the measured rate is bounded by encoding plus the fsync policy.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderJournalBenchmark {
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "TSLA", "MSFT"};
+    private static final int EVENTS = 1024;
+
+    @Param({"NEVER", "EVERY_BATCH", "PERIODIC"})
+    public OrderJournal.FsyncPolicy fsyncPolicy;
+
+    private Path path;
+    private OrderJournal journal;
+    private Order[] orders;
+    private Trade[] trades;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void openJournal() throws IOException {
+        BenchmarkSupport.silenceConsole();
+        path = Files.createTempFile("stocksimx-bench", ".journal");
+        journal = OrderJournal.open(path, fsyncPolicy, 10);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        orders = new Order[EVENTS];
+        trades = new Trade[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            String symbol = SYMBOLS[i % SYMBOLS.length];
+            orders[i] = new Order("Trader-" + (i % 64), symbol, random.nextBoolean() ? OrderType.BUY : OrderType.SELL,
+                    (random.nextInt(10) + 1) * 100, 100 + random.nextInt(1000) * 0.01);
+            trades[i] = new Trade("Trader-" + (i % 64), "Trader-" + ((i + 1) % 64), symbol, 100,
+                    10_000 + random.nextInt(1000), 0.01, i, i + 1, i, i + 1, i + 2, OrderType.BUY);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void appendOrder() {
+        journal.append(orders[next++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void appendTrade() {
+        journal.append(trades[next++ & (EVENTS - 1)]);
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        journal.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeJournal() throws IOException {
+        journal.close();
+        Files.deleteIfExists(path);
+    }
+}
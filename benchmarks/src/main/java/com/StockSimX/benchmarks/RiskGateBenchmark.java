@@ -0,0 +1,119 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the pre-trade risk checks per order, over a downstream gateway that accepts everything so only the
+// gate is measured. direct is the same order without a gate; accepted passes all four checks (size, collar,
+// open quantity against a live position and working orders, rate) with IOC orders, which the gate does not
+// keep working; restingCancelled is a GTC order accepted, kept working and cancelled again, with the gateway
+// reporting the removal as a book would; collarRejected stops at the second check; throttled runs every check
+// and is turned away by the rate bucket. With -prof gc only restingCancelled should allocate: the gate's
+// record of the working order.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RiskGateBenchmark {
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "TSLA", "MSFT"};
+    private static final double[] PRICES = {150.0, 2800.0, 250.0, 300.0};
+
+    private OrderGateway accepting;
+    private RiskGate gate;
+    private RiskGate throttledGate;
+    private Order[] orders;
+    private Order[] restingOrders;
+    private OrderAmendment[] cancels;
+    private Order farOrder;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createGate() {
+        BenchmarkSupport.silenceConsole();
+        Map<String, Stock> stocks = new HashMap<>();
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            stocks.put(SYMBOLS[i], new Stock(SYMBOLS[i], PRICES[i]));
+        }
+        SettlementLedger ledger = new SettlementLedger(stocks, 1_000_000);
+        Portfolio portfolio = ledger.open("Trader");
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            // A live position in every symbol, so the open quantity check reads a real one
+            ledger.settle(new Trade("Trader", "Other", SYMBOLS[i], 500, Math.round(PRICES[i] * 100), 0.01,
+                    0, 0, 0, 0, System.currentTimeMillis(), OrderType.BUY));
+        }
+
+        accepting = new OrderGateway() {
+            private Order resting;
+
+            @Override
+            public boolean submit(Order order) {
+                resting = order;
+                return true;
+            }
+
+            @Override
+            public boolean amend(OrderAmendment amendment) {
+                // Cancels the order just submitted, as its book would
+                ledger.onQuantityRemoved(resting, resting.getQuantity());
+                return true;
+            }
+        };
+        gate = new RiskGate(accepting, stocks, portfolio, new RiskGate.Limits(5_000, 1_000, 10_000, 1_000_000_000));
+        throttledGate = new RiskGate(accepting, stocks, ledger.open("Throttled"),
+                new RiskGate.Limits(5_000, 1_000, 10_000, 1));
+        throttledGate.submit(new Order("Trader", "AAPL", OrderType.BUY, 100, 150.0));
+
+        orders = new Order[1024];
+        restingOrders = new Order[orders.length];
+        cancels = new OrderAmendment[orders.length];
+        for (int i = 0; i < orders.length; i++) {
+            int symbol = i % SYMBOLS.length;
+            OrderType side = (i / SYMBOLS.length) % 2 == 0 ? OrderType.BUY : OrderType.SELL;
+            long priceTicks = Math.round(PRICES[symbol] * (side == OrderType.BUY ? 0.99 : 1.01) * 100);
+            orders[i] = Order.limit("Trader", SYMBOLS[symbol], side, 100 * (1 + i % 10), priceTicks, 0.01,
+                    TimeInForce.IOC);
+            restingOrders[i] = new Order("Trader", SYMBOLS[symbol], side, 100 * (1 + i % 10), priceTicks, 0.01);
+            cancels[i] = OrderAmendment.cancel(restingOrders[i]);
+        }
+        farOrder = new Order("Trader", "AAPL", OrderType.BUY, 100, 200.0);
+    }
+
+    private Order nextOrder() {
+        Order order = orders[next];
+        next = (next + 1) & (orders.length - 1);
+        return order;
+    }
+
+    @Benchmark
+    public boolean direct() {
+        return accepting.submit(nextOrder());
+    }
+
+    @Benchmark
+    public boolean accepted() {
+        return gate.submit(nextOrder());
+    }
+
+    @Benchmark
+    public boolean restingCancelled() {
+        int index = next;
+        next = (next + 1) & (orders.length - 1);
+        return gate.submit(restingOrders[index]) & gate.amend(cancels[index]);
+    }
+
+    @Benchmark
+    public boolean collarRejected() {
+        return gate.submit(farOrder);
+    }
+
+    @Benchmark
+    public boolean throttled() {
+        return throttledGate.submit(nextOrder());
+    }
+}
@@ -0,0 +1,95 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.OrderType;
+import com.StockSimX.Portfolio;
+import com.StockSimX.SettlementLedger;
+import com.StockSimX.Stock;
+import com.StockSimX.Trade;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Settling trades into the traders' portfolios, as the matching threads do. Each settling thread owns one
+// symbol, the way SHARDED matching threads own books, but all of them trade among the same 16 traders, so a
+// per-trader lock would serialise them; positions are striped per symbol and only contend within one.
+// markToMarket is a trader's unrealized P&L over its positions at the stocks' current prices. With -prof gc,
+// settling should not allocate once every position exists.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SettlementBenchmark {
+    private static final int TRADERS = 16;
+    private static final int SYMBOLS = 4;
+
+    private SettlementLedger ledger;
+    private Trade[][] trades;                   // [symbol][trade], cycled through by that symbol's thread
+    private Portfolio portfolio;
+
+    @State(Scope.Thread)
+    public static class Settler {
+        int symbol = -1;
+        int next;
+    }
+
+    private int nextSymbol;
+
+    @Setup(Level.Trial)
+    public void createLedger() {
+        BenchmarkSupport.silenceConsole();
+        Map<String, Stock> stocks = new HashMap<>();
+        for (int s = 0; s < SYMBOLS; s++) {
+            stocks.put("S" + s, new Stock("S" + s, 100.0));
+        }
+        ledger = new SettlementLedger(stocks, 1_000_000);
+        trades = new Trade[SYMBOLS][1024];
+        for (int s = 0; s < SYMBOLS; s++) {
+            for (int i = 0; i < trades[s].length; i++) {
+                int buyer = (i * 7 + s) % TRADERS;
+                int seller = (buyer + 1 + i % (TRADERS - 1)) % TRADERS;
+                trades[s][i] = new Trade("Trader-" + buyer, "Trader-" + seller, "S" + s, 100,
+                        9_900 + (i % 200), 0.01, 0, 0, 0, 0, 0, OrderType.BUY);
+                ledger.settle(trades[s][i]);
+            }
+        }
+        portfolio = ledger.getPortfolio("Trader-0");
+    }
+
+    private synchronized int claimSymbol() {
+        return nextSymbol++ % SYMBOLS;
+    }
+
+    private void settleNext(Settler settler) {
+        if (settler.symbol < 0) {
+            settler.symbol = claimSymbol();
+        }
+        Trade[] symbolTrades = trades[settler.symbol];
+        ledger.settle(symbolTrades[settler.next]);
+        settler.next = (settler.next + 1) & (symbolTrades.length - 1);
+    }
+
+    @Benchmark
+    @Group("oneSettler")
+    @GroupThreads(1)
+    public void settleAlone(Settler settler) {
+        settleNext(settler);
+    }
+
+    @Benchmark
+    @Group("fourSettlers")
+    @GroupThreads(4)
+    public void settleConcurrently(Settler settler) {
+        settleNext(settler);
+    }
+
+    @Benchmark
+    @Group("markToMarket")
+    @GroupThreads(1)
+    public double markToMarket() {
+        return portfolio.getUnrealizedPnl();
+    }
+}
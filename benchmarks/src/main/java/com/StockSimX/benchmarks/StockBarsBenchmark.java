@@ -0,0 +1,71 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.OrderType;
+import com.StockSimX.Stock;
+import com.StockSimX.Trade;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// OHLCV bars built from the trade stream while readers query them. The writer records trades 10 ms of
+// market time apart, so one-second bars keep rolling over; readers copy the last minute of one-second bars
+// into their own array, or take the latest one-minute bar as an object. With -prof gc, readBars should show
+// no allocation however often it is polled.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class StockBarsBenchmark {
+    private static final long START_MILLIS = 1_704_205_800_000L;
+
+    private Stock stock;
+    private long tradeTime;
+    private long priceTicks;
+
+    @State(Scope.Thread)
+    public static class Reader {
+        final long[] bars = new long[60 * Stock.BAR_FIELDS];
+    }
+
+    @Setup(Level.Trial)
+    public void createStock() {
+        BenchmarkSupport.silenceConsole();
+        stock = new Stock("BENCH", 100.0);
+        tradeTime = START_MILLIS;
+        priceTicks = 10_000;
+        // Fill every ring before measuring
+        for (int i = 0; i < 200_000; i++) {
+            trade();
+        }
+    }
+
+    private void trade() {
+        tradeTime += 10;
+        priceTicks = priceTicks >= 11_000 ? 9_000 : priceTicks + 1;
+        stock.addVolume(new Trade("Buyer", "Seller", "BENCH", 100, priceTicks, 0.01, 0, 0, 0, 0,
+                tradeTime, OrderType.BUY));
+    }
+
+    @Benchmark
+    @Group("readBars")
+    @GroupThreads(3)
+    public int lastMinuteOfSeconds(Reader reader) {
+        return stock.readBars(Stock.BarInterval.ONE_SECOND, 60, reader.bars);
+    }
+
+    @Benchmark
+    @Group("readBars")
+    @GroupThreads(1)
+    public void barsWriter() {
+        trade();
+    }
+
+    @Benchmark
+    @Group("latestBar")
+    @GroupThreads(1)
+    public Stock.Bar latestMinuteBar() {
+        return stock.getLatestBar(Stock.BarInterval.ONE_MINUTE);
+    }
+}
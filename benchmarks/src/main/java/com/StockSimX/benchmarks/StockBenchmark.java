@@ -0,0 +1,47 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.Stock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Stock.getCurrentPrice with and without a concurrent price writer
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class StockBenchmark {
+    private Stock stock;
+    private double nextPrice;
+
+    @Setup(Level.Trial)
+    public void createStock() {
+        BenchmarkSupport.silenceConsole();
+        stock = new Stock("BENCH", 100.0);
+        nextPrice = 100.0;
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public double readOnlyReader() {
+        return stock.getCurrentPrice();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public double contendedReader() {
+        return stock.getCurrentPrice();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void contendedWriter() {
+        nextPrice = nextPrice >= 110.0 ? 90.0 : nextPrice + 0.01;
+        stock.updatePrice(nextPrice);
+    }
+}
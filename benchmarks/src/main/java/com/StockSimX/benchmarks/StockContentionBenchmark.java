@@ -0,0 +1,91 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.Stock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 64 reader threads against one writer: the seqlock Stock versus the previous
+// ReentrantReadWriteLock design, where every read CASes the lock's shared reader count
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class StockContentionBenchmark {
+    private Stock stock;
+    private ReadWriteLockedPrice lockedPrice;
+    private double nextPrice;
+
+    // The pre-seqlock Stock price path, kept here as the comparison baseline
+    static final class ReadWriteLockedPrice {
+        private final ReadWriteLock priceLock = new ReentrantReadWriteLock(false);
+        private volatile double currentPrice;
+
+        ReadWriteLockedPrice(double initialPrice) {
+            this.currentPrice = initialPrice;
+        }
+
+        double getCurrentPrice() {
+            priceLock.readLock().lock();
+            try {
+                return currentPrice;
+            } finally {
+                priceLock.readLock().unlock();
+            }
+        }
+
+        void updatePrice(double newPrice) {
+            priceLock.writeLock().lock();
+            try {
+                currentPrice = Math.max(0.01, newPrice);
+            } finally {
+                priceLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void create() {
+        BenchmarkSupport.silenceConsole();
+        stock = new Stock("BENCH", 100.0);
+        lockedPrice = new ReadWriteLockedPrice(100.0);
+        nextPrice = 100.0;
+    }
+
+    private double nextPrice() {
+        nextPrice = nextPrice >= 110.0 ? 90.0 : nextPrice + 0.01;
+        return nextPrice;
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(64)
+    public Stock.Snapshot seqlockReader() {
+        return stock.getSnapshot();
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(1)
+    public void seqlockWriter() {
+        stock.updatePrice(nextPrice());
+    }
+
+    @Benchmark
+    @Group("readWriteLock")
+    @GroupThreads(64)
+    public double readWriteLockReader() {
+        return lockedPrice.getCurrentPrice();
+    }
+
+    @Benchmark
+    @Group("readWriteLock")
+    @GroupThreads(1)
+    public void readWriteLockWriter() {
+        lockedPrice.updatePrice(nextPrice());
+    }
+}
@@ -0,0 +1,65 @@
+package com.StockSimX.benchmarks;
+
+import com.StockSimX.OrderType;
+import com.StockSimX.Stock;
+import com.StockSimX.Trade;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Engine trade totals updated by four matching threads at once: the previous shared AtomicLongs versus the
+// striped LongAdders, which are only summed when read. stockTrade is the per-symbol Stock update a trade
+// makes, including its rolling one-second and one-minute windows and its OHLCV bars.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class TradeStatisticsBenchmark {
+    private static final int QUANTITY = 100;
+
+    private AtomicLong atomicMatches;
+    private AtomicLong atomicVolume;
+    private LongAdder adderMatches;
+    private LongAdder adderVolume;
+    private Stock stock;
+    private Trade trade;
+
+    @Setup(Level.Trial)
+    public void create() {
+        BenchmarkSupport.silenceConsole();
+        atomicMatches = new AtomicLong();
+        atomicVolume = new AtomicLong();
+        adderMatches = new LongAdder();
+        adderVolume = new LongAdder();
+        stock = new Stock("BENCH", 100.0);
+        trade = new Trade("Buyer", "Seller", "BENCH", QUANTITY, 10_000, 0.01, 0, 0, 0, 0,
+                System.currentTimeMillis(), OrderType.BUY);
+    }
+
+    @Benchmark
+    @Group("atomicLong")
+    @GroupThreads(4)
+    public void atomicLongTrade() {
+        atomicMatches.incrementAndGet();
+        atomicVolume.addAndGet(QUANTITY);
+    }
+
+    @Benchmark
+    @Group("longAdder")
+    @GroupThreads(4)
+    public void longAdderTrade() {
+        adderMatches.increment();
+        adderVolume.add(QUANTITY);
+    }
+
+    @Benchmark
+    @Group("stockTrade")
+    @GroupThreads(1)
+    public void stockTrade() {
+        stock.addVolume(trade);
+    }
+}
@@ -0,0 +1,111 @@
+package com.StockSimX;
+
+// OHLCV candles of one interval length, built incrementally from trades. The newest bars are kept in a ring
+// laid out as one primitive array of FIELDS longs per bar: a trade in the current interval updates the newest
+// bar in place, one in a later interval opens the next bar over the oldest, so intervals without trades take
+// no slot. The ring is allocated with the first trade (most symbols of a large universe never trade) and never
+// again. Not thread-safe: owned by a Stock and written and read through its seqlock.
+final class BarSeries {
+    // Layout of one bar, in the ring and as copied out by read()
+    static final int FIELDS = 7;
+    static final int START = 0;
+    static final int OPEN = 1;
+    static final int HIGH = 2;
+    static final int LOW = 3;
+    static final int CLOSE = 4;
+    static final int VOLUME = 5;
+    static final int TRADES = 6;
+
+    private final long intervalMillis;
+    private final int capacity;
+    private long[] ring;
+    private long opened;                    // bars ever opened; the newest is bar (opened - 1) % capacity
+
+    BarSeries(long intervalMillis, int capacity) {
+        this.intervalMillis = intervalMillis;
+        this.capacity = capacity;
+    }
+
+    void add(long timeMillis, long quantity, long priceTicks) {
+        long barStart = timeMillis - Math.floorMod(timeMillis, intervalMillis);
+        if (opened > 0) {
+            int newest = offset(opened - 1);
+            if (ring[newest + START] == barStart) {
+                include(newest, quantity, priceTicks);
+                ring[newest + CLOSE] = priceTicks;
+                return;
+            }
+            if (ring[newest + START] > barStart) {
+                addLate(barStart, quantity, priceTicks);
+                return;
+            }
+        } else if (ring == null) {
+            ring = new long[capacity * FIELDS];
+        }
+        int bar = offset(opened);
+        opened++;
+        ring[bar + START] = barStart;
+        ring[bar + OPEN] = priceTicks;
+        ring[bar + HIGH] = priceTicks;
+        ring[bar + LOW] = priceTicks;
+        ring[bar + CLOSE] = priceTicks;
+        ring[bar + VOLUME] = quantity;
+        ring[bar + TRADES] = 1;
+    }
+
+    // A trade stamped before the newest bar (e.g. a replayed one) still counts in its own bar if the ring holds
+    // it, but never becomes a close; it is dropped if its bar was never opened or has been overwritten
+    private void addLate(long barStart, long quantity, long priceTicks) {
+        long held = Math.min(opened, capacity);
+        for (long i = 2; i <= held; i++) {
+            int bar = offset(opened - i);
+            if (ring[bar + START] == barStart) {
+                include(bar, quantity, priceTicks);
+                return;
+            }
+            if (ring[bar + START] < barStart) {
+                return;
+            }
+        }
+    }
+
+    private void include(int bar, long quantity, long priceTicks) {
+        if (priceTicks > ring[bar + HIGH]) {
+            ring[bar + HIGH] = priceTicks;
+        }
+        if (priceTicks < ring[bar + LOW]) {
+            ring[bar + LOW] = priceTicks;
+        }
+        ring[bar + VOLUME] += quantity;
+        ring[bar + TRADES]++;
+    }
+
+    // Copies up to count of the newest bars into out, oldest first, FIELDS longs per bar; returns how many.
+    // Under the seqlock a reader may see a half-written ring; the caller retries, so this only has to stay in
+    // bounds
+    int read(int count, long[] out) {
+        long[] bars = ring;
+        long newest = opened;
+        if (bars == null) {
+            return 0;
+        }
+        int copied = (int) Math.min(Math.min(newest, capacity), Math.min(count, out.length / FIELDS));
+        if (copied <= 0) {
+            return 0;
+        }
+        // Oldest wanted bar to the end of the ring, then whatever wrapped around to the front
+        int first = offset(newest - copied);
+        int length = Math.min(copied * FIELDS, bars.length - first);
+        System.arraycopy(bars, first, out, 0, length);
+        System.arraycopy(bars, 0, out, length, copied * FIELDS - length);
+        return copied;
+    }
+
+    private int offset(long bar) {
+        return (int) (bar % capacity) * FIELDS;
+    }
+
+    void clear() {
+        opened = 0;
+    }
+}
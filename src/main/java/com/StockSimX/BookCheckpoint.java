@@ -0,0 +1,237 @@
+package com.StockSimX;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// State of one order book and its stock at a checkpoint: every resting order (full) or only the levels
+// that changed since the previous capture (delta), every parked stop order (always in full), plus the
+// journal sequence the state corresponds to.
+// Capturing only copies Order references and quantities into flat arrays; encoding happens later on the
+// checkpoint writer thread, so the owning matching thread is held up for as little as possible.
+public final class BookCheckpoint implements OrderBook.LevelVisitor {
+    private final String symbol;
+    private final boolean full;
+    private final double tickSize;
+    private long journalSequence;
+    private Stock.Snapshot stock;
+
+    private int levelCount;
+    private OrderType[] levelSide;
+    private long[] levelPrice;                  // ticks
+    private int[] levelOrders;
+
+    private int orderCount;
+    private Order[] orders;
+    private int[] remainingQuantities;
+
+    private final List<Order> stops;
+
+    private BookCheckpoint(String symbol, boolean full, double tickSize, int levelCapacity, int orderCapacity) {
+        this.symbol = symbol;
+        this.full = full;
+        this.tickSize = tickSize;
+        this.levelSide = new OrderType[levelCapacity];
+        this.levelPrice = new long[levelCapacity];
+        this.levelOrders = new int[levelCapacity];
+        this.orders = new Order[orderCapacity];
+        this.remainingQuantities = new int[orderCapacity];
+        this.stops = new ArrayList<>();
+    }
+
+    // Must run on the book's owning thread (or with the book otherwise quiescent)
+    public static BookCheckpoint capture(OrderBook orderBook, Stock stock, boolean full) {
+        BookCheckpoint checkpoint = new BookCheckpoint(orderBook.getSymbol(), full, orderBook.getTickSize(), 16, 64);
+        orderBook.captureLevels(!full, checkpoint);
+        checkpoint.journalSequence = orderBook.getJournalSequence();
+        checkpoint.stock = stock.getSnapshot();
+        return checkpoint;
+    }
+
+    @Override
+    public void onLevel(OrderType side, long priceTicks, int count) {
+        if (levelCount == levelSide.length) {
+            levelSide = Arrays.copyOf(levelSide, levelCount * 2);
+            levelPrice = Arrays.copyOf(levelPrice, levelCount * 2);
+            levelOrders = Arrays.copyOf(levelOrders, levelCount * 2);
+        }
+        levelSide[levelCount] = side;
+        levelPrice[levelCount] = priceTicks;
+        levelOrders[levelCount] = count;
+        levelCount++;
+    }
+
+    @Override
+    public void onOrder(Order order, int remainingQuantity) {
+        if (orderCount == orders.length) {
+            orders = Arrays.copyOf(orders, orderCount * 2);
+            remainingQuantities = Arrays.copyOf(remainingQuantities, orderCount * 2);
+        }
+        orders[orderCount] = order;
+        remainingQuantities[orderCount] = remainingQuantity;
+        orderCount++;
+    }
+
+    @Override
+    public void onStopOrder(Order stop) {
+        stops.add(stop);
+    }
+
+    // Replaces every captured level in the book and restores the stock; before the engine starts
+    public void applyTo(OrderBook orderBook, Stock stock) {
+        if (Double.compare(orderBook.getTickSize(), tickSize) != 0) {
+            throw new IllegalStateException(String.format("Checkpoint of %s uses tick size %s, the book uses %s",
+                    symbol, tickSize, orderBook.getTickSize()));
+        }
+        for (int i = 0; i < orderCount; i++) {
+            Order.reserveOrderIds(orders[i].getOrderId());
+        }
+        for (Order stop : stops) {
+            Order.reserveOrderIds(stop.getOrderId());
+        }
+        int offset = 0;
+        for (int level = 0; level < levelCount; level++) {
+            orderBook.restoreLevel(levelSide[level], levelPrice[level], orders, remainingQuantities,
+                    offset, levelOrders[level]);
+            offset += levelOrders[level];
+        }
+        orderBook.restoreStops(stops, this.stock.lastTradeTicks());
+        orderBook.setJournalSequence(journalSequence);
+        if (stock != null) {
+            stock.restore(this.stock);
+        }
+    }
+
+    // Adds every trader id referenced by this checkpoint to the file's string table
+    void collectTraderIds(Map<String, Integer> traderIds) {
+        for (int i = 0; i < orderCount; i++) {
+            traderIds.putIfAbsent(orders[i].getTraderId(), traderIds.size());
+        }
+        for (Order stop : stops) {
+            traderIds.putIfAbsent(stop.getTraderId(), traderIds.size());
+        }
+    }
+
+    void writeTo(DataOutputStream out, Map<String, Integer> traderIds) throws IOException {
+        out.writeUTF(symbol);
+        out.writeLong(journalSequence);
+        out.writeDouble(tickSize);
+        out.writeLong(stock.priceTicks());
+        out.writeLong(stock.lastTradeTicks());
+        out.writeLong(stock.bestBidTicks());
+        out.writeLong(stock.bestAskTicks());
+        out.writeLong(stock.totalVolume());
+        out.writeLong(stock.tradeCount());
+
+        out.writeInt(levelCount);
+        out.writeInt(orderCount);
+        int next = 0;
+        for (int level = 0; level < levelCount; level++) {
+            out.writeByte(levelSide[level].ordinal());
+            out.writeLong(levelPrice[level]);
+            out.writeInt(levelOrders[level]);
+            for (int end = next + levelOrders[level]; next < end; next++) {
+                Order order = orders[next];
+                out.writeLong(order.getOrderId());
+                out.writeInt(traderIds.get(order.getTraderId()));
+                out.writeLong(order.getTimestamp());
+                out.writeInt(order.getQuantity());
+                out.writeInt(remainingQuantities[next]);
+            }
+        }
+
+        out.writeInt(stops.size());
+        for (Order stop : stops) {
+            out.writeLong(stop.getOrderId());
+            out.writeInt(traderIds.get(stop.getTraderId()));
+            out.writeLong(stop.getTimestamp());
+            out.writeByte(stop.getType().ordinal());
+            out.writeByte(stop.getKind().ordinal());
+            out.writeByte(stop.getTimeInForce().ordinal());
+            out.writeInt(stop.getQuantity());
+            out.writeLong(stop.getPriceTicks());
+            out.writeLong(stop.getStopPriceTicks());
+        }
+    }
+
+    static BookCheckpoint readFrom(DataInputStream in, boolean full, String[] traderIds) throws IOException {
+        String symbol = in.readUTF();
+        long journalSequence = in.readLong();
+        double tickSize = in.readDouble();
+        Stock.Snapshot stock = new Stock.Snapshot(in.readLong(), in.readLong(), in.readLong(),
+                in.readLong(), in.readLong(), in.readLong(), tickSize);
+
+        int levels = in.readInt();
+        int totalOrders = in.readInt();
+        BookCheckpoint checkpoint = new BookCheckpoint(symbol, full, tickSize, Math.max(1, levels), Math.max(1, totalOrders));
+        checkpoint.journalSequence = journalSequence;
+        checkpoint.stock = stock;
+        for (int level = 0; level < levels; level++) {
+            OrderType side = OrderType.values()[in.readByte()];
+            long priceTicks = in.readLong();
+            int count = in.readInt();
+            checkpoint.onLevel(side, priceTicks, count);
+            for (int i = 0; i < count; i++) {
+                // Every order in a level rests at the level's price, so it is not repeated per order
+                long orderId = in.readLong();
+                String traderId = traderIds[in.readInt()];
+                long timestamp = in.readLong();
+                int quantity = in.readInt();
+                checkpoint.onOrder(new Order(orderId, traderId, symbol, side, quantity, priceTicks, tickSize, timestamp),
+                        in.readInt());
+            }
+        }
+
+        int stops = in.readInt();
+        for (int i = 0; i < stops; i++) {
+            long orderId = in.readLong();
+            String traderId = traderIds[in.readInt()];
+            long timestamp = in.readLong();
+            OrderType side = OrderType.values()[in.readByte()];
+            OrderKind kind = OrderKind.values()[in.readByte()];
+            TimeInForce timeInForce = TimeInForce.values()[in.readByte()];
+            int quantity = in.readInt();
+            long priceTicks = in.readLong();
+            long stopPriceTicks = in.readLong();
+            checkpoint.onStopOrder(new Order(orderId, traderId, symbol, side, kind, timeInForce, quantity, priceTicks,
+                    stopPriceTicks, tickSize, timestamp));
+        }
+        return checkpoint;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public Stock.Snapshot getStock() {
+        return stock;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getStopOrderCount() {
+        return stops.size();
+    }
+}
@@ -0,0 +1,33 @@
+package com.StockSimX;
+
+// Per-symbol book metrics published over JMX as com.StockSimX:type=OrderBook,symbol=<symbol>.
+// Latencies are in nanoseconds.
+public interface BookMetricsMXBean {
+    String getSymbol();
+
+    int getBuyLevels();
+
+    int getSellLevels();
+
+    long getBuyQuantity();
+
+    long getSellQuantity();
+
+    int getParkedStops();
+
+    long getFills();
+
+    long getLockAcquisitions();
+
+    long getEntryAllocations();
+
+    LatencyHistogram.Snapshot getIngressLatency();
+
+    LatencyHistogram.Snapshot getInsertToFillLatency();
+
+    LatencyHistogram.Snapshot getOrderToFillLatency();
+
+    LatencyHistogram.Snapshot getMatchLatency();
+
+    LatencyHistogram.Snapshot getLockWaitLatency();
+}
@@ -0,0 +1,200 @@
+package com.StockSimX;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Directory of numbered checkpoint files: checkpoint-<round>.full holds every book, checkpoint-<round>.delta
+// only the levels changed since the previous round. Files are written on a background thread to a temporary
+// name, synced and atomically renamed, so a crash never leaves a half-written checkpoint behind.
+// Restart loads the newest full checkpoint and then every following delta up to the first missing round.
+public class CheckpointStore implements AutoCloseable {
+    private static final int MAGIC = 0x53534350;   // "SSCP"
+    private static final int VERSION = 4;           // 2: prices as integer ticks, 3: order ids, 4: parked stops
+    private static final String PREFIX = "checkpoint-";
+    private static final String FULL_SUFFIX = ".full";
+    private static final String DELTA_SUFFIX = ".delta";
+
+    private final Path directory;
+    private final ExecutorService writer;
+
+    private long lastRound;
+    private boolean chainValid;         // false until a full round is requested, and again after a failed write
+
+    // A checkpoint round as handed out by begin(): deltas are only allowed on top of an unbroken chain
+    public record Round(long number, boolean full) {
+    }
+
+    public CheckpointStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.lastRound = latestRound(listRounds(directory));
+        this.chainValid = false;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Checkpoint-Writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized Round begin(boolean full) {
+        boolean fullRound = full || !chainValid;
+        chainValid = true;
+        return new Round(++lastRound, fullRound);
+    }
+
+    public CompletableFuture<Path> write(Round round, List<BookCheckpoint> books) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return writeRound(round, books);
+            } catch (IOException ex) {
+                synchronized (this) {
+                    chainValid = false;
+                }
+                throw new UncheckedIOException(ex);
+            }
+        }, writer);
+    }
+
+    private Path writeRound(Round round, List<BookCheckpoint> books) throws IOException {
+        Path target = directory.resolve(fileName(round.number(), round.full()));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(round.number());
+            out.writeBoolean(round.full());
+            // Trader ids repeat across thousands of orders, so each is written once and referenced by index
+            Map<String, Integer> traderIds = new LinkedHashMap<>();
+            for (BookCheckpoint book : books) {
+                book.collectTraderIds(traderIds);
+            }
+            out.writeInt(traderIds.size());
+            for (String traderId : traderIds.keySet()) {
+                out.writeUTF(traderId);
+            }
+
+            out.writeInt(books.size());
+            for (BookCheckpoint book : books) {
+                book.writeTo(out, traderIds);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        if (round.full()) {
+            // Everything before a full checkpoint is no longer needed for a restart
+            for (Map.Entry<Long, Path> older : listRounds(directory).headMap(round.number()).entrySet()) {
+                Files.deleteIfExists(older.getValue());
+            }
+        }
+        EventLog.info("[CHECKPOINT] Wrote %s (%d books)", target.getFileName(), books.size());
+        return target;
+    }
+
+    // Checkpoints to apply on restart, oldest first: the newest full round and its consecutive deltas
+    public List<List<BookCheckpoint>> load() throws IOException {
+        NavigableMap<Long, Path> rounds = listRounds(directory);
+        Long fullRound = null;
+        for (Map.Entry<Long, Path> entry : rounds.descendingMap().entrySet()) {
+            if (entry.getValue().getFileName().toString().endsWith(FULL_SUFFIX)) {
+                fullRound = entry.getKey();
+                break;
+            }
+        }
+
+        List<List<BookCheckpoint>> result = new ArrayList<>();
+        if (fullRound == null) {
+            return result;
+        }
+        long expected = fullRound;
+        for (Map.Entry<Long, Path> entry : rounds.tailMap(fullRound, true).entrySet()) {
+            if (entry.getKey() != expected) {
+                EventLog.warn("[CHECKPOINT] Round %d is missing, ignoring later deltas", expected);
+                break;
+            }
+            try {
+                result.add(read(entry.getValue()));
+            } catch (IOException ex) {
+                // A checkpoint only shortens recovery: without it the journal is replayed from further back
+                EventLog.warn("[CHECKPOINT] Ignoring %s and later rounds: %s", entry.getValue().getFileName(), ex.getMessage());
+                break;
+            }
+            expected++;
+        }
+        return result;
+    }
+
+    private static List<BookCheckpoint> read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            in.readLong();
+            boolean full = in.readBoolean();
+            String[] traderIds = new String[in.readInt()];
+            for (int i = 0; i < traderIds.length; i++) {
+                traderIds[i] = in.readUTF();
+            }
+
+            int count = in.readInt();
+            List<BookCheckpoint> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                books.add(BookCheckpoint.readFrom(in, full, traderIds));
+            }
+            return books;
+        }
+    }
+
+    private static NavigableMap<Long, Path> listRounds(Path directory) throws IOException {
+        NavigableMap<Long, Path> rounds = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                int end = name.endsWith(FULL_SUFFIX) ? name.length() - FULL_SUFFIX.length()
+                        : name.endsWith(DELTA_SUFFIX) ? name.length() - DELTA_SUFFIX.length() : -1;
+                if (name.startsWith(PREFIX) && end > PREFIX.length()) {
+                    try {
+                        rounds.put(Long.parseLong(name.substring(PREFIX.length(), end)), path);
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            });
+        }
+        return rounds;
+    }
+
+    private static long latestRound(NavigableMap<Long, Path> rounds) {
+        return rounds.isEmpty() ? 0 : rounds.lastKey();
+    }
+
+    private static String fileName(long round, boolean full) {
+        return String.format("%s%012d%s", PREFIX, round, full ? FULL_SUFFIX : DELTA_SUFFIX);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.StockSimX;
+
+import java.util.List;
+
+// Engine-wide metrics published over JMX as com.StockSimX:type=MatchingEngine. Latencies are in nanoseconds.
+public interface EngineMetricsMXBean {
+    String getMode();
+
+    long getTotalMatches();
+
+    long getTotalVolumeTraded();
+
+    long getIngressQueueDepth();
+
+    long getIngressProducerWaits();
+
+    long getJournalQueueDepth();
+
+    long getMatchingAllocatedBytes();
+
+    double getAllocatedBytesPerTrade();
+
+    long getDroppedLogEvents();
+
+    LatencyHistogram.Snapshot getGatewayLatency();
+
+    LatencyHistogram.Snapshot getOrderToFillLatency();
+
+    // POLLING only: match, settlement and reporting queue depths and event counts (rates come from deltas)
+    List<PipelineStage.Snapshot> getPipelineStages();
+}
@@ -0,0 +1,355 @@
+package com.StockSimX;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous event log used instead of System.out.printf on trading paths.
+// Callers copy the format string and arguments into a preallocated slot of a lock-free
+// multi-producer ring buffer; a single writer thread formats whole batches and prints them
+// with one PrintStream call. A filtered-out call with up to three arguments is a volatile read and a compare;
+// longer ones build their argument array first. The arguments themselves are evaluated (and primitives boxed)
+// by the caller either way, so hot paths that log numbers check isEnabled first.
+public final class EventLog {
+    public enum Level {
+        OFF,
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG
+    }
+
+    // What a producer does when the ring buffer is full
+    public enum OverflowPolicy {
+        DROP,       // discard the event and count it
+        BLOCK       // spin/yield until the writer frees a slot
+    }
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static volatile EventLog current = new EventLog(Level.INFO, DEFAULT_CAPACITY, OverflowPolicy.DROP, System.out);
+
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final PrintStream out;
+    private volatile int threshold;
+
+    // Vyukov-style bounded MPSC queue: the slot sequence tells producers and the consumer who owns it
+    private final AtomicLongArray sequences;
+    private final Slot[] slots;
+    private final AtomicLong claimSequence;
+    private volatile long consumeSequence;
+
+    private final AtomicLong droppedEvents;
+    private final AtomicLong blockedEvents;
+    private final AtomicLong writtenEvents;
+
+    private final Thread writer;
+    private volatile boolean running;
+
+    private static final class Slot {
+        Level level;
+        long timeMillis;
+        String format;
+        Object[] args;
+    }
+
+    private EventLog(Level level, int capacity, OverflowPolicy overflowPolicy, PrintStream out) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.out = out;
+        this.threshold = level.ordinal();
+
+        this.sequences = new AtomicLongArray(this.capacity);
+        this.slots = new Slot[this.capacity];
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+            slots[i] = new Slot();
+        }
+        this.claimSequence = new AtomicLong(0);
+        this.consumeSequence = 0;
+
+        this.droppedEvents = new AtomicLong(0);
+        this.blockedEvents = new AtomicLong(0);
+        this.writtenEvents = new AtomicLong(0);
+
+        this.running = true;
+        this.writer = new Thread(this::drainLoop, "EventLog-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Replaces the active log; the previous one is flushed and stopped first
+    public static synchronized void configure(Level level, int capacity, OverflowPolicy overflowPolicy, PrintStream out) {
+        EventLog previous = current;
+        current = new EventLog(level, capacity, overflowPolicy, out);
+        previous.close();
+    }
+
+    public static void setLevel(Level level) {
+        current.threshold = level.ordinal();
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() <= current.threshold;
+    }
+
+    public static void error(String format, Object arg) {
+        EventLog log = current;
+        if (Level.ERROR.ordinal() <= log.threshold) {
+            log.publish(Level.ERROR, format, new Object[]{arg});
+        }
+    }
+
+    public static void error(String format, Object arg1, Object arg2) {
+        EventLog log = current;
+        if (Level.ERROR.ordinal() <= log.threshold) {
+            log.publish(Level.ERROR, format, new Object[]{arg1, arg2});
+        }
+    }
+
+    public static void error(String format, Object arg1, Object arg2, Object arg3) {
+        EventLog log = current;
+        if (Level.ERROR.ordinal() <= log.threshold) {
+            log.publish(Level.ERROR, format, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    public static void error(String format, Object... args) {
+        current.publish(Level.ERROR, format, args);
+    }
+
+    public static void warn(String format, Object arg) {
+        EventLog log = current;
+        if (Level.WARN.ordinal() <= log.threshold) {
+            log.publish(Level.WARN, format, new Object[]{arg});
+        }
+    }
+
+    public static void warn(String format, Object arg1, Object arg2) {
+        EventLog log = current;
+        if (Level.WARN.ordinal() <= log.threshold) {
+            log.publish(Level.WARN, format, new Object[]{arg1, arg2});
+        }
+    }
+
+    public static void warn(String format, Object arg1, Object arg2, Object arg3) {
+        EventLog log = current;
+        if (Level.WARN.ordinal() <= log.threshold) {
+            log.publish(Level.WARN, format, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    public static void warn(String format, Object... args) {
+        current.publish(Level.WARN, format, args);
+    }
+
+    public static void info(String message) {
+        current.publish(Level.INFO, message, NO_ARGS);
+    }
+
+    public static void info(String format, Object arg) {
+        EventLog log = current;
+        if (Level.INFO.ordinal() <= log.threshold) {
+            log.publish(Level.INFO, format, new Object[]{arg});
+        }
+    }
+
+    public static void info(String format, Object arg1, Object arg2) {
+        EventLog log = current;
+        if (Level.INFO.ordinal() <= log.threshold) {
+            log.publish(Level.INFO, format, new Object[]{arg1, arg2});
+        }
+    }
+
+    public static void info(String format, Object arg1, Object arg2, Object arg3) {
+        EventLog log = current;
+        if (Level.INFO.ordinal() <= log.threshold) {
+            log.publish(Level.INFO, format, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    public static void info(String format, Object... args) {
+        current.publish(Level.INFO, format, args);
+    }
+
+    public static void debug(String format, Object arg) {
+        EventLog log = current;
+        if (Level.DEBUG.ordinal() <= log.threshold) {
+            log.publish(Level.DEBUG, format, new Object[]{arg});
+        }
+    }
+
+    public static void debug(String format, Object arg1, Object arg2) {
+        EventLog log = current;
+        if (Level.DEBUG.ordinal() <= log.threshold) {
+            log.publish(Level.DEBUG, format, new Object[]{arg1, arg2});
+        }
+    }
+
+    public static void debug(String format, Object arg1, Object arg2, Object arg3) {
+        EventLog log = current;
+        if (Level.DEBUG.ordinal() <= log.threshold) {
+            log.publish(Level.DEBUG, format, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    public static void debug(String format, Object... args) {
+        current.publish(Level.DEBUG, format, args);
+    }
+
+    // Blocks until every event published so far has been written
+    public static void flush() {
+        current.awaitDrained();
+    }
+
+    public static void shutdown() {
+        current.close();
+    }
+
+    public static long getDroppedEvents() {
+        return current.droppedEvents.get();
+    }
+
+    public static long getBlockedEvents() {
+        return current.blockedEvents.get();
+    }
+
+    public static long getWrittenEvents() {
+        return current.writtenEvents.get();
+    }
+
+    private void publish(Level level, String format, Object[] args) {
+        if (level.ordinal() > threshold) {
+            return;
+        }
+
+        long sequence;
+        while (true) {
+            sequence = claimSequence.get();
+            long available = sequences.get((int) sequence & mask) - sequence;
+            if (available == 0) {
+                if (claimSequence.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                // Ring is full: the writer has not consumed the slot from the previous lap yet
+                if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                    droppedEvents.incrementAndGet();
+                    return;
+                }
+                blockedEvents.incrementAndGet();
+                Thread.yield();
+            }
+        }
+
+        int index = (int) sequence & mask;
+        Slot slot = slots[index];
+        slot.level = level;
+        slot.timeMillis = System.currentTimeMillis();
+        slot.format = format;
+        slot.args = args;
+        sequences.lazySet(index, sequence + 1);
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(64 * 1024);
+        Formatter formatter = new Formatter(batch);
+        TimestampFormatter timestamps = new TimestampFormatter();
+
+        while (running || claimSequence.get() != consumeSequence) {
+            int drained = drainBatch(batch, formatter, timestamps);
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        out.flush();
+    }
+
+    private int drainBatch(StringBuilder batch, Formatter formatter, TimestampFormatter timestamps) {
+        long next = consumeSequence;
+        int drained = 0;
+
+        while (drained < MAX_BATCH) {
+            int index = (int) next & mask;
+            if (sequences.get(index) != next + 1) {
+                break;  // not yet published
+            }
+            Slot slot = slots[index];
+            timestamps.append(batch, slot.timeMillis);
+            if (slot.args.length == 0) {
+                batch.append(slot.format);
+            } else {
+                try {
+                    formatter.format(slot.format, slot.args);
+                } catch (RuntimeException ex) {
+                    batch.append(slot.format).append(" <format error: ").append(ex.getMessage()).append('>');
+                }
+            }
+            batch.append(System.lineSeparator());
+
+            slot.format = null;
+            slot.args = null;
+            sequences.lazySet(index, next + capacity);
+            next++;
+            drained++;
+        }
+
+        if (drained > 0) {
+            consumeSequence = next;
+            out.print(batch);
+            batch.setLength(0);
+            writtenEvents.addAndGet(drained);
+        }
+        return drained;
+    }
+
+    private void awaitDrained() {
+        long target = claimSequence.get();
+        while (consumeSequence < target && writer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        out.flush();
+    }
+
+    private void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Formats "[HH:mm:ss.SSS] " and only recomputes the HH:mm:ss part when the second changes
+    private static final class TimestampFormatter {
+        private final ZoneId zone = ZoneId.systemDefault();
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedPrefix = "";
+
+        void append(StringBuilder sb, long timeMillis) {
+            long second = Math.floorDiv(timeMillis, 1000);
+            if (second != cachedSecond) {
+                LocalTime time = LocalTime.ofInstant(Instant.ofEpochSecond(second), zone);
+                cachedPrefix = String.format("[%02d:%02d:%02d.", time.getHour(), time.getMinute(), time.getSecond());
+                cachedSecond = second;
+            }
+            int millis = Math.floorMod(timeMillis, 1000);
+            sb.append(cachedPrefix);
+            if (millis < 100) sb.append('0');
+            if (millis < 10) sb.append('0');
+            sb.append(millis).append("] ");
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.StockSimX;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear latency histogram (HdrHistogram style) recording nanosecond values.
+// Every power of two is split into 16 sub-buckets, so a reported value is within ~6% of the real one.
+// A histogram many threads record into at once is split into stripes, picked by thread id, and updated
+// atomically, so recorders do not fight over the same counters; readers add the stripes up. One only ever
+// recorded by one thread at a time (under a lock, or by a single writer) skips the atomic read-modify-writes
+// and publishes plain increments with opaque writes, which readers on other threads still see promptly.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    // Enough stripes for every core to have its own, without ballooning per-histogram memory on big hosts
+    public static final int DEFAULT_STRIPES =
+            Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+    private static final class Stripe {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final PaddedAtomicLong totalCount = new PaddedAtomicLong(0);
+        private final PaddedAtomicLong totalSum = new PaddedAtomicLong(0);
+        private final PaddedAtomicLong maxValue = new PaddedAtomicLong(0);
+    }
+
+    // Values read from all stripes at one point, in nanoseconds; the shape JMX and the metrics dump report
+    public static final class Snapshot {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        public Snapshot(long count, double mean, long p50, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final boolean concurrentWriters;
+
+    // For histograms only recorded into by one thread at a time, e.g. under a book lock
+    public LatencyHistogram() {
+        this.stripes = new Stripe[] {new Stripe()};
+        this.stripeMask = 0;
+        this.concurrentWriters = false;
+    }
+
+    // For histograms any number of threads record into at once
+    public LatencyHistogram(int stripeCount) {
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two: " + stripeCount);
+        }
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripeCount - 1;
+        this.concurrentWriters = true;
+    }
+
+    public void record(long valueNanos) {
+        long value = Math.max(0, valueNanos);
+        int index = indexFor(value);
+        if (!concurrentWriters) {
+            Stripe stripe = stripes[0];
+            stripe.counts.setOpaque(index, stripe.counts.getPlain(index) + 1);
+            stripe.totalCount.setOpaque(stripe.totalCount.getPlain() + 1);
+            stripe.totalSum.setOpaque(stripe.totalSum.getPlain() + value);
+            if (value > stripe.maxValue.getPlain()) {
+                stripe.maxValue.setOpaque(value);
+            }
+            return;
+        }
+        Stripe stripe = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+        stripe.counts.incrementAndGet(index);
+        stripe.totalCount.incrementAndGet();
+        stripe.totalSum.addAndGet(value);
+        raiseMax(stripe.maxValue, value);
+    }
+
+    // Merges another histogram into this one (used to build engine-wide views from per-book histograms)
+    public void add(LatencyHistogram other) {
+        Stripe into = stripes[0];
+        for (Stripe stripe : other.stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long count = stripe.counts.get(i);
+                if (count != 0) {
+                    into.counts.addAndGet(i, count);
+                }
+            }
+            into.totalCount.addAndGet(stripe.totalCount.get());
+            into.totalSum.addAndGet(stripe.totalSum.get());
+            raiseMax(into.maxValue, stripe.maxValue.get());
+        }
+    }
+
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                stripe.counts.set(i, 0);
+            }
+            stripe.totalCount.set(0);
+            stripe.totalSum.set(0);
+            stripe.maxValue.set(0);
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.totalCount.get();
+        }
+        return count;
+    }
+
+    public long getMax() {
+        long max = 0;
+        for (Stripe stripe : stripes) {
+            max = Math.max(max, stripe.maxValue.get());
+        }
+        return max;
+    }
+
+    public double getMean() {
+        long count = 0;
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.totalCount.get();
+            sum += stripe.totalSum.get();
+        }
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        return valueAtPercentile(mergedCounts(), getCount(), getMax(), percentile);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = mergedCounts();
+        long count = 0;
+        for (long bucket : counts) {
+            count += bucket;
+        }
+        long max = getMax();
+        return new Snapshot(count, getMean(), valueAtPercentile(counts, count, max, 50.0),
+                valueAtPercentile(counts, count, max, 99.0), valueAtPercentile(counts, count, max, 99.9), max);
+    }
+
+    public String getSummary() {
+        Snapshot snapshot = snapshot();
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                snapshot.getCount(),
+                snapshot.getMean() / 1_000.0,
+                snapshot.getP50() / 1_000.0,
+                snapshot.getP99() / 1_000.0,
+                snapshot.getP999() / 1_000.0,
+                snapshot.getMax() / 1_000.0);
+    }
+
+    private long[] mergedCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (Stripe stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.counts.get(i);
+            }
+        }
+        return counts;
+    }
+
+    private static long valueAtPercentile(long[] counts, long count, long max, double percentile) {
+        if (count == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueFor(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static void raiseMax(AtomicLong maxValue, long value) {
+        long currentMax = maxValue.get();
+        while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    private static int indexFor(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueFor(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
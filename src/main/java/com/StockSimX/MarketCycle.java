@@ -0,0 +1,55 @@
+package com.StockSimX;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Phaser;
+
+// Tree of Phasers that lines all traders up at the start of every market cycle.
+// A CyclicBarrier (or one flat Phaser) makes every arrival contend on one lock/state word and
+// caps out at 65535 parties. Here traders register on leaf phasers of at most 256 parties;
+// only the last arrival of a leaf touches the root, which runs the cycle action once per phase.
+// Traders that finish deregister, so the remaining ones never wait for a party that left.
+public class MarketCycle {
+    private static final int MAX_PARTIES_PER_LEAF = 256;
+
+    private final Phaser root;
+    private final List<Phaser> leaves;
+    private int registeredTraders;
+
+    public MarketCycle(Runnable onCycleStart) {
+        this.root = new Phaser() {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties) {
+                if (registeredParties > 0) {
+                    onCycleStart.run();
+                }
+                return registeredParties == 0;
+            }
+        };
+        this.leaves = new ArrayList<>();
+    }
+
+    // Registers one trader and returns the leaf phaser it should arrive on; call before traders start
+    public Phaser register() {
+        if (registeredTraders % MAX_PARTIES_PER_LEAF == 0) {
+            leaves.add(new Phaser(root));
+        }
+        registeredTraders++;
+
+        Phaser leaf = leaves.get(leaves.size() - 1);
+        leaf.register();
+        return leaf;
+    }
+
+    public int getRegisteredTraders() {
+        return registeredTraders;
+    }
+
+    public int getLeafCount() {
+        return leaves.size();
+    }
+
+    public int getPhase() {
+        return root.getPhase();
+    }
+}
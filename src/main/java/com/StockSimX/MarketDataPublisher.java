@@ -0,0 +1,229 @@
+package com.StockSimX;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Top-of-book and L2 depth feed driven by the matching path.
+// After every book change the matching thread aggregates the top N levels, and only if they differ from
+// the last published view it creates one immutable MarketDataUpdate. Each subscriber owns one
+// latest-value slot per symbol: a newer update simply replaces an undelivered one (conflation), so a slow
+// subscriber sees the current market instead of building an unbounded backlog, and the matching thread
+// never waits for it.
+public class MarketDataPublisher {
+    public interface Subscriber {
+        void onUpdate(MarketDataUpdate update);
+    }
+
+    private final int depthLevels;
+    private final Map<String, SymbolFeed> feeds;
+    private final List<Subscription> subscriptions;
+    private final AtomicLong publishedUpdates;
+
+    public MarketDataPublisher(Collection<String> symbols, int depthLevels) {
+        this.depthLevels = depthLevels;
+        this.feeds = new HashMap<>();
+        int index = 0;
+        for (String symbol : symbols) {
+            feeds.put(symbol, new SymbolFeed(symbol, index++, depthLevels));
+        }
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.publishedUpdates = new AtomicLong(0);
+    }
+
+    // Called on the matching path after an order was accepted or matched
+    public void onBookUpdated(OrderBook orderBook) {
+        SymbolFeed feed = feeds.get(orderBook.getSymbol());
+        if (feed == null) {
+            return;
+        }
+        // Uncontended in SHARDED mode (one writer per book); orders concurrent publishers in CONTINUOUS mode
+        synchronized (feed) {
+            MarketDataUpdate update = feed.refresh(orderBook);
+            if (update == null) {
+                return;
+            }
+            publishedUpdates.incrementAndGet();
+            for (Subscription subscription : subscriptions) {
+                subscription.offer(feed.index, update);
+            }
+        }
+    }
+
+    // Latest published view of a book, a single volatile read; null before its first update
+    public MarketDataUpdate getLatest(String symbol) {
+        SymbolFeed feed = feeds.get(symbol);
+        return feed == null ? null : feed.latest;
+    }
+
+    // Delivers updates to the subscriber on its own virtual thread, starting with the current view of every book
+    public Subscription subscribe(String name, Subscriber subscriber) {
+        Subscription subscription = new Subscription(name, subscriber, feeds.size());
+        subscriptions.add(subscription);
+        for (SymbolFeed feed : feeds.values()) {
+            synchronized (feed) {
+                if (feed.latest != null) {
+                    subscription.offer(feed.index, feed.latest);
+                }
+            }
+        }
+        subscription.start();
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+        subscription.stop();
+    }
+
+    // Stops every delivery thread; the subscriptions stay listed for their statistics
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.stop();
+        }
+    }
+
+    public int getDepthLevels() {
+        return depthLevels;
+    }
+
+    public long getPublishedUpdates() {
+        return publishedUpdates.get();
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    // Per symbol publishing state; only touched while holding its monitor
+    private static final class SymbolFeed implements OrderBook.DepthVisitor {
+        private final String symbol;
+        private final int index;
+        private final long[] bidPrices;             // ticks
+        private final long[] bidSizes;
+        private final long[] askPrices;
+        private final long[] askSizes;
+        private int bidLevels;
+        private int askLevels;
+        private long sequence;
+        private volatile MarketDataUpdate latest;
+
+        SymbolFeed(String symbol, int index, int depthLevels) {
+            this.symbol = symbol;
+            this.index = index;
+            this.bidPrices = new long[depthLevels];
+            this.bidSizes = new long[depthLevels];
+            this.askPrices = new long[depthLevels];
+            this.askSizes = new long[depthLevels];
+        }
+
+        // Returns the new view, or null when the visible depth did not change
+        MarketDataUpdate refresh(OrderBook orderBook) {
+            bidLevels = 0;
+            askLevels = 0;
+            orderBook.captureDepth(bidPrices.length, this);
+
+            MarketDataUpdate previous = latest;
+            if (previous != null && previous.sameDepth(bidPrices, bidSizes, bidLevels, askPrices, askSizes, askLevels)) {
+                return null;
+            }
+            MarketDataUpdate update = new MarketDataUpdate(symbol, ++sequence, System.currentTimeMillis(), orderBook.getTickSize(),
+                    Arrays.copyOf(bidPrices, bidLevels), Arrays.copyOf(bidSizes, bidLevels),
+                    Arrays.copyOf(askPrices, askLevels), Arrays.copyOf(askSizes, askLevels));
+            latest = update;
+            return update;
+        }
+
+        @Override
+        public void onDepthLevel(OrderType side, long priceTicks, long quantity, int orderCount) {
+            if (side == OrderType.BUY) {
+                bidPrices[bidLevels] = priceTicks;
+                bidSizes[bidLevels++] = quantity;
+            } else {
+                askPrices[askLevels] = priceTicks;
+                askSizes[askLevels++] = quantity;
+            }
+        }
+    }
+
+    public static final class Subscription implements Runnable {
+        private final String name;
+        private final Subscriber subscriber;
+        private final List<AtomicReference<MarketDataUpdate>> pending;   // one conflating slot per symbol
+        private final LinkedBlockingQueue<AtomicReference<MarketDataUpdate>> ready;  // slots that became non-empty
+        private final AtomicLong deliveredUpdates;
+        private final AtomicLong conflatedUpdates;
+        private final Thread thread;
+        private volatile boolean running;
+
+        Subscription(String name, Subscriber subscriber, int symbols) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.pending = new ArrayList<>(symbols);
+            for (int i = 0; i < symbols; i++) {
+                pending.add(new AtomicReference<>());
+            }
+            this.ready = new LinkedBlockingQueue<>();
+            this.deliveredUpdates = new AtomicLong(0);
+            this.conflatedUpdates = new AtomicLong(0);
+            this.thread = Thread.ofVirtual().name("MarketData-" + name).unstarted(this);
+        }
+
+        void offer(int symbolIndex, MarketDataUpdate update) {
+            AtomicReference<MarketDataUpdate> slot = pending.get(symbolIndex);
+            if (slot.getAndSet(update) == null) {
+                ready.offer(slot);          // at most one queue entry per symbol at any time
+            } else {
+                conflatedUpdates.incrementAndGet();
+            }
+        }
+
+        void start() {
+            running = true;
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    MarketDataUpdate update = ready.take().getAndSet(null);
+                    if (update != null) {
+                        deliver(update);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void deliver(MarketDataUpdate update) {
+            try {
+                subscriber.onUpdate(update);
+            } catch (RuntimeException ex) {
+                EventLog.error("[ERROR] Market data subscriber %s failed: %s", name, ex.getMessage());
+            }
+            deliveredUpdates.incrementAndGet();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDeliveredUpdates() {
+            return deliveredUpdates.get();
+        }
+
+        // Updates replaced by a newer one before the subscriber got to them
+        public long getConflatedUpdates() {
+            return conflatedUpdates.get();
+        }
+    }
+}
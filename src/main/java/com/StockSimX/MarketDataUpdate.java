@@ -0,0 +1,108 @@
+package com.StockSimX;
+
+import java.util.Arrays;
+
+// Immutable L2 view of one book: up to N aggregated levels per side, best first.
+// Level 0 is the top of book. Prices are kept in ticks; the double accessors return NaN and zero sizes for an empty side.
+// Instances are shared between the publisher and every subscriber, so the arrays are never exposed.
+public final class MarketDataUpdate {
+    private final String symbol;
+    private final long sequence;            // per symbol, increases by one with every published change
+    private final long timestamp;
+    private final double tickSize;
+    private final long[] bidPrices;
+    private final long[] bidSizes;
+    private final long[] askPrices;
+    private final long[] askSizes;
+
+    MarketDataUpdate(String symbol, long sequence, long timestamp, double tickSize,
+                     long[] bidPrices, long[] bidSizes, long[] askPrices, long[] askSizes) {
+        this.symbol = symbol;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.tickSize = tickSize;
+        this.bidPrices = bidPrices;
+        this.bidSizes = bidSizes;
+        this.askPrices = askPrices;
+        this.askSizes = askSizes;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    public int getBidLevels() {
+        return bidPrices.length;
+    }
+
+    public int getAskLevels() {
+        return askPrices.length;
+    }
+
+    public long getBidPriceTicks(int level) {
+        return bidPrices[level];
+    }
+
+    public double getBidPrice(int level) {
+        return bidPrices[level] * tickSize;
+    }
+
+    public long getBidSize(int level) {
+        return bidSizes[level];
+    }
+
+    public long getAskPriceTicks(int level) {
+        return askPrices[level];
+    }
+
+    public double getAskPrice(int level) {
+        return askPrices[level] * tickSize;
+    }
+
+    public long getAskSize(int level) {
+        return askSizes[level];
+    }
+
+    public double getBestBid() {
+        return bidPrices.length == 0 ? Double.NaN : bidPrices[0] * tickSize;
+    }
+
+    public long getBestBidSize() {
+        return bidSizes.length == 0 ? 0 : bidSizes[0];
+    }
+
+    public double getBestAsk() {
+        return askPrices.length == 0 ? Double.NaN : askPrices[0] * tickSize;
+    }
+
+    public long getBestAskSize() {
+        return askSizes.length == 0 ? 0 : askSizes[0];
+    }
+
+    boolean sameDepth(long[] bidPrices, long[] bidSizes, int bidLevels,
+                      long[] askPrices, long[] askSizes, int askLevels) {
+        return Arrays.equals(this.bidPrices, 0, this.bidPrices.length, bidPrices, 0, bidLevels)
+                && Arrays.equals(this.bidSizes, 0, this.bidSizes.length, bidSizes, 0, bidLevels)
+                && Arrays.equals(this.askPrices, 0, this.askPrices.length, askPrices, 0, askLevels)
+                && Arrays.equals(this.askSizes, 0, this.askSizes.length, askSizes, 0, askLevels);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s #%d: %d @ $%.2f / %d @ $%.2f (%d x %d levels)",
+                symbol, sequence, getBestBidSize(), getBestBid(), getBestAskSize(), getBestAsk(),
+                bidPrices.length, askPrices.length);
+    }
+}
@@ -1,46 +1,383 @@
 package com.StockSimX;
 
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class MatchingEngine implements Runnable, OrderGateway {
+    // POLLING matches every book on a fixed interval, CONTINUOUS matches as soon as an order crosses,
+    // SHARDED hands each book to one dedicated matching thread fed through its own inbound queue
+    public enum Mode {
+        POLLING,
+        CONTINUOUS,
+        SHARDED
+    }
 
-public class MatchingEngine implements Runnable{
     private final Map<String, OrderBook> orderBooks;
     private final Map<String, Stock> stocks;
 
-    private final AtomicBoolean running;
-    private final AtomicLong totalMatches;
-    private final AtomicLong totalVolumeTraded;
+    private static final int INGRESS_RING_CAPACITY = 1 << 14;
+    private static final int PIPELINE_STAGE_CAPACITY = 1 << 12;
 
-    private final ExecutorService backgroundExecutor;
+    private final AtomicBoolean running;
+    // Added to by every shard (or trader) thread that executes trades: striped, and only summed when read
+    private final LongAdder totalMatches;
+    private final LongAdder totalVolumeTraded;
+    private final Mode mode;
+
+    // Time a trader thread spends handing an order or amendment to the engine; every trader records into it
+    private final LatencyHistogram gatewayLatency;
+
+    private final List<MatchingShard> shards;
+    private final Map<String, MatchingShard> shardBySymbol;
+
+    // POLLING runs as a pipeline: match -> settlement -> reporting. Books report themselves on dirtyBooks when
+    // they get work, and each cycle forks only those books' tasks onto a work-stealing pool without waiting for
+    // them. Their trades pass through bounded queues to the settlement stage (totals, journal, stock volumes)
+    // and on to the reporting stage (trade log, match reports); a full queue holds its producer back, and no
+    // stage ever waits on another's result. The ring, the per-book tasks and the pending array are allocated
+    // once, so the cost of a cycle follows the number of active books, not the size of the universe.
+    private final ForkJoinPool matchingPool;
+    private final RingBuffer<BookMatchTask> dirtyBooks;
+    private final BookMatchTask[] pendingTasks;     // dirty books not forked yet; engine thread only
+    private int pendingCount;
+    private final RingBuffer.BatchHandler<BookMatchTask> cycleCollector;
+    private final LongAdder matchedBooks;
+    private final PipelineStage<MatchBatch> settlement;
+    private final PipelineStage<MatchBatch> reporting;
 
     private final int matchingIntervalMs;
-    private final int maxWaitTimeMs;
 
     private final Object matchingSignal = new Object();
 
+    // Optional sink for executed trades; text formatting only happens inside the sink
+    private volatile TradeListener tradeLog;
+
+    // Optional write-ahead journal of accepted orders and executed trades (SHARDED only)
+    private volatile OrderJournal journal;
+
+    // Optional top-of-book / depth feed, refreshed whenever a book changes
+    private volatile MarketDataPublisher marketData;
+
+    // Optional per-trader positions, cash and P&L, settled from every trade
+    private volatile SettlementLedger settlementLedger;
+
+    public interface TradeListener {
+        void onTrade(Trade trade);
+    }
+
     public MatchingEngine(Map<String, OrderBook> orderBooks,  Map<String, Stock> stocks) {
+        this(orderBooks, stocks, Mode.POLLING);
+    }
+
+    public MatchingEngine(Map<String, OrderBook> orderBooks,  Map<String, Stock> stocks, Mode mode) {
+        this(orderBooks, stocks, mode, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MatchingEngine(Map<String, OrderBook> orderBooks,  Map<String, Stock> stocks, Mode mode, int shardCount) {
+        this(orderBooks, stocks, mode, shardCount, RingBuffer.WaitStrategy.PARK);
+    }
+
+    public MatchingEngine(Map<String, OrderBook> orderBooks,  Map<String, Stock> stocks, Mode mode,
+                          int shardCount, RingBuffer.WaitStrategy ingressWaitStrategy) {
         this.orderBooks = new HashMap<>(orderBooks);
         this.stocks = new HashMap<>(stocks);
         this.running = new AtomicBoolean(false);
-        this.totalMatches = new AtomicLong(0);
-        this.totalVolumeTraded = new AtomicLong(0);
+        this.totalMatches = new LongAdder();
+        this.totalVolumeTraded = new LongAdder();
+        this.mode = mode;
+        this.gatewayLatency = new LatencyHistogram(LatencyHistogram.DEFAULT_STRIPES);
+        this.shards = new ArrayList<>();
+        this.shardBySymbol = new HashMap<>();
+
+        if(mode == Mode.SHARDED){
+            createShards(Math.max(1, Math.min(shardCount, orderBooks.size())), ingressWaitStrategy);
+        }
 
-        this.backgroundExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r,"MatchingEngine-Background");
-            t.setDaemon(true);
-            return t;
-        });
+        if(mode == Mode.POLLING){
+            // shardCount sizes the work-stealing pool instead
+            this.matchingPool = new ForkJoinPool(Math.max(1, shardCount), pool -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("MatchingPool-" + t.getPoolIndex());
+                return t;
+            }, null, false);
+            // Power of two above the book count: a book is queued at most once until it is matched
+            this.dirtyBooks = new RingBuffer<>(Integer.highestOneBit(Math.max(1, orderBooks.size() - 1)) << 1,
+                    RingBuffer.WaitStrategy.YIELD);
+            this.pendingTasks = new BookMatchTask[orderBooks.size()];
+            this.cycleCollector = (task, sequence, endOfBatch) -> {
+                if(!task.pending){
+                    task.pending = true;
+                    pendingTasks[pendingCount++] = task;
+                }
+            };
+            this.matchedBooks = new LongAdder();
+            PipelineStage<MatchBatch> reportingStage = new PipelineStage<>("reporting", PIPELINE_STAGE_CAPACITY,
+                    RingBuffer.WaitStrategy.PARK, (batch, sequence, endOfBatch) -> report(batch.symbol(), batch.trades()));
+            this.reporting = reportingStage;
+            this.settlement = new PipelineStage<>("settlement", PIPELINE_STAGE_CAPACITY, RingBuffer.WaitStrategy.PARK,
+                    (batch, sequence, endOfBatch) -> {
+                        settle(batch.symbol(), batch.trades());
+                        reportingStage.publish(batch);
+                    });
+            for(OrderBook orderBook : this.orderBooks.values()){
+                orderBook.setWorkListener(new BookMatchTask(orderBook));
+            }
+        } else {
+            this.matchingPool = null;
+            this.dirtyBooks = null;
+            this.pendingTasks = null;
+            this.cycleCollector = null;
+            this.matchedBooks = null;
+            this.settlement = null;
+            this.reporting = null;
+        }
 
         this.matchingIntervalMs = 200;
-        this.maxWaitTimeMs = 1000;
 
-        System.out.println("[MATCHING ENGINE] Initialized for " + orderBooks.size() + " stocks");
+        EventLog.info("[MATCHING ENGINE] Initialized for " + orderBooks.size() + " stocks in " + mode + " mode");
+    }
+
+    // Spreads the symbols round-robin over the shards; a symbol never moves once assigned
+    private void createShards(int shardCount, RingBuffer.WaitStrategy waitStrategy) {
+        for(int i = 0; i < shardCount; i++){
+            shards.add(new MatchingShard(i, INGRESS_RING_CAPACITY, waitStrategy));
+        }
+
+        List<String> symbols = new ArrayList<>(orderBooks.keySet());
+        Collections.sort(symbols);
+        for(int i = 0; i < symbols.size(); i++){
+            MatchingShard shard = shards.get(i % shardCount);
+            shard.own(orderBooks.get(symbols.get(i)));
+            shardBySymbol.put(symbols.get(i), shard);
+        }
+    }
+
+    @Override
+    public boolean submit(Order order) {
+        long start = System.nanoTime();
+        boolean accepted = route(order);
+        gatewayLatency.record(System.nanoTime() - start);
+        return accepted;
+    }
+
+    @Override
+    public boolean amend(OrderAmendment amendment) {
+        long start = System.nanoTime();
+        boolean accepted = route(amendment);
+        gatewayLatency.record(System.nanoTime() - start);
+        return accepted;
+    }
+
+    private boolean route(Order order) {
+        if(mode == Mode.SHARDED){
+            MatchingShard shard = shardBySymbol.get(order.getSymbol());
+            if(shard == null) return false;
+
+            shard.enqueue(order);
+            return true;
+        }
+
+        OrderBook orderBook = orderBooks.get(order.getSymbol());
+        if(orderBook == null) return false;
+
+        orderBook.addOrders(order);
+        return true;
+    }
+
+    private boolean route(OrderAmendment amendment) {
+        if(mode == Mode.SHARDED){
+            MatchingShard shard = shardBySymbol.get(amendment.getSymbol());
+            if(shard == null) return false;
+
+            shard.enqueue(amendment);
+            return true;
+        }
+
+        OrderBook orderBook = orderBooks.get(amendment.getSymbol());
+        if(orderBook == null) return false;
+
+        return orderBook.amend(amendment);
+    }
+
+    // Rebuilds the books, stock volumes and totals from a previous run's journal; call before start()
+    public long recover(Path journalPath) throws IOException {
+        return recover(null, journalPath);
+    }
+
+    // Loads the latest checkpoint (if any) and replays only the journal records each book has not seen yet.
+    // Orders are re-inserted and matched silently, trades are taken from the journal as they were executed.
+    public long recover(CheckpointStore checkpoints, Path journalPath) throws IOException {
+        if(checkpoints != null){
+            loadCheckpoints(checkpoints);
+        }
+        if(journalPath == null){
+            return -1;
+        }
+
+        // Records every book has already seen are skipped without being decoded
+        long fromSequence = Long.MAX_VALUE;
+        for(OrderBook orderBook : orderBooks.values()){
+            fromSequence = Math.min(fromSequence, orderBook.getJournalSequence() + 1);
+        }
+
+        long[] replayed = new long[4];
+        long lastSequence = OrderJournal.replay(journalPath, fromSequence, new OrderJournal.ReplayListener() {
+            @Override
+            public void onOrder(long sequence, Order order) {
+                OrderBook orderBook = orderBooks.get(order.getSymbol());
+                if(orderBook == null) return;
+                if(sequence <= orderBook.getJournalSequence()){
+                    replayed[2]++;
+                    return;
+                }
+                Order.reserveOrderIds(order.getOrderId());
+                if(Double.compare(order.getTickSize(), orderBook.getTickSize()) != 0){
+                    // Journaled on another tick grid, e.g. before the symbol's tick size changed
+                    order = new Order(order.getOrderId(), order.getTraderId(), order.getSymbol(), order.getType(), order.getQuantity(),
+                            Ticks.fromPrice(order.getPrice(), orderBook.getTickSize(), order.getType()),
+                            orderBook.getTickSize(), order.getTimestamp());
+                }
+                try {
+                    orderBook.restoreOrder(order);
+                    replayed[0]++;
+                } catch (RuntimeException ex){
+                    EventLog.warn("[RECOVERY] Skipped journaled order %d: %s", sequence, ex.getMessage());
+                }
+                orderBook.setJournalSequence(sequence);
+            }
+
+            @Override
+            public void onAmendment(long sequence, OrderAmendment amendment) {
+                OrderBook orderBook = orderBooks.get(amendment.getSymbol());
+                if(orderBook == null) return;
+                if(sequence <= orderBook.getJournalSequence()){
+                    replayed[2]++;
+                    return;
+                }
+                orderBook.restoreAmendment(amendment);
+                replayed[3]++;
+                orderBook.setJournalSequence(sequence);
+            }
+
+            @Override
+            public void onTrade(long sequence, Trade trade) {
+                OrderBook orderBook = orderBooks.get(trade.symbol());
+                if(orderBook != null){
+                    if(sequence <= orderBook.getJournalSequence()){
+                        replayed[2]++;
+                        return;
+                    }
+                    orderBook.setJournalSequence(sequence);
+                }
+                totalMatches.increment();
+                totalVolumeTraded.add(trade.quantity());
+                Stock stock = stocks.get(trade.symbol());
+                if(stock != null){
+                    stock.addVolume(trade);
+                }
+                replayed[1]++;
+            }
+        });
+
+        for(OrderBook orderBook : orderBooks.values()){
+            orderBook.resetLatencies();
+            publishQuote(orderBook);
+        }
+        EventLog.info("[RECOVERY] Replayed %d orders, %d amendments and %d trades from %s after sequence %d, %d already checkpointed (last sequence %d)",
+                replayed[0], replayed[3], replayed[1], journalPath, fromSequence - 1, replayed[2], lastSequence);
+        return lastSequence;
+    }
+
+    private void loadCheckpoints(CheckpointStore checkpoints) throws IOException {
+        long start = System.nanoTime();
+        List<List<BookCheckpoint>> rounds = checkpoints.load();
+        int restoredOrders = 0;
+        Map<String, Stock.Snapshot> restoredStocks = new HashMap<>();
+        for(List<BookCheckpoint> round : rounds){
+            for(BookCheckpoint checkpoint : round){
+                OrderBook orderBook = orderBooks.get(checkpoint.getSymbol());
+                if(orderBook == null) continue;
+                checkpoint.applyTo(orderBook, stocks.get(checkpoint.getSymbol()));
+                restoredStocks.put(checkpoint.getSymbol(), checkpoint.getStock());
+                restoredOrders += checkpoint.getOrderCount();
+            }
+        }
+        for(Stock.Snapshot snapshot : restoredStocks.values()){
+            totalMatches.add(snapshot.tradeCount());
+            totalVolumeTraded.add(snapshot.totalVolume());
+        }
+        EventLog.info("[RECOVERY] Loaded %d checkpoint files (%d orders) from %s in %.1f ms",
+                rounds.size(), restoredOrders, checkpoints.getDirectory(), (System.nanoTime() - start) / 1e6);
+    }
+
+    // Captures every book on its shard thread, between two batches, then writes the round in the background.
+    // Only SHARDED mode has single-writer books whose journal sequence and stock state are consistent.
+    public synchronized CompletableFuture<Path> checkpoint(CheckpointStore checkpoints, boolean full) {
+        if(mode != Mode.SHARDED){
+            throw new IllegalStateException("Checkpoints need SHARDED mode, engine runs in " + mode);
+        }
+        CheckpointStore.Round round = checkpoints.begin(full);
+
+        List<CompletableFuture<List<BookCheckpoint>>> captures = new ArrayList<>();
+        for(MatchingShard shard : shards){
+            Supplier<List<BookCheckpoint>> capture = () -> {
+                List<BookCheckpoint> captured = new ArrayList<>();
+                for(OrderBook orderBook : shard.getOwnedBooks()){
+                    captured.add(BookCheckpoint.capture(orderBook, stocks.get(orderBook.getSymbol()), round.full()));
+                }
+                return captured;
+            };
+            // Once the engine is stopped the shard threads are gone and the books are quiescent
+            captures.add(running.get() ? shard.execute(capture) : CompletableFuture.completedFuture(capture.get()));
+        }
+
+        return CompletableFuture.allOf(captures.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> {
+                    List<BookCheckpoint> books = new ArrayList<>();
+                    for(CompletableFuture<List<BookCheckpoint>> capture : captures){
+                        books.addAll(capture.join());
+                    }
+                    return checkpoints.write(round, books);
+                });
+    }
+    // Runs a read of one book where it may see the live levels: on the owning shard thread while SHARDED
+    // matching runs, otherwise here under the book's own lock. Single-writer books take no lock, so callers
+    // from other threads must come through this instead of querying the book directly.
+    public <T> CompletableFuture<T> queryBook(String symbol, Function<OrderBook, T> query) {
+        OrderBook orderBook = orderBooks.get(symbol);
+        if(orderBook == null){
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown symbol " + symbol));
+        }
+        MatchingShard shard = shardBySymbol.get(symbol);
+        if(shard != null && running.get()){
+            return shard.execute(() -> query.apply(orderBook));
+        }
+        return CompletableFuture.completedFuture(query.apply(orderBook));
     }
+
     public void start() {
         if(running.compareAndSet(false,true)){
-            System.out.println("[MATCHING ENGINE] Starting order matching");
+            EventLog.info("[MATCHING ENGINE] Starting order matching");
+
+            if(mode != Mode.POLLING){
+                for(OrderBook orderBook : orderBooks.values()){
+                    orderBook.setMatchListener(bookListener);
+                }
+            }
+            for(MatchingShard shard : shards){
+                shard.start();
+            }
+            if(mode == Mode.POLLING){
+                settlement.start();
+                reporting.start();
+            }
 
             synchronized (matchingSignal){
                 matchingSignal.notifyAll();
@@ -50,134 +387,272 @@ public class MatchingEngine implements Runnable{
 
     public void stop() {
         if(running.compareAndSet(true,false)){
-            System.out.println("[MATCHING ENGINE] Stopping order matching");
+            EventLog.info("[MATCHING ENGINE] Stopping order matching");
+
+            // Shards drain their inbound queues before the match listeners are removed
+            for(MatchingShard shard : shards){
+                shard.stop();
+            }
+            for(OrderBook orderBook : orderBooks.values()){
+                orderBook.setMatchListener(null);
+            }
 
             synchronized (matchingSignal) {
                 matchingSignal.notifyAll();
             }
-            backgroundExecutor.shutdown();
-            try {
-                if(!backgroundExecutor.awaitTermination(5, TimeUnit.SECONDS)){
-                    backgroundExecutor.shutdown();
+            if(matchingPool != null){
+                // Book tasks already forked finish and hand their trades on; then the stages drain in order
+                matchingPool.shutdown();
+                try {
+                    if(!matchingPool.awaitTermination(5, TimeUnit.SECONDS)){
+                        matchingPool.shutdownNow();
+                    }
+                } catch (InterruptedException ex){
+                    Thread.currentThread().interrupt();
                 }
-            } catch (InterruptedException ex){
-                Thread.currentThread().interrupt();
+                settlement.stop();
+                reporting.stop();
             }
         }
     }
 
     @Override
     public void run() {
-        System.out.println("[MATCHING ENGINE] Engine thread started");
+        EventLog.info("[MATCHING ENGINE] Engine thread started");
 
         try {
             waitForStart();
 
+            if(mode != Mode.POLLING){
+                // Books match inline on order entry (or on their shard), so this thread only has to wait for stop()
+                waitForStop();
+                return;
+            }
+
             while(running.get()){
                 try {
-                    processAllOrderBooks();
+                    runMatchingCycle();
                     Thread.sleep(matchingIntervalMs);
                 } catch (InterruptedException ex){
                     Thread.currentThread().interrupt();
-                    System.out.println("[MATCHING ENGINE] Engine interrupted");
+                    EventLog.info("[MATCHING ENGINE] Engine interrupted");
                     break;
                 }
             }
         } catch (InterruptedException ex){
-            System.out.printf("[ERROR] Matching engine error: %s%n", ex.getMessage());
+            EventLog.error("[ERROR] Matching engine error: %s", ex.getMessage());
         } finally {
-            System.out.println("[MATCHING ENGINE] Engine thread stopped");
+            EventLog.info("[MATCHING ENGINE] Engine thread stopped");
         }
     }
 
     private void waitForStart() throws InterruptedException {
         synchronized (matchingSignal){
             while (!running.get()){
-                System.out.println("[MATCHING ENGINE] Waiting for start signal...");
+                EventLog.info("[MATCHING ENGINE] Waiting for start signal...");
+                matchingSignal.wait();
+            }
+        }
+        EventLog.info("[MATCHING ENGINE] Start signal received, beginning matching");
+    }
+
+    private void waitForStop() throws InterruptedException {
+        synchronized (matchingSignal){
+            while (running.get()){
                 matchingSignal.wait();
             }
         }
-        System.out.println("[MATCHING ENGINE] Start signal received, beginning matching");
     }
 
-    private void processAllOrderBooks() {
-        List<CompletableFuture<Void>> matchingTasks = new ArrayList<>();
+    private final OrderBook.MatchListener bookListener = new OrderBook.MatchListener() {
+        @Override
+        public void onMatches(String symbol, List<Trade> trades) {
+            if(EventLog.isEnabled(EventLog.Level.INFO)){
+                EventLog.info("[MATCHING] %s: Found %d matches", symbol, trades.size());
+            }
+            handleMatches(symbol, trades);
+        }
 
-        for(Map.Entry<String,OrderBook> entry : orderBooks.entrySet()) {
-            String symbol = entry.getKey();
-            OrderBook orderBook = entry.getValue();
+        @Override
+        public void onBookUpdated(OrderBook orderBook) {
+            publishQuote(orderBook);
+        }
+    };
 
-            CompletableFuture<Void> matchingTask = CompletableFuture
-                    .supplyAsync(() -> processOrderBook(symbol,orderBook),backgroundExecutor)
-                    .thenAccept(matches -> handleMatches(symbol,matches))
-                    .exceptionally(throwable -> {
-                        System.out.printf("[ERROR] Matching failed for %s: %s%n",
-                                symbol, throwable.getMessage());
-                        return null;
-                    });
-            matchingTasks.add(matchingTask);
+    private void publishQuote(OrderBook orderBook) {
+        Stock stock = stocks.get(orderBook.getSymbol());
+        if(stock != null){
+            stock.updateQuote(orderBook.getBestBidTicks(), orderBook.getBestAskTicks());
+        }
+        MarketDataPublisher feed = marketData;
+        if(feed != null){
+            feed.onBookUpdated(orderBook);
         }
+    }
 
-        CompletableFuture<Void> allMatches = CompletableFuture.allOf(
-                matchingTasks.toArray(new CompletableFuture[0]));
+    // One POLLING cycle: takes the books that got work since their last match and forks their tasks onto the
+    // pool, where idle workers steal from busy ones, without waiting for any of them. A book whose task from an
+    // earlier cycle is still finishing stays pending until the next cycle. Returns how many books were forked.
+    // Driven by the engine thread, or by one caller of its own when the engine thread is not running.
+    public int runMatchingCycle() {
+        if(mode != Mode.POLLING){
+            throw new IllegalStateException("Matching cycles only run in POLLING mode, not " + mode);
+        }
+        dirtyBooks.drain(cycleCollector, pendingTasks.length);
+
+        int forked = 0;
+        int stillPending = 0;
+        for(int i = 0; i < pendingCount; i++){
+            BookMatchTask task = pendingTasks[i];
+            pendingTasks[i] = null;
+            if(task.forked && !task.isDone()){
+                pendingTasks[stillPending++] = task;
+                continue;
+            }
+            task.pending = false;
+            task.forked = true;
+            task.reinitialize();
+            try {
+                matchingPool.execute(task);
+            } catch (RejectedExecutionException ex){
+                // Stopping: this book and the ones after it stay pending, unmatched as orders arriving after
+                // stop() are, and the next call finds them where it expects them
+                task.pending = true;
+                task.forked = false;
+                pendingTasks[stillPending++] = task;
+                for(int j = i + 1; j < pendingCount; j++){
+                    BookMatchTask rest = pendingTasks[j];
+                    pendingTasks[j] = null;
+                    pendingTasks[stillPending++] = rest;
+                }
+                break;
+            }
+            forked++;
+        }
+        pendingCount = stillPending;
+        return forked;
+    }
 
-        try{
-            allMatches.get(maxWaitTimeMs,TimeUnit.MILLISECONDS);
-        } catch (TimeoutException e){
-            System.out.println("[WARNING] Matching cycle took longer than expected");
-        } catch (Exception e) {
-            System.out.printf("[ERROR] Error in matching cycle: %s%n", e.getMessage());
+    // Waits until every forked book task has finished and the settlement and reporting queues are empty, e.g.
+    // before reading totals after a burst of cycles; false on timeout
+    public boolean awaitPipelineIdle(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while(!matchingPool.isQuiescent() || settlement.getQueueDepth() > 0 || reporting.getQueueDepth() > 0){
+            if(System.nanoTime() - deadline > 0){
+                return false;
+            }
+            matchingPool.awaitQuiescence(1, TimeUnit.MILLISECONDS);
+            Thread.yield();
         }
+        return true;
     }
 
-    private List<String> processOrderBook(String symbol, OrderBook orderBook){
-        if(!orderBook.waitForOrders(100)){
-            return Collections.emptyList();
+    // The trades of one matching pass over one book, as they travel down the pipeline
+    private record MatchBatch(String symbol, List<Trade> trades) {
+    }
+
+    // One book's matching work, reused on every cycle that finds the book dirty. It is also the book's
+    // WorkListener, so marking the book dirty queues this task without any lookup. Serializable only because
+    // ForkJoinTask is; a task is never written out.
+    private final class BookMatchTask extends RecursiveAction implements OrderBook.WorkListener {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient OrderBook orderBook;
+        private boolean pending;        // in pendingTasks; engine thread only
+        private boolean forked;         // forked at least once, so isDone() tells whether it is still running
+
+        BookMatchTask(OrderBook orderBook) {
+            this.orderBook = orderBook;
         }
 
-        List<String> matches = orderBook.matchOrders();
+        @Override
+        public void onWorkPending(OrderBook book) {
+            dirtyBooks.publish(this);
+        }
 
-        if(!matches.isEmpty()){
-            System.out.printf("[MATCHING] %s: Found %d matches%n", symbol, matches.size());
+        @Override
+        protected void compute() {
+            String symbol = orderBook.getSymbol();
+            try {
+                List<Trade> trades = processOrderBook(symbol, orderBook);
+                matchedBooks.increment();
+                if(!trades.isEmpty()){
+                    // Waits here while settlement is full: backpressure reaches the matching stage
+                    settlement.publish(new MatchBatch(symbol, trades));
+                }
+            } catch (RuntimeException ex){
+                EventLog.error("[ERROR] Matching failed for %s: %s", symbol, ex.getMessage());
+            }
         }
-        return matches;
     }
 
-    private void handleMatches(String symbol, List<String> matches){
-        if(matches.isEmpty()) return ;
+    private List<Trade> processOrderBook(String symbol, OrderBook orderBook){
+        List<Trade> trades = orderBook.matchOrders();
+        publishQuote(orderBook);
 
-        totalMatches.addAndGet(matches.size());
+        if(!trades.isEmpty() && EventLog.isEnabled(EventLog.Level.INFO)){
+            EventLog.info("[MATCHING] %s: Found %d matches", symbol, trades.size());
+        }
+        return trades;
+    }
 
-        for(String match : matches){
-            System.out.printf("[TRADE COMPLETE] %s%n", match);
+    // CONTINUOUS and SHARDED settle and report on the matching thread itself
+    private void handleMatches(String symbol, List<Trade> trades){
+        if(trades.isEmpty()) return ;
 
-            long volume = extractVolumeFromMatch(match);
-            totalVolumeTraded.addAndGet(volume);
+        settle(symbol, trades);
+        report(symbol, trades);
+    }
 
-            Stock stock = stocks.get(symbol);
+    // Engine totals, the journal, the stock's volume, price, windows and bars, and both traders' portfolios
+    private void settle(String symbol, List<Trade> trades){
+        totalMatches.add(trades.size());
+
+        Stock stock = stocks.get(symbol);
+        OrderJournal orderJournal = journal;
+        SettlementLedger ledger = settlementLedger;
+        for(Trade trade : trades){
+            totalVolumeTraded.add(trade.quantity());
+
+            if(orderJournal != null){
+                long sequence = orderJournal.append(trade);
+                OrderBook orderBook = orderBooks.get(symbol);
+                if(orderBook != null){
+                    orderBook.setJournalSequence(sequence);
+                }
+            }
             if(stock != null){
-                stock.addVolume(volume);
+                stock.addVolume(trade);
+            }
+            if(ledger != null){
+                ledger.settle(trade);
             }
         }
-
-        CompletableFuture.runAsync(() -> logMatchDetails(symbol,matches),backgroundExecutor);
     }
-    private long extractVolumeFromMatch(String match) {
-        try {
-            String[] parts = match.split(" ");
-            for(int i=0;i < parts.length-1;i++){
-                if("bought".equals(parts[i]) && "shares".equals(parts[i+2])){
-                    return Long.parseLong(parts[i+1]);
-                }
+
+    private void report(String symbol, List<Trade> trades){
+        TradeListener log = tradeLog;
+        if(log != null){
+            for(Trade trade : trades){
+                log.onTrade(trade);
             }
-        } catch (Exception e) {
         }
-        return 100;
+        if(EventLog.isEnabled(EventLog.Level.INFO)){
+            EventLog.info("[MATCH REPORT] %s: Processed %d matches", symbol, trades.size());
+        }
     }
 
-    private void logMatchDetails(String symbol, List<String> matches){
-        System.out.printf("[MATCH REPORT] %s: Processed %d matches%n",
-                symbol, matches.size());
+    // POLLING pipeline stages in order, for monitoring; empty in the other modes
+    public List<PipelineStage.Snapshot> getPipelineStages() {
+        if(mode != Mode.POLLING){
+            return List.of();
+        }
+        return List.of(
+                new PipelineStage.Snapshot("match", dirtyBooks.getDepth(), matchedBooks.sum(),
+                        dirtyBooks.getProducerWaits()),
+                settlement.snapshot(),
+                reporting.snapshot());
     }
 
     public void requestMatching() {
@@ -188,7 +663,144 @@ public class MatchingEngine implements Runnable{
 
     public String getStatistics() {
         return String.format("MatchingEngine Stats: %d total matches, %d shares traded",
-                totalMatches.get(), totalVolumeTraded.get());
+                totalMatches.sum(), totalVolumeTraded.sum());
+    }
+
+    // Order-to-fill latency across all books
+    public LatencyHistogram getFillLatency() {
+        return combined(OrderBook::getFillLatency);
+    }
+
+    public LatencyHistogram getIngressLatency() {
+        return combined(OrderBook::getIngressLatency);
+    }
+
+    public LatencyHistogram getInsertToFillLatency() {
+        return combined(OrderBook::getInsertToFillLatency);
+    }
+
+    public LatencyHistogram getMatchLatency() {
+        return combined(OrderBook::getMatchLatency);
+    }
+
+    public LatencyHistogram getLockWaitLatency() {
+        return combined(OrderBook::getLockWaitLatency);
+    }
+
+    private LatencyHistogram combined(Function<OrderBook, LatencyHistogram> histogram) {
+        LatencyHistogram combined = new LatencyHistogram();
+        for(OrderBook orderBook : orderBooks.values()){
+            combined.add(histogram.apply(orderBook));
+        }
+        return combined;
+    }
+
+    public LatencyHistogram getGatewayLatency() {
+        return gatewayLatency;
+    }
+
+    // Resting-order entries the books handed out, and how many of those were new allocations rather than reuses
+    public long getEntryAcquisitions() {
+        long acquisitions = 0;
+        for(OrderBook orderBook : orderBooks.values()){
+            acquisitions += orderBook.getEntryAcquisitions();
+        }
+        return acquisitions;
+    }
+
+    public long getEntryAllocations() {
+        long allocations = 0;
+        for(OrderBook orderBook : orderBooks.values()){
+            allocations += orderBook.getEntryAllocations();
+        }
+        return allocations;
+    }
+
+    // Bytes allocated by the shard threads (SHARDED mode only; -1 when unavailable)
+    public long getMatchingAllocatedBytes() {
+        long bytes = shards.isEmpty() ? -1 : 0;
+        for(MatchingShard shard : shards){
+            long shardBytes = shard.getAllocatedBytes();
+            if(shardBytes < 0){
+                return -1;
+            }
+            bytes += shardBytes;
+        }
+        return bytes;
+    }
+
+    // Matching-thread garbage per executed trade, -1 when the allocation is not tracked
+    public double getAllocatedBytesPerTrade() {
+        long bytes = getMatchingAllocatedBytes();
+        long matches = totalMatches.sum();
+        return bytes < 0 ? -1 : (matches == 0 ? 0 : (double) bytes / matches);
+    }
+
+    public void setTradeLog(TradeListener tradeLog) {
+        this.tradeLog = tradeLog;
+    }
+
+    // Must be called before start(). Only SHARDED journals requests in the order their books apply them: each
+    // shard thread appends and applies one request at a time. In CONTINUOUS mode trader threads race between
+    // appending and taking the book lock, and POLLING matches in batches that a replay cannot reproduce, so
+    // recovery would rebuild different books.
+    public void setJournal(OrderJournal journal) {
+        if(journal != null && mode != Mode.SHARDED){
+            throw new IllegalStateException("The journal needs SHARDED matching, not " + mode);
+        }
+        this.journal = journal;
+        for(MatchingShard shard : shards){
+            shard.setJournal(journal);
+        }
+    }
+
+    public OrderJournal getJournal() {
+        return journal;
+    }
+
+    public void setMarketData(MarketDataPublisher marketData) {
+        this.marketData = marketData;
+    }
+
+    public MarketDataPublisher getMarketData() {
+        return marketData;
+    }
+
+    public void setSettlementLedger(SettlementLedger settlementLedger) {
+        this.settlementLedger = settlementLedger;
+        for(OrderBook orderBook : orderBooks.values()){
+            orderBook.setQuantityListener(settlementLedger == null ? null : settlementLedger::onQuantityRemoved);
+        }
+    }
+
+    public SettlementLedger getSettlementLedger() {
+        return settlementLedger;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // Orders waiting in the shard ingress rings
+    public long getIngressDepth() {
+        long depth = 0;
+        for(MatchingShard shard : shards){
+            depth += shard.getQueueDepth();
+        }
+        return depth;
+    }
+
+    // How often a producer found its shard's ring full and had to wait
+    public long getIngressProducerWaits() {
+        long waits = 0;
+        for(MatchingShard shard : shards){
+            waits += shard.getProducerWaits();
+        }
+        return waits;
     }
 
     public boolean isRunning() {
@@ -196,10 +808,10 @@ public class MatchingEngine implements Runnable{
     }
 
     public long getTotalMatches(){
-        return totalMatches.get();
+        return totalMatches.sum();
     }
 
     public long getTotalVolumeTraded() {
-        return totalVolumeTraded.get();
+        return totalVolumeTraded.sum();
     }
 }
@@ -0,0 +1,174 @@
+package com.StockSimX;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+// One matching thread that exclusively owns a subset of the order books.
+// Orders and amendments reach it through its own inbound ring buffer, so its books are only ever touched by this thread
+// and run without their ReentrantLock. Keeping a symbol on one long-lived thread also keeps the
+// book's arrays hot in that core's cache.
+class MatchingShard implements Runnable, RingBuffer.BatchHandler<OrderRequest> {
+    private static final int MAX_BATCH = 256;
+
+    private final int shardId;
+    private final Map<String, OrderBook> ownedBooks;
+    private final RingBuffer<OrderRequest> inbound;
+    private final Thread thread;
+    private final Queue<Runnable> tasks;       // work that must run on the shard thread, between batches
+    private OrderJournal journal;
+
+    private volatile boolean running;
+    private long processedOrders;
+    private long batches;
+    private volatile long finalAllocatedBytes = -1;     // taken by the thread itself just before it exits
+
+    MatchingShard(int shardId, int ringCapacity, RingBuffer.WaitStrategy waitStrategy) {
+        this.shardId = shardId;
+        this.ownedBooks = new HashMap<>();
+        this.inbound = new RingBuffer<>(ringCapacity, waitStrategy);
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.thread = new Thread(this, "MatchingShard-" + shardId);
+        this.thread.setDaemon(true);
+    }
+
+    // Must be called before start(): ownership is fixed for the lifetime of the shard
+    void own(OrderBook orderBook) {
+        orderBook.setSingleWriter(true);
+        ownedBooks.put(orderBook.getSymbol(), orderBook);
+    }
+
+    // Must be called before start(): orders are journaled on this thread, in the order they reach the books
+    void setJournal(OrderJournal journal) {
+        this.journal = journal;
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        inbound.wakeConsumer();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // The thread has exited, so anything still queued can safely run here
+        runTasks();
+    }
+
+    void enqueue(OrderRequest request) {
+        inbound.publish(request);
+    }
+
+    // Runs the task on the shard thread, where it may read the owned books without locking
+    <T> CompletableFuture<T> execute(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tasks.add(() -> {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        inbound.wakeConsumer();
+        return result;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        EventLog.info("[MATCHING SHARD] Shard %d started with %d books (%s wait)",
+                shardId, ownedBooks.size(), inbound.getWaitStrategy());
+
+        int idleCount = 0;
+        while (running) {
+            if (!tasks.isEmpty()) {
+                runTasks();
+            }
+            if (inbound.drain(this, MAX_BATCH) > 0) {
+                batches++;
+                idleCount = 0;
+            } else {
+                inbound.awaitEvents(idleCount++);
+            }
+        }
+
+        // Drain whatever was accepted before stop so no order is silently lost
+        while (inbound.drain(this, MAX_BATCH) > 0) {
+            batches++;
+        }
+        finalAllocatedBytes = allocatedBytes(Thread.currentThread());
+        EventLog.info("[MATCHING SHARD] Shard %d stopped after %d orders in %d batches, %d bytes allocated",
+                shardId, processedOrders, batches, finalAllocatedBytes);
+    }
+
+    // Heap allocated by a thread over its lifetime, -1 where the JVM does not track it
+    private static long allocatedBytes(Thread thread) {
+        return ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled() ? threads.getThreadAllocatedBytes(thread.threadId()) : -1;
+    }
+
+    @Override
+    public void onEvent(OrderRequest request, long sequence, boolean endOfBatch) {
+        OrderBook orderBook = ownedBooks.get(request.getSymbol());
+        if (request instanceof OrderAmendment amendment) {
+            if (journal != null) {
+                orderBook.setJournalSequence(journal.append(amendment));
+            }
+            orderBook.amend(amendment);
+            processedOrders++;
+            return;
+        }
+
+        Order order = (Order) request;
+        if (journal != null) {
+            orderBook.setJournalSequence(journal.append(order));
+        }
+        try {
+            orderBook.addOrders(order);
+        } catch (RuntimeException ex) {
+            EventLog.error("[ERROR] Shard %d rejected order: %s", shardId, ex.getMessage());
+        }
+        processedOrders++;
+    }
+
+    Collection<OrderBook> getOwnedBooks() {
+        return ownedBooks.values();
+    }
+
+    int getShardId() {
+        return shardId;
+    }
+
+    long getQueueDepth() {
+        return inbound.getDepth();
+    }
+
+    long getProducerWaits() {
+        return inbound.getProducerWaits();
+    }
+
+    long getProcessedOrders() {
+        return processedOrders;
+    }
+
+    // Garbage produced on the matching path: everything this shard's thread has allocated so far
+    long getAllocatedBytes() {
+        return thread.isAlive() ? allocatedBytes(thread) : finalAllocatedBytes;
+    }
+}
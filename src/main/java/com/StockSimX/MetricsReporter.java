@@ -0,0 +1,324 @@
+package com.StockSimX;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Publishes the engine's and every book's counters and latency histograms as MXBeans on the platform MBean
+// server, and on each dump() appends the same values as one JSON line to an optional file. Everything is read
+// from counters the matching path keeps anyway, except the depth totals: those walk the book's levels, so they
+// run on the book's shard (or under a shared book's lock) and give up after a short wait.
+public class MetricsReporter {
+    private static final String DOMAIN = "com.StockSimX";
+
+    private final MatchingEngine engine;
+    private final List<BookMetrics> books;
+    private final List<ObjectName> registered;
+    private final BufferedWriter dump;
+
+    public MetricsReporter(MatchingEngine engine, Collection<OrderBook> orderBooks, Path dumpPath) throws IOException {
+        this.engine = engine;
+        this.books = new ArrayList<>();
+        for (OrderBook orderBook : orderBooks) {
+            books.add(new BookMetrics(engine, orderBook));
+        }
+        this.registered = new ArrayList<>();
+        this.dump = dumpPath == null ? null : Files.newBufferedWriter(dumpPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        register();
+    }
+
+    private void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, new EngineMetrics(), new ObjectName(DOMAIN, "type", "MatchingEngine"));
+            for (BookMetrics book : books) {
+                register(server, book, ObjectName.getInstance(DOMAIN + ":type=OrderBook,symbol="
+                        + ObjectName.quote(book.getSymbol())));
+            }
+        } catch (JMException ex) {
+            // Metrics stay available through dump(); the simulation itself does not depend on JMX
+            EventLog.warn("[METRICS] JMX registration failed: %s", ex.getMessage());
+        }
+    }
+
+    private void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    // One line per call: {"time":...,"engine":{...},"books":[{...},...]}
+    public void dump() {
+        if (dump == null) {
+            return;
+        }
+        EngineMetrics metrics = new EngineMetrics();
+        StringBuilder line = new StringBuilder(512 + 512 * books.size());
+        line.append("{\"time\":").append(System.currentTimeMillis()).append(",\"engine\":{");
+        field(line, "mode", metrics.getMode()).append(',');
+        field(line, "totalMatches", metrics.getTotalMatches()).append(',');
+        field(line, "totalVolumeTraded", metrics.getTotalVolumeTraded()).append(',');
+        field(line, "ingressQueueDepth", metrics.getIngressQueueDepth()).append(',');
+        field(line, "ingressProducerWaits", metrics.getIngressProducerWaits()).append(',');
+        field(line, "journalQueueDepth", metrics.getJournalQueueDepth()).append(',');
+        field(line, "matchingAllocatedBytes", metrics.getMatchingAllocatedBytes()).append(',');
+        line.append("\"allocatedBytesPerTrade\":")
+                .append(String.format(Locale.ROOT, "%.1f", metrics.getAllocatedBytesPerTrade())).append(',');
+        field(line, "droppedLogEvents", metrics.getDroppedLogEvents()).append(',');
+        field(line, "gatewayLatency", metrics.getGatewayLatency()).append(',');
+        field(line, "orderToFillLatency", metrics.getOrderToFillLatency()).append(",\"pipeline\":[");
+        List<PipelineStage.Snapshot> stages = metrics.getPipelineStages();
+        for (int i = 0; i < stages.size(); i++) {
+            PipelineStage.Snapshot stage = stages.get(i);
+            line.append(i == 0 ? "{" : ",{");
+            field(line, "name", stage.getName()).append(',');
+            field(line, "queueDepth", stage.getQueueDepth()).append(',');
+            field(line, "processed", stage.getProcessed()).append(',');
+            field(line, "producerWaits", stage.getProducerWaits());
+            line.append('}');
+        }
+        line.append("]},\"books\":[");
+        for (int i = 0; i < books.size(); i++) {
+            BookMetrics book = books.get(i);
+            line.append(i == 0 ? "{" : ",{");
+            field(line, "symbol", book.getSymbol()).append(',');
+            field(line, "buyLevels", book.getBuyLevels()).append(',');
+            field(line, "sellLevels", book.getSellLevels()).append(',');
+            field(line, "buyQuantity", book.getBuyQuantity()).append(',');
+            field(line, "sellQuantity", book.getSellQuantity()).append(',');
+            field(line, "parkedStops", book.getParkedStops()).append(',');
+            field(line, "fills", book.getFills()).append(',');
+            field(line, "lockAcquisitions", book.getLockAcquisitions()).append(',');
+            field(line, "entryAllocations", book.getEntryAllocations()).append(',');
+            field(line, "ingressLatency", book.getIngressLatency()).append(',');
+            field(line, "insertToFillLatency", book.getInsertToFillLatency()).append(',');
+            field(line, "orderToFillLatency", book.getOrderToFillLatency()).append(',');
+            field(line, "matchLatency", book.getMatchLatency()).append(',');
+            field(line, "lockWaitLatency", book.getLockWaitLatency());
+            line.append('}');
+        }
+        line.append("]}");
+
+        try {
+            dump.write(line.toString());
+            dump.newLine();
+            dump.flush();
+        } catch (IOException ex) {
+            EventLog.error("[ERROR] Metrics dump failed: %s", ex.getMessage());
+        }
+    }
+
+    private static StringBuilder field(StringBuilder line, String name, String value) {
+        // Symbols, modes and stage names are plain identifiers, nothing to escape
+        return line.append('"').append(name).append("\":\"").append(value).append('"');
+    }
+
+    private static StringBuilder field(StringBuilder line, String name, long value) {
+        return line.append('"').append(name).append("\":").append(value);
+    }
+
+    private static StringBuilder field(StringBuilder line, String name, LatencyHistogram.Snapshot latency) {
+        return line.append('"').append(name).append("\":{\"count\":").append(latency.getCount())
+                .append(",\"mean\":").append(Math.round(latency.getMean()))
+                .append(",\"p50\":").append(latency.getP50())
+                .append(",\"p99\":").append(latency.getP99())
+                .append(",\"p999\":").append(latency.getP999())
+                .append(",\"max\":").append(latency.getMax()).append('}');
+    }
+
+    public void close() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                EventLog.warn("[METRICS] Cannot unregister %s: %s", name, ex.getMessage());
+            }
+        }
+        registered.clear();
+        if (dump != null) {
+            try {
+                dump.close();
+            } catch (IOException ex) {
+                EventLog.error("[ERROR] Cannot close metrics dump: %s", ex.getMessage());
+            }
+        }
+    }
+
+    // Book counters are plain fields owned by the matching path, so these are racy but cheap reads. Depth
+    // quantities walk the levels and are asked of the engine, which runs them on the owning shard; -1 when
+    // the shard does not answer in time.
+    private static final class BookMetrics implements BookMetricsMXBean {
+        private static final long DEPTH_TIMEOUT_MS = 500;
+
+        private final MatchingEngine engine;
+        private final OrderBook orderBook;
+
+        BookMetrics(MatchingEngine engine, OrderBook orderBook) {
+            this.engine = engine;
+            this.orderBook = orderBook;
+        }
+
+        @Override
+        public String getSymbol() {
+            return orderBook.getSymbol();
+        }
+
+        @Override
+        public int getBuyLevels() {
+            return orderBook.getBuyLevelCount();
+        }
+
+        @Override
+        public int getSellLevels() {
+            return orderBook.getSellLevelCount();
+        }
+
+        @Override
+        public long getBuyQuantity() {
+            return depthQuantity(OrderType.BUY);
+        }
+
+        @Override
+        public long getSellQuantity() {
+            return depthQuantity(OrderType.SELL);
+        }
+
+        private long depthQuantity(OrderType side) {
+            try {
+                return engine.queryBook(orderBook.getSymbol(), book -> book.getDepthQuantity(side, Integer.MAX_VALUE))
+                        .get(DEPTH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return -1;
+            } catch (ExecutionException | TimeoutException ex) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int getParkedStops() {
+            return orderBook.getParkedStopCount();
+        }
+
+        @Override
+        public long getFills() {
+            return orderBook.getFillCount();
+        }
+
+        @Override
+        public long getLockAcquisitions() {
+            return orderBook.getLockAcquisitions();
+        }
+
+        @Override
+        public long getEntryAllocations() {
+            return orderBook.getEntryAllocations();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getIngressLatency() {
+            return orderBook.getIngressLatency().snapshot();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getInsertToFillLatency() {
+            return orderBook.getInsertToFillLatency().snapshot();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getOrderToFillLatency() {
+            return orderBook.getFillLatency().snapshot();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getMatchLatency() {
+            return orderBook.getMatchLatency().snapshot();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getLockWaitLatency() {
+            return orderBook.getLockWaitLatency().snapshot();
+        }
+    }
+
+    private final class EngineMetrics implements EngineMetricsMXBean {
+        @Override
+        public String getMode() {
+            return engine.getMode().name();
+        }
+
+        @Override
+        public long getTotalMatches() {
+            return engine.getTotalMatches();
+        }
+
+        @Override
+        public long getTotalVolumeTraded() {
+            return engine.getTotalVolumeTraded();
+        }
+
+        @Override
+        public long getIngressQueueDepth() {
+            return engine.getIngressDepth();
+        }
+
+        @Override
+        public long getIngressProducerWaits() {
+            return engine.getIngressProducerWaits();
+        }
+
+        @Override
+        public long getJournalQueueDepth() {
+            OrderJournal journal = engine.getJournal();
+            return journal == null ? 0 : journal.getPendingEvents();
+        }
+
+        @Override
+        public long getMatchingAllocatedBytes() {
+            return engine.getMatchingAllocatedBytes();
+        }
+
+        @Override
+        public double getAllocatedBytesPerTrade() {
+            return engine.getAllocatedBytesPerTrade();
+        }
+
+        @Override
+        public long getDroppedLogEvents() {
+            return EventLog.getDroppedEvents();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getGatewayLatency() {
+            return engine.getGatewayLatency().snapshot();
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getOrderToFillLatency() {
+            return engine.getFillLatency().snapshot();
+        }
+
+        @Override
+        public List<PipelineStage.Snapshot> getPipelineStages() {
+            return engine.getPipelineStages();
+        }
+    }
+}
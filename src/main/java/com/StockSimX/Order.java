@@ -1,31 +1,111 @@
 package com.StockSimX;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Order implements OrderRequest {
+    private static final AtomicLong NEXT_ORDER_ID = new AtomicLong(1);
 
-public class Order {
     // All fields are final to make this class immutable and thread-safe
+    private final long orderId;         // Unique across the process; used to cancel or amend the order
     private final String traderId;      // Which trader placed this order
     private final String symbol;        // Stock symbol (e.g., "AAPL", "GOOGL")
     private final OrderType type;       // BUY or SELL
+    private final OrderKind kind;       // LIMIT, MARKET, STOP or STOP_LIMIT
+    private final TimeInForce timeInForce;
     private final int quantity;         // Number of shares
-    private final double price;         // Price per share
+    private final long priceTicks;      // Limit price per share, in ticks (Ticks.NONE for MARKET and STOP)
+    private final long stopPriceTicks;  // Trigger price of STOP and STOP_LIMIT orders, in ticks (else Ticks.NONE)
+    private final double tickSize;      // Value of one tick for this symbol
     private final long timestamp;       // When order was created (for ordering)
+    private final long entryNanos;      // Monotonic creation time (for order-to-fill latency)
 
+    // Price is rounded to the default tick grid on entry (see Ticks.fromPrice)
     public Order(String traderId, String symbol, OrderType type, int quantity, double price) {
+        this(traderId, symbol, type, quantity,
+                Ticks.fromPrice(price, OrderBook.DEFAULT_TICK_SIZE, type), OrderBook.DEFAULT_TICK_SIZE);
+    }
+
+    public Order(String traderId, String symbol, OrderType type, int quantity, long priceTicks, double tickSize) {
+        // Timestamp helps with order priority (first-come-first-served for same price)
+        this(nextOrderId(), traderId, symbol, type, quantity, priceTicks, tickSize,
+                SimulationClock.currentTimeMillis());
+    }
+
+    // Recreates an order with its original id and creation time, e.g. when replaying a journal
+    public Order(long orderId, String traderId, String symbol, OrderType type, int quantity, long priceTicks,
+                 double tickSize, long timestamp) {
+        this(orderId, traderId, symbol, type, OrderKind.LIMIT, TimeInForce.GTC, quantity, priceTicks, Ticks.NONE,
+                tickSize, timestamp);
+    }
+
+    public Order(long orderId, String traderId, String symbol, OrderType type, OrderKind kind, TimeInForce timeInForce,
+                 int quantity, long priceTicks, long stopPriceTicks, double tickSize, long timestamp) {
+        this.orderId = orderId;
         this.traderId = traderId;
         this.symbol = symbol;
         this.type = type;
+        this.kind = kind;
+        this.timeInForce = timeInForce;
         this.quantity = quantity;
-        this.price = price;
-        // Timestamp helps with order priority (first-come-first-served for same price)
-        this.timestamp = System.currentTimeMillis();
+        this.priceTicks = priceTicks;
+        this.stopPriceTicks = stopPriceTicks;
+        this.tickSize = tickSize;
+        this.timestamp = timestamp;
+        this.entryNanos = System.nanoTime();
+    }
+
+    public static Order limit(String traderId, String symbol, OrderType type, int quantity, long priceTicks,
+                              double tickSize, TimeInForce timeInForce) {
+        return new Order(nextOrderId(), traderId, symbol, type, OrderKind.LIMIT, timeInForce, quantity, priceTicks,
+                Ticks.NONE, tickSize, SimulationClock.currentTimeMillis());
+    }
+
+    // Market orders never rest, whatever their time in force: IOC fills what it can, FOK all or nothing
+    public static Order market(String traderId, String symbol, OrderType type, int quantity, double tickSize,
+                               TimeInForce timeInForce) {
+        return new Order(nextOrderId(), traderId, symbol, type, OrderKind.MARKET, timeInForce, quantity, Ticks.NONE,
+                Ticks.NONE, tickSize, SimulationClock.currentTimeMillis());
+    }
+
+    // A buy stop triggers once a trade prints at or above the stop price, a sell stop at or below it
+    public static Order stop(String traderId, String symbol, OrderType type, int quantity, long stopPriceTicks,
+                             double tickSize) {
+        return new Order(nextOrderId(), traderId, symbol, type, OrderKind.STOP, TimeInForce.IOC, quantity, Ticks.NONE,
+                stopPriceTicks, tickSize, SimulationClock.currentTimeMillis());
+    }
+
+    public static Order stopLimit(String traderId, String symbol, OrderType type, int quantity, long stopPriceTicks,
+                                  long limitPriceTicks, double tickSize, TimeInForce timeInForce) {
+        return new Order(nextOrderId(), traderId, symbol, type, OrderKind.STOP_LIMIT, timeInForce, quantity,
+                limitPriceTicks, stopPriceTicks, tickSize, SimulationClock.currentTimeMillis());
+    }
+
+    // The order a triggered stop turns into: same id, trader and creation time
+    public Order triggered() {
+        return new Order(orderId, traderId, symbol, type, kind == OrderKind.STOP ? OrderKind.MARKET : OrderKind.LIMIT,
+                timeInForce, quantity, priceTicks, Ticks.NONE, tickSize, timestamp);
+    }
+
+    public static long nextOrderId() {
+        return NEXT_ORDER_ID.getAndIncrement();
+    }
+
+    // Keeps new ids above every id recreated after a restart
+    public static void reserveOrderIds(long usedOrderId) {
+        NEXT_ORDER_ID.accumulateAndGet(usedOrderId + 1, Math::max);
     }
 
     // Getter methods - no setters because order is immutable
+    public long getOrderId() {
+        return orderId;
+    }
+
     public String getTraderId() {
         return traderId;
     }
 
+    @Override
     public String getSymbol() {
         return symbol;
     }
@@ -34,27 +114,61 @@ public class Order {
         return type;
     }
 
+    public OrderKind getKind() {
+        return kind;
+    }
+
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+
+    // Whether the order may rest in the book: a GTC limit order (or a triggered GTC stop-limit)
+    public boolean isResting() {
+        return kind == OrderKind.LIMIT && timeInForce == TimeInForce.GTC;
+    }
+
     public int getQuantity() {
         return quantity;
     }
 
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public long getStopPriceTicks() {
+        return stopPriceTicks;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
     public double getPrice() {
-        return price;
+        return Ticks.toPrice(priceTicks, tickSize);
     }
 
     public long getTimestamp() {
         return timestamp;
     }
 
+    public long getEntryNanos() {
+        return entryNanos;
+    }
+
     @Override
     public String toString() {
-        return String.format("%s order: %s wants to %s %d shares of %s at $%.2f",
+        String description = String.format("%s order #%d: %s wants to %s %d shares of %s at %s",
                 type,
+                orderId,
                 traderId,
                 type.toString().toLowerCase(),
                 quantity,
                 symbol,
-                price);
+                priceTicks == Ticks.NONE ? "market" : String.format("$%.2f", getPrice()));
+        if (kind.isStop()) {
+            description += String.format(" once trades reach $%.2f", Ticks.toPrice(stopPriceTicks, tickSize));
+        }
+        return timeInForce == TimeInForce.GTC ? description : description + " (" + timeInForce + ")";
     }
 
     @Override
@@ -63,16 +177,22 @@ public class Order {
         if (obj == null || getClass() != obj.getClass()) return false;
 
         Order order = (Order) obj;
-        return quantity == order.quantity &&
-                Double.compare(order.price, price) == 0 &&
+        return orderId == order.orderId &&
+                quantity == order.quantity &&
+                priceTicks == order.priceTicks &&
+                stopPriceTicks == order.stopPriceTicks &&
+                Double.compare(order.tickSize, tickSize) == 0 &&
                 timestamp == order.timestamp &&
                 traderId.equals(order.traderId) &&
                 symbol.equals(order.symbol) &&
-                type == order.type;
+                type == order.type &&
+                kind == order.kind &&
+                timeInForce == order.timeInForce;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(traderId, symbol, type, quantity, price, timestamp);
+        return Objects.hash(orderId, traderId, symbol, type, kind, timeInForce, quantity, priceTicks, stopPriceTicks,
+                timestamp);
     }
 }
\ No newline at end of file
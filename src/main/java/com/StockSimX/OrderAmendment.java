@@ -0,0 +1,78 @@
+package com.StockSimX;
+
+// Request to cancel, reduce or replace a resting order, addressed by its order id.
+// A reduce keeps the order's place in its level; a replace that changes the price or raises the
+// quantity re-enters the order at the back of its (new) level, as if it had just arrived.
+public final class OrderAmendment implements OrderRequest {
+    public enum Action {
+        CANCEL,     // remove the rest of the order
+        REDUCE,     // lower the remaining quantity, keeping time priority
+        REPLACE     // new price and/or remaining quantity
+    }
+
+    private final Action action;
+    private final long orderId;
+    private final String symbol;
+    private final int quantity;         // new remaining quantity (REDUCE, REPLACE)
+    private final long priceTicks;      // new price (REPLACE)
+    private final long timestamp;
+
+    public OrderAmendment(Action action, long orderId, String symbol, int quantity, long priceTicks, long timestamp) {
+        this.action = action;
+        this.orderId = orderId;
+        this.symbol = symbol;
+        this.quantity = quantity;
+        this.priceTicks = priceTicks;
+        this.timestamp = timestamp;
+    }
+
+    public static OrderAmendment cancel(Order order) {
+        return new OrderAmendment(Action.CANCEL, order.getOrderId(), order.getSymbol(), 0,
+                order.getPriceTicks(), SimulationClock.currentTimeMillis());
+    }
+
+    public static OrderAmendment reduce(Order order, int remainingQuantity) {
+        return new OrderAmendment(Action.REDUCE, order.getOrderId(), order.getSymbol(), remainingQuantity,
+                order.getPriceTicks(), SimulationClock.currentTimeMillis());
+    }
+
+    public static OrderAmendment replace(Order order, long priceTicks, int remainingQuantity) {
+        return new OrderAmendment(Action.REPLACE, order.getOrderId(), order.getSymbol(), remainingQuantity,
+                priceTicks, SimulationClock.currentTimeMillis());
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return switch (action) {
+            case CANCEL -> String.format("CANCEL order #%d (%s)", orderId, symbol);
+            case REDUCE -> String.format("REDUCE order #%d (%s) to %d shares", orderId, symbol, quantity);
+            case REPLACE -> String.format("REPLACE order #%d (%s) with %d shares at %d ticks",
+                    orderId, symbol, quantity, priceTicks);
+        };
+    }
+}
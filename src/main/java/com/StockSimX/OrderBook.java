@@ -1,110 +1,779 @@
 package com.StockSimX;
 
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class OrderBook {
-    private final String symbol;
-    private final ConcurrentSkipListMap<Double, Queue<Order>> buyOrders;
-    private final ConcurrentSkipListMap<Double, Queue<Order>> sellOrders;
+// Common order book contract. Subclasses only decide how price levels are stored;
+// locking, continuous matching, order kinds and time in force, stop triggering, latency recording
+// and wait/notify (plus the dirty-book signal the polling engine schedules on) live here.
+public abstract class OrderBook {
+    public static final double DEFAULT_TICK_SIZE = 0.01;
+
+    private static final long MARKET_BUY_LIMIT = Long.MAX_VALUE;    // a market buy takes any ask
+    private static final long MARKET_SELL_LIMIT = 0;                // a market sell takes any bid
+    private static final int PARKED = -1;
+    private static final long NO_LIMIT = Ticks.NONE;
+
+    protected final String symbol;
+    protected final double tickSize;
     private final ReentrantLock matchingLock;
+    private final LatencyHistogram fillLatency;         // order creation to fill, from the aggressing order
+
+    // Recorded with the book locked (or by its single writer), so none of them needs atomic updates
+    private final LatencyHistogram ingressLatency;      // order creation to the book taking it
+    private final LatencyHistogram insertToFillLatency; // book turning marketable to each resulting fill
+    private final LatencyHistogram matchLatency;        // one matching pass that produced fills
+    private final LatencyHistogram lockWaitLatency;     // contended lock acquisitions only
+    private long lockAcquisitions;
+
+    // When set, the book matches crossing orders inline on the thread that adds them (continuous mode)
+    private volatile MatchListener matchListener;
+
+    // Polling mode: told when the book gets work, so the engine's matching cycle only visits such books.
+    // workPending is set by the first order or amendment after a matchOrders() and cleared by the next one.
+    private volatile WorkListener workListener;
+    private final AtomicBoolean workPending;
+
+    // Told when an order loses shares other than by a fill (see QuantityListener)
+    private volatile QuantityListener quantityListener;
+
+    // Set by a MatchingShard before its thread starts: only that thread touches the book, so no lock is taken
+    private boolean singleWriter;
+
+    // Last journal sequence (order or trade) reflected in this book; written by the book's owning thread
+    private volatile long journalSequence = -1;
+
+    // Resting-order entries taken from the book's pool and how many of them had to be newly allocated.
+    // Written by whoever holds the book, read for reporting only.
+    private long entryAcquisitions;
+    private long entryAllocations;
+
+    // Guarded by the matching lock (or owned by the single writer)
+    private final StopOrderIndex stopOrders;
+    private long lastTradeTicks = Ticks.NONE;     // price of the latest fill, what stops trigger on
+    private long fillCount;
+    private long triggeredStops;
+    private long unfilledImmediateQuantity;         // IOC/market rests cancelled and FOK orders killed, in shares
+    private long marketableSinceNanos;              // when an order made the book marketable, 0 when it is not
+    private long lastFillNanos;                     // clock read by the latest fill, ends a timed matching pass
+    // Trades of market/IOC/FOK orders executed while no MatchListener is set, handed out by the next matchOrders()
+    private final List<Trade> pendingTrades;
+    private volatile boolean tradesPending;
+    private final LevelAccumulator accumulator;     // reused by the fill-or-kill check
+
+    public enum BookType {
+        SKIP_LIST,      // ConcurrentSkipListMap<Long, PriceLevel> per side, keyed by price in ticks
+        TICK_LADDER     // Primitive arrays indexed by tick offset with intrusive FIFO lists
+    }
+
+    public interface MatchListener {
+        void onMatches(String symbol, List<Trade> trades);
+
+        // Called after every accepted order, once any resulting matches have been reported
+        default void onBookUpdated(OrderBook orderBook) {
+        }
+    }
+
+    // Called at most once per matchOrders(): when the book goes from nothing to do to having an order or
+    // amendment to process
+    public interface WorkListener {
+        void onWorkPending(OrderBook orderBook);
+    }
 
-    public OrderBook(String symbol) {
+    // Called with the book locked whenever an order gives up shares without trading them: an applied cancel,
+    // reduce or replace (negative quantity when a replace adds shares), or the rest of a triggered stop that
+    // could not rest. Together with the fills, this accounts for every share of a resting or parked order.
+    public interface QuantityListener {
+        void onQuantityRemoved(Order order, int quantity);
+    }
+
+    // Allocation-free fill callback: the book hands out the two orders and the fill itself
+    public interface FillListener {
+        void onFill(Order buyOrder, Order sellOrder, int quantity, long priceTicks);
+    }
+
+    // Receives aggregated price levels, best price first on each side
+    public interface DepthVisitor {
+        void onDepthLevel(OrderType side, long priceTicks, long quantity, int orderCount);
+    }
+
+    // Receives one side's levels, best price first, for as long as it returns true. Quantity and count are the
+    // level's running aggregates, so a walk costs one step per level, not per order.
+    protected interface LevelWalker {
+        boolean onLevel(long priceTicks, long quantity, int orderCount);
+    }
+
+    // Receives resting orders level by level, in FIFO order within a level
+    public interface LevelVisitor {
+        void onLevel(OrderType side, long priceTicks, int orderCount);
+
+        void onOrder(Order order, int remainingQuantity);
+
+        default void onStopOrder(Order stop) {
+        }
+    }
+
+    private static final FillListener DISCARD_FILLS = (buyOrder, sellOrder, quantity, priceTicks) -> {
+    };
+    private static final QuantityListener DISCARD_REMOVALS = (order, quantity) -> {
+    };
+
+    protected OrderBook(String symbol, double tickSize) {
         this.symbol = symbol;
-        this.buyOrders = new ConcurrentSkipListMap<>(Collections.reverseOrder());
-        this.sellOrders = new ConcurrentSkipListMap<>();
+        this.tickSize = tickSize;
         this.matchingLock = new ReentrantLock(true);
+        this.fillLatency = new LatencyHistogram();
+        this.ingressLatency = new LatencyHistogram();
+        this.insertToFillLatency = new LatencyHistogram();
+        this.matchLatency = new LatencyHistogram();
+        this.lockWaitLatency = new LatencyHistogram();
+        this.stopOrders = new StopOrderIndex();
+        this.pendingTrades = new ArrayList<>();
+        this.accumulator = new LevelAccumulator();
+        this.workPending = new AtomicBoolean(false);
+    }
+
+    public static OrderBook create(BookType type, String symbol, double referencePrice) {
+        return create(type, symbol, referencePrice, DEFAULT_TICK_SIZE);
+    }
+
+    public static OrderBook create(BookType type, String symbol, double referencePrice, double tickSize) {
+        return switch (type) {
+            case SKIP_LIST -> new SkipListOrderBook(symbol, tickSize);
+            case TICK_LADDER -> new TickLadderOrderBook(symbol, referencePrice, tickSize);
+        };
     }
 
     public void addOrders(Order order) {
-        Map<Double,Queue<Order>> orderMap = (order.getType() == OrderType.BUY) ? buyOrders : sellOrders;
+        checkTickSize(order);
+        if (!order.isResting()) {
+            addImmediate(order);
+            return;
+        }
+        boolean crossed;
+        lock();
+        try {
+            long now = System.nanoTime();
+            ingressLatency.record(now - order.getEntryNanos());
+            insert(order);
+            crossed = isCrossed();
+            markMarketable(crossed, now);
+        } finally {
+            unlock();
+        }
+        EventLog.info("ORDER ADDED: %s", order);
 
-        orderMap.computeIfAbsent(order.getPrice(),
-                k -> new ConcurrentLinkedQueue<>()).offer(order);
-        System.out.printf("[%s] ORDER ADDED: %s%n", getCurrentTime(), order);
+        MatchListener listener = matchListener;
+        if (listener != null) {
+            // Continuous/sharded mode: match immediately instead of waiting for the engine's next cycle
+            if (crossed) {
+                List<Trade> trades = matchOrders();
+                if (!trades.isEmpty()) {
+                    listener.onMatches(symbol, trades);
+                }
+            }
+            listener.onBookUpdated(this);
+            return;
+        }
 
-        synchronized (this){
-            this.notifyAll();
+        signalWork();
+    }
+
+    // Market, IOC, FOK and stop orders are dealt with completely on arrival: they execute against the book
+    // or wait in the stop index, and never rest in the book, so their outcome cannot wait for a later match
+    private void addImmediate(Order order) {
+        MatchListener listener = matchListener;
+        List<Trade> trades = new ArrayList<>();
+        int unfilled;
+        lock();
+        try {
+            long start = System.nanoTime();
+            ingressLatency.record(start - order.getEntryNanos());
+            unfilled = accept(order, tradeRecorder(trades), start);
+            if (!trades.isEmpty()) {
+                matchLatency.record(lastFillNanos - start);
+            }
+            if (listener == null && !trades.isEmpty()) {
+                pendingTrades.addAll(trades);
+                tradesPending = true;
+            }
+        } finally {
+            unlock();
+        }
+        // Checked first: the counts would be boxed on every order even with INFO off
+        if (EventLog.isEnabled(EventLog.Level.INFO)) {
+            if (unfilled == PARKED) {
+                EventLog.info("STOP ORDER PARKED: %s", order);
+            } else if (order.getKind().isStop() && order.triggered().isResting()) {
+                // A triggered GTC stop-limit rests what it could not fill, like any limit order
+                EventLog.info("ORDER EXECUTED: %s, %d filled, %d rested", order, order.getQuantity() - unfilled, unfilled);
+            } else {
+                EventLog.info("ORDER EXECUTED: %s, %d filled, %d cancelled", order, order.getQuantity() - unfilled, unfilled);
+            }
         }
+
+        if (listener != null) {
+            if (!trades.isEmpty()) {
+                listener.onMatches(symbol, trades);
+            }
+            listener.onBookUpdated(this);
+            return;
+        }
+
+        signalWork();
     }
 
-//  * Thread-safe order matching algorithm -> Main part of Project
-    public List<String> matchOrders() {
-        matchingLock.lock();
-        try {
-            List<String> matches = new ArrayList<>();
-
-//            Trade can happen iff buyPrice >= sellPrice
-            while (!buyOrders.isEmpty() && !sellOrders.isEmpty()){
-                Double highestBuyPrice = buyOrders.firstKey(); // highest buy price
-                Double lowestSellPrice = sellOrders.firstKey(); // lowest sell price
-
-                if(highestBuyPrice >= lowestSellPrice){
-                    Queue<Order> buyQueue = buyOrders.get(highestBuyPrice);
-                    Queue<Order> sellQueue = sellOrders.get(lowestSellPrice);
-
-                    Order buyOrder = buyQueue.poll();
-                    Order sellOrder = sellQueue.poll();
-
-                    if(buyOrder != null && sellOrder != null){
-                        int tradedQuantity = Math.min(buyOrder.getQuantity(),sellOrder.getQuantity());
-                        double tradedPrice = sellOrder.getPrice();
-
-                        String match = String.format(
-                                "TRADE EXECUTED: %s bought %d shares from %s at $%.2f (Total: $%.2f)",
-                                buyOrder.getTraderId(),
-                                tradedQuantity,
-                                sellOrder.getTraderId(),
-                                tradedPrice,
-                                tradedQuantity + tradedPrice);
-
-                        matches.add(match);
-
-                        // If buy order was larger, put remainder back
-                        if(buyOrder.getQuantity() > tradedQuantity) {
-                            Order remainingBuy = new Order(
-                                    buyOrder.getTraderId(),
-                                    buyOrder.getSymbol(),
-                                    OrderType.BUY,
-                                    buyOrder.getQuantity() - tradedQuantity,
-                                    buyOrder.getPrice()
-                            );
-                            buyQueue.offer(remainingBuy);
-                        }
-                        if(sellOrder.getQuantity() > tradedQuantity) {
-                            Order remainingSell = new Order(
-                                    sellOrder.getTraderId(),
-                                    sellOrder.getSymbol(),
-                                    OrderType.SELL,
-                                    sellOrder.getQuantity() - tradedQuantity,
-                                    sellOrder.getPrice()
-                            );
-                            sellQueue.offer(remainingSell);
-                        }
-                    }
-                    if (buyQueue.isEmpty()) {
-                        buyOrders.remove(highestBuyPrice);
-                    }
-                    if(sellQueue.isEmpty()){
-                        sellOrders.remove(lowestSellPrice);
+    // Re-applies a journaled order: inserted and matched without logging or listeners,
+    // because the trades it produced are replayed from the journal separately
+    public void restoreOrder(Order order) {
+        checkTickSize(order);
+        lock();
+        try {
+            accept(order, DISCARD_FILLS, 0);
+        } finally {
+            unlock();
+        }
+    }
+
+    // With the book locked: parks a stop the last trade has not reached, otherwise executes the order and
+    // any stops its fills trigger. Returns the order's unfilled quantity, or PARKED.
+    private int accept(Order order, FillListener listener, long arrivalNanos) {
+        if (order.getKind().isStop()) {
+            if (!StopOrderIndex.isTriggered(order, lastTradeTicks)) {
+                stopOrders.add(order);
+                return PARKED;
+            }
+            triggeredStops++;
+            Order triggered = order.triggered();
+            int unfilled = execute(triggered, listener, arrivalNanos);
+            if (unfilled > 0 && !triggered.isResting() && listener != DISCARD_FILLS) {
+                removed(order, unfilled);
+            }
+            triggerStops(listener);
+            return unfilled;
+        }
+        int unfilled = execute(order, listener, arrivalNanos);
+        triggerStops(listener);
+        return unfilled;
+    }
+
+    // Resting orders are inserted and matched; the others only take liquidity up to their limit, and
+    // whatever they cannot fill right away is cancelled. FOK is decided on the level aggregates first.
+    private int execute(Order order, FillListener listener, long arrivalNanos) {
+        // The order is the aggressor for whatever it fills here; a book left crossed by earlier orders keeps
+        // its own marketable time. Replayed orders arrive at 0, which is not timed.
+        long marketableBefore = marketableSinceNanos;
+        marketableSinceNanos = arrivalNanos;
+        try {
+            return executeMarketable(order, listener);
+        } finally {
+            marketableSinceNanos = isCrossed() ? marketableBefore : 0;
+        }
+    }
+
+    private int executeMarketable(Order order, FillListener listener) {
+        if (order.isResting()) {
+            insert(order);
+            if (isCrossed()) {
+                match(listener);
+            }
+            return findResting(order.getOrderId()) == null ? 0 : remainingOf(order.getOrderId());
+        }
+
+        long limitTicks = order.getPriceTicks();
+        if (order.getKind() == OrderKind.MARKET) {
+            limitTicks = (order.getType() == OrderType.BUY) ? MARKET_BUY_LIMIT : MARKET_SELL_LIMIT;
+        }
+        int unfilled = order.getQuantity();
+        if (order.getTimeInForce() != TimeInForce.FOK
+                || accumulate(accumulator, order.getType().opposite(), Integer.MAX_VALUE, limitTicks,
+                        order.getQuantity()).quantity >= order.getQuantity()) {
+            unfilled = take(order, limitTicks, listener);
+        }
+        unfilledImmediateQuantity += unfilled;
+        return unfilled;
+    }
+
+    // Fills move the last trade price, which can trigger stops whose own fills move it further
+    private void triggerStops(FillListener listener) {
+        Order stop;
+        while ((stop = stopOrders.pollTriggered(lastTradeTicks)) != null) {
+            triggeredStops++;
+            if (listener != DISCARD_FILLS && EventLog.isEnabled(EventLog.Level.INFO)) {
+                EventLog.info("STOP TRIGGERED at $%.2f: %s", Ticks.toPrice(lastTradeTicks, tickSize), stop);
+            }
+            // Arrives with the fill that triggered it
+            Order triggered = stop.triggered();
+            int unfilled = execute(triggered, listener, listener == DISCARD_FILLS ? 0 : lastFillNanos);
+            if (unfilled > 0 && !triggered.isResting() && listener != DISCARD_FILLS) {
+                removed(stop, unfilled);
+            }
+        }
+    }
+
+    private void removed(Order order, int quantity) {
+        QuantityListener listener = quantityListener;
+        if (listener != null) {
+            listener.onQuantityRemoved(order, quantity);
+        }
+    }
+
+    // Cancels, reduces or replaces a resting order. Returns false when the order is not resting here
+    // (already filled, cancelled or unknown) or the amendment is not valid for it; nothing changes then.
+    public boolean amend(OrderAmendment amendment) {
+        boolean applied;
+        boolean crossed;
+        QuantityListener removals = quantityListener;
+        lock();
+        try {
+            applied = applyAmendment(amendment, removals == null ? DISCARD_REMOVALS : removals);
+            crossed = applied && isCrossed();
+            if (applied) {
+                markMarketable(crossed, System.nanoTime());
+            }
+        } finally {
+            unlock();
+        }
+        if (!applied) {
+            return false;
+        }
+        EventLog.info("ORDER AMENDED: %s", amendment);
+
+        MatchListener listener = matchListener;
+        if (listener != null) {
+            // A replace can make the order marketable
+            if (crossed) {
+                List<Trade> trades = matchOrders();
+                if (!trades.isEmpty()) {
+                    listener.onMatches(symbol, trades);
+                }
+            }
+            listener.onBookUpdated(this);
+            return true;
+        }
+
+        signalWork();
+        return true;
+    }
+
+    public boolean cancelOrder(long orderId) {
+        return amend(new OrderAmendment(OrderAmendment.Action.CANCEL, orderId, symbol, 0, 0,
+                SimulationClock.currentTimeMillis()));
+    }
+
+    public boolean reduceOrder(long orderId, int remainingQuantity) {
+        return amend(new OrderAmendment(OrderAmendment.Action.REDUCE, orderId, symbol, remainingQuantity, 0,
+                SimulationClock.currentTimeMillis()));
+    }
+
+    public boolean replaceOrder(long orderId, long priceTicks, int remainingQuantity) {
+        return amend(new OrderAmendment(OrderAmendment.Action.REPLACE, orderId, symbol, remainingQuantity, priceTicks,
+                SimulationClock.currentTimeMillis()));
+    }
+
+    // Re-applies a journaled amendment, silently like restoreOrder
+    public boolean restoreAmendment(OrderAmendment amendment) {
+        lock();
+        try {
+            boolean applied = applyAmendment(amendment, DISCARD_REMOVALS);
+            if (applied && isCrossed()) {
+                match(DISCARD_FILLS);
+                triggerStops(DISCARD_FILLS);
+            }
+            return applied;
+        } finally {
+            unlock();
+        }
+    }
+
+    // With the book locked. Lookup and unlink are O(1) through the subclass's order id index.
+    private boolean applyAmendment(OrderAmendment amendment, QuantityListener removals) {
+        long orderId = amendment.getOrderId();
+        Order resting = findResting(orderId);
+        if (resting == null) {
+            // A parked stop can only be cancelled; to change it, cancel it and send a new one
+            Order stop = stopOrders.get(orderId);
+            if (stop == null || amendment.getAction() != OrderAmendment.Action.CANCEL) {
+                return false;
+            }
+            stopOrders.remove(orderId);
+            removals.onQuantityRemoved(stop, stop.getQuantity());
+            return true;
+        }
+        int remaining = remainingOf(orderId);
+        int quantity = amendment.getQuantity();
+
+        switch (amendment.getAction()) {
+            case CANCEL -> removeResting(orderId);
+            case REDUCE -> {
+                if (quantity >= remaining) {
+                    return false;
+                }
+                if (quantity <= 0) {
+                    removeResting(orderId);
+                } else {
+                    reduceResting(orderId, quantity);
+                }
+            }
+            case REPLACE -> {
+                long priceTicks = amendment.getPriceTicks();
+                if (quantity <= 0) {
+                    removeResting(orderId);
+                } else if (priceTicks == resting.getPriceTicks() && quantity <= remaining) {
+                    // Same price and no more shares: a reduction, so the order keeps its place
+                    if (quantity < remaining) {
+                        reduceResting(orderId, quantity);
                     }
                 } else {
-                    break;
+                    if (!isValidPrice(priceTicks)) {
+                        return false;
+                    }
+                    // New price or more shares: re-enters at the back of its level under the same id
+                    removeResting(orderId);
+                    insert(new Order(orderId, resting.getTraderId(), symbol, resting.getType(), quantity,
+                            priceTicks, tickSize, amendment.getTimestamp()));
                 }
             }
-            return matches;
+        }
+        int removed = remaining - (findResting(orderId) == null ? 0 : remainingOf(orderId));
+        if (removed != 0) {
+            removals.onQuantityRemoved(resting, removed);
+        }
+        return true;
+    }
+
+    // Reports up to maxLevels aggregated levels per side (bids first), consistent with each other
+    public void captureDepth(int maxLevels, DepthVisitor visitor) {
+        lock();
+        try {
+            visitDepth(maxLevels, visitor);
         } finally {
+            unlock();
+        }
+    }
+
+    // Copies the resting orders for a checkpoint. With changedOnly, only levels touched since the previous
+    // capture are visited (emptied levels with orderCount 0). Either way the change tracking starts over.
+    // Parked stops are always reported in full, after the levels.
+    public void captureLevels(boolean changedOnly, LevelVisitor visitor) {
+        lock();
+        try {
+            visitLevels(changedOnly, visitor);
+            stopOrders.forEach(visitor::onStopOrder);
+            clearChangedLevels();
+        } finally {
+            unlock();
+        }
+    }
+
+    // Depth queries, answered from the per-level aggregates without touching individual orders. A single-writer
+    // book is not locked, so there they may only run on the owning thread (MatchingEngine.queryBook).
+    // Total quantity resting in the best maxLevels levels of one side
+    public long getDepthQuantity(OrderType side, int maxLevels) {
+        lock();
+        try {
+            return accumulate(new LevelAccumulator(), side, maxLevels, NO_LIMIT, Long.MAX_VALUE).quantity;
+        } finally {
+            unlock();
+        }
+    }
+
+    // Quantity an aggressor could take from one side without going past limitTicks
+    public long getQuantityUpTo(OrderType side, long limitTicks) {
+        lock();
+        try {
+            return accumulate(new LevelAccumulator(), side, Integer.MAX_VALUE, limitTicks, Long.MAX_VALUE).quantity;
+        } finally {
+            unlock();
+        }
+    }
+
+    // Worst price an aggressor has to accept to take the quantity from one side, Ticks.NONE when the side
+    // does not hold that much
+    public long getPriceToFill(OrderType side, long quantity) {
+        lock();
+        try {
+            LevelAccumulator levels = accumulate(new LevelAccumulator(), side, Integer.MAX_VALUE, NO_LIMIT, quantity);
+            return levels.quantity >= quantity ? levels.lastPriceTicks : Ticks.NONE;
+        } finally {
+            unlock();
+        }
+    }
+
+    // With the book locked. Walks one side from the best level while within maxLevels and limitTicks,
+    // until the running quantity reaches wanted. The queries above take a fresh accumulator, so a query never
+    // shares one with the owner's fill-or-kill checks.
+    private LevelAccumulator accumulate(LevelAccumulator levels, OrderType side, int maxLevels, long limitTicks,
+                                        long wanted) {
+        levels.buySide = side == OrderType.BUY;
+        levels.maxLevels = maxLevels;
+        levels.limitTicks = (limitTicks == NO_LIMIT) ? (levels.buySide ? MARKET_SELL_LIMIT : MARKET_BUY_LIMIT) : limitTicks;
+        levels.wanted = wanted;
+        levels.levels = 0;
+        levels.quantity = 0;
+        levels.lastPriceTicks = Ticks.NONE;
+        if (wanted > 0 && maxLevels > 0) {
+            walkLevels(side, levels);
+        }
+        return levels;
+    }
+
+    private static final class LevelAccumulator implements LevelWalker {
+        private boolean buySide;
+        private int maxLevels;
+        private long limitTicks;
+        private long wanted;
+        private int levels;
+        private long quantity;
+        private long lastPriceTicks;
+
+        @Override
+        public boolean onLevel(long priceTicks, long levelQuantity, int orderCount) {
+            if (buySide ? priceTicks < limitTicks : priceTicks > limitTicks) {
+                return false;
+            }
+            quantity += levelQuantity;
+            lastPriceTicks = priceTicks;
+            return ++levels < maxLevels && quantity < wanted;
+        }
+    }
+
+    // Replaces every parked stop with checkpointed ones and restores the price they trigger on
+    public void restoreStops(List<Order> stops, long lastTradeTicks) {
+        lock();
+        try {
+            stopOrders.clear();
+            for (Order stop : stops) {
+                checkTickSize(stop);
+                stopOrders.add(stop);
+            }
+            this.lastTradeTicks = lastTradeTicks;
+        } finally {
+            unlock();
+        }
+    }
+
+    // Replaces one price level with checkpointed orders; count 0 removes the level
+    public void restoreLevel(OrderType side, long priceTicks, Order[] orders, int[] remainingQuantities, int offset, int count) {
+        lock();
+        try {
+            replaceLevel(side, priceTicks, orders, remainingQuantities, offset, count);
+        } finally {
+            unlock();
+        }
+    }
+
+//  * Thread-safe order matching algorithm -> Main part of Project
+    public List<Trade> matchOrders() {
+        // Anything arriving from here on marks the book again, so no work slips between this pass and the next
+        workPending.set(false);
+        List<Trade> trades = new ArrayList<>();
+        FillListener recorder = tradeRecorder(trades);
+        lock();
+        try {
+            if (tradesPending) {
+                trades.addAll(pendingTrades);
+                pendingTrades.clear();
+                tradesPending = false;
+            }
+            matchAndTrigger(recorder);
+        } finally {
+            unlock();
+        }
+        return trades;
+    }
+
+    // With the book locked: one matching pass, timed up to its last fill when it fills anything. The book is not
+    // crossed afterwards.
+    private long matchAndTrigger(FillListener listener) {
+        if (!isCrossed()) {
+            // Nothing to match; at most stops left parked when their trigger price was restored
+            long fillsBefore = fillCount;
+            triggerStops(listener);
+            return fillCount - fillsBefore;
+        }
+        long start = System.nanoTime();
+        long fillsBefore = fillCount;
+        match(listener);
+        triggerStops(listener);
+        marketableSinceNanos = 0;
+        if (fillCount != fillsBefore) {
+            matchLatency.record(lastFillNanos - start);
+        }
+        return fillCount - fillsBefore;
+    }
+
+    // Called with the book locked after an order or amendment changed it; a book that was already marketable
+    // keeps the earlier time
+    private void markMarketable(boolean crossed, long nanos) {
+        if (!crossed) {
+            marketableSinceNanos = 0;
+        } else if (marketableSinceNanos == 0) {
+            marketableSinceNanos = nanos;
+        }
+    }
+
+    private FillListener tradeRecorder(List<Trade> trades) {
+        return (buyOrder, sellOrder, quantity, priceTicks) -> trades.add(new Trade(
+                buyOrder.getTraderId(),
+                sellOrder.getTraderId(),
+                symbol,
+                quantity,
+                priceTicks,
+                tickSize,
+                buyOrder.getOrderId(),
+                sellOrder.getOrderId(),
+                buyOrder.getTimestamp(),
+                sellOrder.getTimestamp(),
+                SimulationClock.currentTimeMillis(),
+                // The order that arrived last is the one that crossed the spread
+                buyOrder.getEntryNanos() >= sellOrder.getEntryNanos() ? OrderType.BUY : OrderType.SELL));
+    }
+
+    // Matches while the book is crossed, then runs any stops the fills triggered, and reports each fill to the
+    // listener; returns the number of fills
+    public int matchOrders(FillListener listener) {
+        lock();
+        try {
+            return (int) matchAndTrigger(listener);
+        } finally {
+            unlock();
+        }
+    }
+
+    // Ticks are only comparable within one grid: an order priced on another tick size is rejected, not re-rounded
+    private void checkTickSize(Order order) {
+        if (Double.compare(order.getTickSize(), tickSize) != 0) {
+            throw new IllegalArgumentException(String.format("Order priced in ticks of %s, the %s book uses %s",
+                    order.getTickSize(), symbol, tickSize));
+        }
+    }
+
+    // Only contended acquisitions are timed; the uncontended path costs one tryLock
+    private void lock() {
+        if (!singleWriter) {
+            if (!tryLockNow()) {
+                long start = System.nanoTime();
+                matchingLock.lock();
+                lockWaitLatency.record(System.nanoTime() - start);
+            }
+            lockAcquisitions++;
+        }
+    }
+
+    // Unlike tryLock(), a zero timeout honours the lock's fairness and does not barge past queued threads
+    private boolean tryLockNow() {
+        try {
+            return matchingLock.tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void unlock() {
+        if (!singleWriter) {
             matchingLock.unlock();
         }
     }
 
+    // Called by subclasses for every fill, while the matching lock is held
+    protected final void fill(FillListener listener, Order buyOrder, Order sellOrder, int quantity, long priceTicks) {
+        // Order-to-fill latency is measured from the arrival of the later (aggressing) order
+        long now = System.nanoTime();
+        lastFillNanos = now;
+        fillLatency.record(now - Math.max(buyOrder.getEntryNanos(), sellOrder.getEntryNanos()));
+        if (marketableSinceNanos != 0) {
+            insertToFillLatency.record(now - marketableSinceNanos);
+        }
+        lastTradeTicks = priceTicks;
+        fillCount++;
+        listener.onFill(buyOrder, sellOrder, quantity, priceTicks);
+    }
+
+    // Called by subclasses as entries leave (acquired) and are added to (allocated) their entry pool
+    protected final void countEntries(int acquired, int allocated) {
+        entryAcquisitions += acquired;
+        entryAllocations += allocated;
+    }
+
+    protected abstract void insert(Order order);
+
+    // Order id index, used with the book locked. An id added again while its first copy still rests
+    // refers to the newest copy only.
+    protected abstract Order findResting(long orderId);
+
+    protected abstract int remainingOf(long orderId);
+
+    protected abstract void reduceResting(long orderId, int remainingQuantity);
+
+    protected abstract void removeResting(long orderId);
+
+    // Whether an order at this price can rest in the book
+    protected boolean isValidPrice(long priceTicks) {
+        return priceTicks > 0;
+    }
+
+    protected abstract int match(FillListener listener);
+
+    // Fills an incoming order that does not rest against the opposite side, best price first, while prices are
+    // within limitTicks. Fills are reported with the incoming order on its side. Returns the quantity left over.
+    protected abstract int take(Order order, long limitTicks, FillListener listener);
+
+    protected abstract void walkLevels(OrderType side, LevelWalker walker);
+
+    protected abstract boolean isCrossed();
+
+    protected abstract void visitDepth(int maxLevels, DepthVisitor visitor);
+
+    protected abstract void visitLevels(boolean changedOnly, LevelVisitor visitor);
+
+    protected abstract void clearChangedLevels();
+
+    protected abstract void replaceLevel(OrderType side, long priceTicks, Order[] orders, int[] remainingQuantities,
+                                         int offset, int count);
+
+    public abstract boolean isEmpty();
+
+    public abstract int getBuyLevelCount();
+
+    public abstract int getSellLevelCount();
+
+    public abstract String getDetailedStatus();
+
+    // Best prices currently resting in the book, Ticks.NONE when that side is empty
+    public abstract long getBestBidTicks();
+
+    public abstract long getBestAskTicks();
+
+    // Same in currency units, NaN when that side is empty
+    public double getBestBidPrice() {
+        return Ticks.toPrice(getBestBidTicks(), tickSize);
+    }
+
+    public double getBestAskPrice() {
+        return Ticks.toPrice(getBestAskTicks(), tickSize);
+    }
+
+    // Wakes waitForOrders() callers and, the first time since the last matchOrders(), reports the book to its
+    // WorkListener
+    private void signalWork() {
+        if (!workPending.get() && workPending.compareAndSet(false, true)) {
+            WorkListener listener = workListener;
+            if (listener != null) {
+                listener.onWorkPending(this);
+            }
+        }
+        synchronized (this){
+            this.notifyAll();
+        }
+    }
+
     public boolean waitForOrders(long timeoutMs) {
         synchronized (this){
-            if(buyOrders.isEmpty() && sellOrders.isEmpty()) {
+            if(isEmpty() && !tradesPending) {
                 try {
                     this.wait(timeoutMs);
                 } catch (InterruptedException Ex){
@@ -112,40 +781,113 @@ public class OrderBook {
                     return false;
                 }
             }
-            return !buyOrders.isEmpty() || !sellOrders.isEmpty();
+            return !isEmpty() || tradesPending;
         }
     }
 
     public String getOrderBookStatus() {
-        return String.format("OrderBook[%s]: %d buy levels, %d sell levels",
-                symbol, buyOrders.size(), sellOrders.size());
+        return String.format("OrderBook[%s]: %d buy levels (%d shares), %d sell levels (%d shares)",
+                symbol, getBuyLevelCount(), getDepthQuantity(OrderType.BUY, Integer.MAX_VALUE),
+                getSellLevelCount(), getDepthQuantity(OrderType.SELL, Integer.MAX_VALUE));
     }
 
-    public String getDetailedStatus() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("=== ORDER BOOK: %s ===\n", symbol));
+    public String getSymbol() {
+        return symbol;
+    }
 
-        // Show sell orders (lowest price first)
-        sb.append("SELL ORDERS (Ask):\n");
-        sellOrders.forEach((price, queue) -> {
-            sb.append(String.format("  $%.2f: %d orders\n", price, queue.size()));
-        });
+    public double getTickSize() {
+        return tickSize;
+    }
 
-        sb.append("--- SPREAD ---\n");
+    public void setSingleWriter(boolean singleWriter) {
+        this.singleWriter = singleWriter;
+    }
 
-        // Show buy orders (highest price first)
-        sb.append("BUY ORDERS (Bid):\n");
-        buyOrders.forEach((price, queue) -> {
-            sb.append(String.format("  $%.2f: %d orders\n", price, queue.size()));
-        });
+    public boolean isSingleWriter() {
+        return singleWriter;
+    }
 
-        return sb.toString();
+    public long getJournalSequence() {
+        return journalSequence;
     }
 
-    private String getCurrentTime() {
-        return LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss.SSS"));
+    public void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
     }
-    public String getSymbol() {
-        return symbol;
+
+    public void setQuantityListener(QuantityListener quantityListener) {
+        this.quantityListener = quantityListener;
+    }
+
+    public void setMatchListener(MatchListener matchListener) {
+        this.matchListener = matchListener;
+    }
+
+    // A book that already holds orders is reported straight away, so they are matched on the next cycle
+    public void setWorkListener(WorkListener workListener) {
+        this.workListener = workListener;
+        workPending.set(false);
+        if (workListener != null && (!isEmpty() || tradesPending)) {
+            signalWork();
+        }
+    }
+
+    public LatencyHistogram getFillLatency() {
+        return fillLatency;
+    }
+
+    public LatencyHistogram getIngressLatency() {
+        return ingressLatency;
+    }
+
+    public LatencyHistogram getInsertToFillLatency() {
+        return insertToFillLatency;
+    }
+
+    public LatencyHistogram getMatchLatency() {
+        return matchLatency;
+    }
+
+    public LatencyHistogram getLockWaitLatency() {
+        return lockWaitLatency;
+    }
+
+    // Replayed orders and fills say nothing about live latency
+    public void resetLatencies() {
+        fillLatency.reset();
+        ingressLatency.reset();
+        insertToFillLatency.reset();
+        matchLatency.reset();
+        lockWaitLatency.reset();
+    }
+
+    // Lock acquisitions so far, contended or not (0 for a single-writer book); read for reporting only
+    public long getLockAcquisitions() {
+        return lockAcquisitions;
+    }
+
+    public long getFillCount() {
+        return fillCount;
+    }
+
+    public long getEntryAcquisitions() {
+        return entryAcquisitions;
+    }
+
+    public long getEntryAllocations() {
+        return entryAllocations;
+    }
+
+    // Stop orders waiting for their trigger price; read for reporting only
+    public int getParkedStopCount() {
+        return stopOrders.size();
+    }
+
+    public long getTriggeredStops() {
+        return triggeredStops;
+    }
+
+    public long getUnfilledImmediateQuantity() {
+        return unfilledImmediateQuantity;
     }
 }
@@ -0,0 +1,13 @@
+package com.StockSimX;
+
+// Entry point traders use to send orders towards the order books.
+// Returns false when the order is not accepted: no book exists for its symbol, or a risk check turned it away.
+public interface OrderGateway {
+    boolean submit(Order order);
+
+    // Cancels, reduces or replaces a resting order; false when the gateway does not support amendments
+    // or knows no book for the symbol. An accepted amendment may still find the order already filled.
+    default boolean amend(OrderAmendment amendment) {
+        return false;
+    }
+}
@@ -0,0 +1,497 @@
+package com.StockSimX;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+// Append-only write-ahead journal of accepted orders, order amendments and executed trades.
+// Matching threads only publish the event reference into an MPSC ring buffer; one writer thread
+// encodes whole batches into a memory-mapped region of the file and forces them to disk according to
+// the fsync policy (group commit), so the matching path never waits on I/O or on a lock.
+//
+// Record layout (big-endian):
+//   int length | int crc32c(type..end) | byte type | long sequence | payload
+// The length is stored last, so a reader stops at the first record that is zero, truncated or fails its CRC.
+public class OrderJournal implements AutoCloseable {
+    public enum FsyncPolicy {
+        NEVER,          // leave write-back to the OS: survives a process crash, not a machine crash
+        EVERY_BATCH,    // force after every drained batch: one fsync covers every event in the batch
+        PERIODIC        // force at most once per interval while there is unforced data
+    }
+
+    public interface ReplayListener {
+        void onOrder(long sequence, Order order);
+
+        void onTrade(long sequence, Trade trade);
+
+        default void onAmendment(long sequence, OrderAmendment amendment) {
+        }
+    }
+
+    // Types 1-4 were earlier order and trade layouts; a journal holding them is rejected, not converted
+    private static final byte AMENDMENT_RECORD = 5;
+    private static final byte ORDER_RECORD = 6;
+    private static final byte TRADE_RECORD = 7;
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+    private static final int CHUNK_SIZE = 16 << 20;         // the file grows and is mapped 16MB at a time
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 4096;
+    private static final int MAX_CACHED_STRINGS = 1 << 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long firstSequence;           // journal sequence of ring sequence 0
+
+    private final RingBuffer<Object> ring;
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile boolean syncRequested;
+    private volatile boolean failed;            // after an I/O error events are counted as skipped, never block producers
+
+    // Writer thread state
+    private MappedByteBuffer mapped;
+    private ByteBuffer crcView;
+    private long mappedBase;                    // file offset of mapped position 0
+    private int dirtyFrom;                      // first mapped byte not forced yet
+    private long lastForceNanos;
+    private final CRC32C crc;
+    private final Map<String, byte[]> encodedStrings;
+
+    private volatile long writtenSequence;      // last ring sequence copied into the mapping
+    private volatile long durableSequence;      // last ring sequence forced to the device
+    private final AtomicLong forceCount;
+    private final AtomicLong skippedEvents;
+    private volatile long bytesWritten;
+
+    private OrderJournal(Path path, FileChannel channel, long endOffset, long nextSequence,
+                         FsyncPolicy fsyncPolicy, long fsyncIntervalMs) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncIntervalMs * 1_000_000L;
+        this.firstSequence = nextSequence;
+
+        this.ring = new RingBuffer<>(RING_CAPACITY, RingBuffer.WaitStrategy.PARK);
+        this.crc = new CRC32C();
+        this.encodedStrings = new HashMap<>();
+        this.writtenSequence = -1;
+        this.durableSequence = -1;
+        this.forceCount = new AtomicLong(0);
+        this.skippedEvents = new AtomicLong(0);
+        this.lastForceNanos = System.nanoTime();
+        map(endOffset);
+
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "OrderJournal-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Opens (or creates) the journal and continues after the last intact record
+    public static OrderJournal open(Path path, FsyncPolicy fsyncPolicy, long fsyncIntervalMs) throws IOException {
+        long[] end = scan(path, 0, null);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        EventLog.info("[JOURNAL] Opened %s at offset %d, next sequence %d (%s fsync)",
+                path, end[0], end[1] + 1, fsyncPolicy);
+        return new OrderJournal(path, channel, end[0], end[1] + 1, fsyncPolicy, fsyncIntervalMs);
+    }
+
+    // Reads every intact record in order; returns the last sequence seen, -1 for an empty or missing journal
+    public static long replay(Path path, ReplayListener listener) throws IOException {
+        return scan(path, 0, listener)[1];
+    }
+
+    // Same, but records before fromSequence are only stepped over, not checked or decoded
+    public static long replay(Path path, long fromSequence, ReplayListener listener) throws IOException {
+        return scan(path, fromSequence, listener)[1];
+    }
+
+    // Both return the journal sequence the event was given
+    public long append(Order order) {
+        return firstSequence + ring.publish(order);
+    }
+
+    public long append(Trade trade) {
+        return firstSequence + ring.publish(trade);
+    }
+
+    public long append(OrderAmendment amendment) {
+        return firstSequence + ring.publish(amendment);
+    }
+
+    // Blocks until everything appended so far is written and forced, whatever the fsync policy
+    public void flush() {
+        long target = ring.getClaimedSequence();
+        while (durableSequence < target && writer.isAlive() && !failed) {
+            syncRequested = true;
+            ring.wakeConsumer();
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ring.wakeConsumer();
+        try {
+            writer.join(5000);
+            channel.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            EventLog.error("[ERROR] Closing journal %s failed: %s", path, ex.getMessage());
+        }
+        EventLog.info("[JOURNAL] Closed %s after %d events (%d forces)", path, getWrittenEvents(), getForceCount());
+    }
+
+    private void writeLoop() {
+        RingBuffer.BatchHandler<Object> encoder = this::encode;
+        int idleCount = 0;
+        while (running || ring.getDepth() > 0) {
+            if (ring.drain(encoder, MAX_BATCH) > 0) {
+                idleCount = 0;
+                if (fsyncPolicy == FsyncPolicy.EVERY_BATCH || syncRequested || periodicForceDue()) {
+                    force();
+                }
+            } else {
+                if (syncRequested || periodicForceDue()) {
+                    force();
+                }
+                ring.awaitEvents(idleCount++);
+            }
+        }
+        force();
+    }
+
+    private void fail(Exception ex) {
+        if (!failed) {
+            failed = true;
+            EventLog.error("[ERROR] Journal %s failed, further events are not journaled: %s", path, ex.getMessage());
+        }
+    }
+
+    private boolean periodicForceDue() {
+        return fsyncPolicy == FsyncPolicy.PERIODIC && durableSequence < writtenSequence
+                && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos;
+    }
+
+    private void encode(Object event, long sequence, boolean endOfBatch) {
+        if (failed) {
+            skippedEvents.incrementAndGet();
+            return;
+        }
+        try {
+            if (event instanceof Order order) {
+                writeOrder(order, firstSequence + sequence);
+            } else if (event instanceof OrderAmendment amendment) {
+                writeAmendment(amendment, firstSequence + sequence);
+            } else {
+                writeTrade((Trade) event, firstSequence + sequence);
+            }
+        } catch (IllegalArgumentException ex) {
+            skippedEvents.incrementAndGet();
+            EventLog.error("[ERROR] Journal skipped event %d: %s", firstSequence + sequence, ex.getMessage());
+        } catch (IOException | RuntimeException ex) {
+            skippedEvents.incrementAndGet();
+            fail(ex);
+            return;
+        }
+        writtenSequence = sequence;
+    }
+
+    private void writeOrder(Order order, long sequence) throws IOException {
+        byte[] traderId = encoded(order.getTraderId());
+        byte[] symbol = encoded(order.getSymbol());
+        int length = HEADER_SIZE + 8 + 8 + 1 + 1 + 1 + 4 + 8 + 8 + 8 + 2 + traderId.length + 2 + symbol.length;
+
+        int start = beginRecord(length, ORDER_RECORD, sequence);
+        mapped.putLong(order.getOrderId());
+        mapped.putLong(order.getTimestamp());
+        mapped.put((byte) order.getType().ordinal());
+        mapped.put((byte) order.getKind().ordinal());
+        mapped.put((byte) order.getTimeInForce().ordinal());
+        mapped.putInt(order.getQuantity());
+        mapped.putLong(order.getPriceTicks());
+        mapped.putLong(order.getStopPriceTicks());
+        mapped.putDouble(order.getTickSize());
+        putString(traderId);
+        putString(symbol);
+        endRecord(start, length);
+    }
+
+    private void writeAmendment(OrderAmendment amendment, long sequence) throws IOException {
+        byte[] symbol = encoded(amendment.getSymbol());
+        int length = HEADER_SIZE + 1 + 8 + 4 + 8 + 8 + 2 + symbol.length;
+
+        int start = beginRecord(length, AMENDMENT_RECORD, sequence);
+        mapped.put((byte) amendment.getAction().ordinal());
+        mapped.putLong(amendment.getOrderId());
+        mapped.putInt(amendment.getQuantity());
+        mapped.putLong(amendment.getPriceTicks());
+        mapped.putLong(amendment.getTimestamp());
+        putString(symbol);
+        endRecord(start, length);
+    }
+
+    private void writeTrade(Trade trade, long sequence) throws IOException {
+        byte[] buyer = encoded(trade.buyTraderId());
+        byte[] seller = encoded(trade.sellTraderId());
+        byte[] symbol = encoded(trade.symbol());
+        int length = HEADER_SIZE + 8 + 1 + 4 + 8 + 8 + 8 + 8 + 8 + 8
+                + 2 + buyer.length + 2 + seller.length + 2 + symbol.length;
+
+        int start = beginRecord(length, TRADE_RECORD, sequence);
+        mapped.putLong(trade.executionTimestamp());
+        mapped.put((byte) trade.aggressorSide().ordinal());
+        mapped.putInt(trade.quantity());
+        mapped.putLong(trade.priceTicks());
+        mapped.putDouble(trade.tickSize());
+        mapped.putLong(trade.buyOrderId());
+        mapped.putLong(trade.sellOrderId());
+        mapped.putLong(trade.buyOrderTimestamp());
+        mapped.putLong(trade.sellOrderTimestamp());
+        putString(buyer);
+        putString(seller);
+        putString(symbol);
+        endRecord(start, length);
+    }
+
+    private int beginRecord(int length, byte type, long sequence) throws IOException {
+        if (mapped.remaining() < length) {
+            // Records never straddle two mappings: map the next chunk starting at the current end
+            forceMapped();
+            map(mappedBase + mapped.position());
+        }
+        int start = mapped.position();
+        mapped.position(start + 8);
+        mapped.put(type);
+        mapped.putLong(sequence);
+        return start;
+    }
+
+    private void endRecord(int start, int length) {
+        crcView.limit(start + length).position(start + 8);
+        crc.reset();
+        crc.update(crcView);
+        mapped.putInt(start + 4, (int) crc.getValue());
+        // Length goes in last: until it is non-zero, readers treat the record as not written
+        mapped.putInt(start, length);
+        bytesWritten += length;
+    }
+
+    private void putString(byte[] bytes) {
+        mapped.putShort((short) bytes.length);
+        mapped.put(bytes);
+    }
+
+    // Trader ids and symbols repeat constantly, so their UTF-8 form is cached by the writer thread
+    private byte[] encoded(String value) {
+        byte[] bytes = encodedStrings.get(value);
+        if (bytes == null) {
+            bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("String field longer than 65535 bytes");
+            }
+            if (encodedStrings.size() < MAX_CACHED_STRINGS) {
+                encodedStrings.put(value, bytes);
+            }
+        }
+        return bytes;
+    }
+
+    private void map(long offset) throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, offset, CHUNK_SIZE);
+        crcView = mapped.duplicate();
+        mappedBase = offset;
+        dirtyFrom = 0;
+    }
+
+    private void force() {
+        if (failed) {
+            return;
+        }
+        try {
+            forceMapped();
+            durableSequence = writtenSequence;
+        } catch (RuntimeException ex) {
+            fail(ex);
+        }
+        syncRequested = false;
+    }
+
+    private void forceMapped() {
+        int position = mapped.position();
+        if (position > dirtyFrom) {
+            mapped.force(dirtyFrom, position - dirtyFrom);
+            dirtyFrom = position;
+            forceCount.incrementAndGet();
+        }
+        lastForceNanos = System.nanoTime();
+    }
+
+    // Walks the journal from the start; returns {offset after the last intact record, last sequence}
+    private static long[] scan(Path path, long fromSequence, ReplayListener listener) throws IOException {
+        if (!Files.exists(path)) {
+            return new long[]{0, -1};
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            long lastSequence = -1;
+            CRC32C crc = new CRC32C();
+            MappedByteBuffer window = null;
+            long windowBase = 0;
+
+            while (offset + HEADER_SIZE <= size) {
+                if (window == null || offset + HEADER_SIZE > windowBase + window.limit()) {
+                    windowBase = offset;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(CHUNK_SIZE, size - offset));
+                }
+                int position = (int) (offset - windowBase);
+                int length = window.getInt(position);
+                if (length < HEADER_SIZE || length > CHUNK_SIZE || offset + length > size) {
+                    break;
+                }
+                if (position + length > window.limit()) {
+                    window = null;      // record crosses the window: remap starting at it
+                    continue;
+                }
+
+                long sequence = window.getLong(position + 9);
+                if (sequence < fromSequence) {
+                    lastSequence = sequence;
+                    offset += length;
+                    continue;
+                }
+
+                ByteBuffer record = window.duplicate().limit(position + length).position(position + 8);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != window.getInt(position + 4)) {
+                    break;              // torn write at the tail
+                }
+
+                record.position(position + 8);
+                byte type = record.get();
+                record.getLong();
+                if (type != ORDER_RECORD && type != AMENDMENT_RECORD && type != TRADE_RECORD) {
+                    throw new IOException("Unsupported journal record type " + type + " at offset " + offset);
+                }
+                if (listener != null) {
+                    if (type == ORDER_RECORD) {
+                        listener.onOrder(sequence, readOrder(record));
+                    } else if (type == AMENDMENT_RECORD) {
+                        listener.onAmendment(sequence, readAmendment(record));
+                    } else {
+                        listener.onTrade(sequence, readTrade(record));
+                    }
+                }
+                lastSequence = sequence;
+                offset += length;
+            }
+            return new long[]{offset, lastSequence};
+        }
+    }
+
+    private static Order readOrder(ByteBuffer record) {
+        long orderId = record.getLong();
+        long timestamp = record.getLong();
+        OrderType type = OrderType.values()[record.get()];
+        OrderKind kind = OrderKind.values()[record.get()];
+        TimeInForce timeInForce = TimeInForce.values()[record.get()];
+        int quantity = record.getInt();
+        long priceTicks = record.getLong();
+        long stopPriceTicks = record.getLong();
+        double tickSize = record.getDouble();
+        String traderId = getString(record);
+        String symbol = getString(record);
+        return new Order(orderId, traderId, symbol, type, kind, timeInForce, quantity, priceTicks, stopPriceTicks,
+                tickSize, timestamp);
+    }
+
+    private static OrderAmendment readAmendment(ByteBuffer record) {
+        OrderAmendment.Action action = OrderAmendment.Action.values()[record.get()];
+        long orderId = record.getLong();
+        int quantity = record.getInt();
+        long priceTicks = record.getLong();
+        long timestamp = record.getLong();
+        String symbol = getString(record);
+        return new OrderAmendment(action, orderId, symbol, quantity, priceTicks, timestamp);
+    }
+
+    private static Trade readTrade(ByteBuffer record) {
+        long executionTimestamp = record.getLong();
+        OrderType aggressorSide = OrderType.values()[record.get()];
+        int quantity = record.getInt();
+        long priceTicks = record.getLong();
+        double tickSize = record.getDouble();
+        long buyOrderId = record.getLong();
+        long sellOrderId = record.getLong();
+        long buyOrderTimestamp = record.getLong();
+        long sellOrderTimestamp = record.getLong();
+        String buyTraderId = getString(record);
+        String sellTraderId = getString(record);
+        String symbol = getString(record);
+        return new Trade(buyTraderId, sellTraderId, symbol, quantity, priceTicks, tickSize, buyOrderId, sellOrderId,
+                buyOrderTimestamp, sellOrderTimestamp, executionTimestamp, aggressorSide);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public long getWrittenEvents() {
+        return writtenSequence + 1;
+    }
+
+    public long getDurableEvents() {
+        return durableSequence + 1;
+    }
+
+    public long getForceCount() {
+        return forceCount.get();
+    }
+
+    public long getSkippedEvents() {
+        return skippedEvents.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getPendingEvents() {
+        return ring.getDepth();
+    }
+
+    public long getProducerWaits() {
+        return ring.getProducerWaits();
+    }
+}
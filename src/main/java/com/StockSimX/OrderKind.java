@@ -0,0 +1,12 @@
+package com.StockSimX;
+
+public enum OrderKind {
+    LIMIT,          // executes at its limit price or better
+    MARKET,         // executes at any price; whatever the book cannot fill right away is cancelled
+    STOP,           // parked until the last trade reaches the stop price, then becomes a MARKET order
+    STOP_LIMIT;     // parked until the last trade reaches the stop price, then becomes a LIMIT order
+
+    public boolean isStop() {
+        return this == STOP || this == STOP_LIMIT;
+    }
+}
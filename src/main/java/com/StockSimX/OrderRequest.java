@@ -0,0 +1,7 @@
+package com.StockSimX;
+
+// Anything a trader sends towards a book: a new Order or an OrderAmendment of a resting one.
+// Both travel the same ingress path, so a cancel can never overtake the order it refers to.
+public interface OrderRequest {
+    String getSymbol();
+}
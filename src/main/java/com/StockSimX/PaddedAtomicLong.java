@@ -0,0 +1,18 @@
+package com.StockSimX;
+
+import java.io.Serial;
+import java.util.concurrent.atomic.AtomicLong;
+
+// AtomicLong followed by 56 bytes of padding, so a hot counter does not share
+// its cache line with the next object allocated next to it
+public class PaddedAtomicLong extends AtomicLong {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+    public PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+}
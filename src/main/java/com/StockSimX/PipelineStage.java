@@ -0,0 +1,136 @@
+package com.StockSimX;
+
+// One stage of the polling engine's pipeline: a bounded ring buffer drained by the stage's own thread.
+// Any number of threads publish into it; one that finds the ring full waits for the consumer to free a slot
+// (backpressure, counted as a producer wait), so events are never dropped and nobody ever waits on a future.
+// Stopping lets the thread drain everything already published before it exits.
+public final class PipelineStage<E> implements Runnable {
+    private static final int MAX_BATCH = 256;
+
+    // Counters of one stage read at one point, the shape JMX and the metrics dump report
+    public static final class Snapshot {
+        private final String name;
+        private final long queueDepth;
+        private final long processed;
+        private final long producerWaits;
+
+        public Snapshot(String name, long queueDepth, long processed, long producerWaits) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.processed = processed;
+            this.producerWaits = producerWaits;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getProducerWaits() {
+            return producerWaits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d processed, queue %d, %d producer waits",
+                    name, processed, queueDepth, producerWaits);
+        }
+    }
+
+    private final String name;
+    private final RingBuffer<E> queue;
+    private final RingBuffer.BatchHandler<E> handler;
+    private final Thread thread;
+
+    private volatile boolean running;
+    private final PaddedAtomicLong processed;   // only the stage thread writes it
+
+    public PipelineStage(String name, int capacity, RingBuffer.WaitStrategy waitStrategy,
+                         RingBuffer.BatchHandler<E> handler) {
+        this.name = name;
+        this.queue = new RingBuffer<>(capacity, waitStrategy);
+        this.handler = (event, sequence, endOfBatch) -> {
+            try {
+                handler.onEvent(event, sequence, endOfBatch);
+            } catch (RuntimeException ex) {
+                // One bad event must not stop the stage for everything behind it
+                EventLog.error("[ERROR] %s stage failed: %s", name, ex.getMessage());
+            }
+        };
+        this.processed = new PaddedAtomicLong(0);
+        this.thread = new Thread(this, "Pipeline-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        queue.wakeConsumer();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits while the ring is full
+    public void publish(E event) {
+        queue.publish(event);
+    }
+
+    @Override
+    public void run() {
+        int idleCount = 0;
+        while (running) {
+            if (drain() > 0) {
+                idleCount = 0;
+            } else {
+                queue.awaitEvents(idleCount++);
+            }
+        }
+
+        // Whatever was published before stop still goes through
+        while (drain() > 0) {
+        }
+        EventLog.info("[PIPELINE] %s stage stopped after %d events", name, processed.get());
+    }
+
+    private int drain() {
+        int drained = queue.drain(handler, MAX_BATCH);
+        if (drained > 0) {
+            processed.setOpaque(processed.getPlain() + drained);
+        }
+        return drained;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getQueueDepth() {
+        return queue.getDepth();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getProducerWaits() {
+        return queue.getProducerWaits();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(name, getQueueDepth(), getProcessed(), getProducerWaits());
+    }
+}
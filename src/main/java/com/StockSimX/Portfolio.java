@@ -0,0 +1,130 @@
+package com.StockSimX;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A trader's cash, positions and P&L. State is striped per symbol: each Position is written on its own, so
+// fills in different symbols settle in parallel and nothing here is shared between traders. Trader-wide
+// figures are added up from the positions when read, O(symbols held) with each position marked in O(1).
+public class Portfolio {
+    // Follows the trader's orders share by share, by order id: every fill as it settles, and whatever a book
+    // took off an order without trading it (see OrderBook.QuantityListener). Called on the settling thread.
+    public interface OrderTracker {
+        void onFill(long orderId, int quantity);
+
+        void onRemoved(long orderId, int quantity);
+    }
+
+    private final String traderId;
+    private final double initialCash;
+    private final Map<String, Stock> stocks;
+    private final ConcurrentHashMap<String, Position> positions;
+    private volatile OrderTracker orderTracker;
+
+    Portfolio(String traderId, double initialCash, Map<String, Stock> stocks) {
+        this.traderId = traderId;
+        this.initialCash = initialCash;
+        this.stocks = stocks;
+        this.positions = new ConcurrentHashMap<>();
+    }
+
+    void settle(Trade trade, OrderType side) {
+        Position position = positions.get(trade.symbol());
+        if (position == null) {
+            position = positions.computeIfAbsent(trade.symbol(), symbol -> {
+                Stock stock = stocks.get(symbol);
+                return new Position(symbol, stock == null ? trade.tickSize() : stock.getTickSize(), stock);
+            });
+        }
+        // A replayed trade may come from an older tick grid
+        long priceTicks = (Double.compare(trade.tickSize(), position.getTickSize()) == 0)
+                ? trade.priceTicks() : Ticks.nearest(trade.price(), position.getTickSize());
+        position.apply(side == OrderType.BUY ? trade.quantity() : -trade.quantity(), priceTicks);
+        // After the position, so a tracker never sees a fill the position does not hold yet
+        OrderTracker tracker = orderTracker;
+        if (tracker != null) {
+            tracker.onFill(side == OrderType.BUY ? trade.buyOrderId() : trade.sellOrderId(), trade.quantity());
+        }
+    }
+
+    void removed(long orderId, int quantity) {
+        OrderTracker tracker = orderTracker;
+        if (tracker != null) {
+            tracker.onRemoved(orderId, quantity);
+        }
+    }
+
+    public void setOrderTracker(OrderTracker orderTracker) {
+        this.orderTracker = orderTracker;
+    }
+
+    public String getTraderId() {
+        return traderId;
+    }
+
+    public double getInitialCash() {
+        return initialCash;
+    }
+
+    // Null if the trader never traded the symbol
+    public Position getPosition(String symbol) {
+        return positions.get(symbol);
+    }
+
+    public Collection<Position> getPositions() {
+        return positions.values();
+    }
+
+    public List<Position.Snapshot> getHoldings() {
+        List<Position.Snapshot> holdings = new ArrayList<>();
+        for (Position position : positions.values()) {
+            Position.Snapshot snapshot = position.getSnapshot();
+            if (snapshot.quantity() != 0) {
+                holdings.add(snapshot);
+            }
+        }
+        return holdings;
+    }
+
+    public double getCash() {
+        double cash = initialCash;
+        for (Position position : positions.values()) {
+            cash -= position.getCashSpent();
+        }
+        return cash;
+    }
+
+    public double getRealizedPnl() {
+        double realized = 0;
+        for (Position position : positions.values()) {
+            realized += position.getRealizedPnl();
+        }
+        return realized;
+    }
+
+    public double getUnrealizedPnl() {
+        double unrealized = 0;
+        for (Position position : positions.values()) {
+            unrealized += position.getUnrealizedPnl();
+        }
+        return unrealized;
+    }
+
+    public int getOpenPositions() {
+        int open = 0;
+        for (Position position : positions.values()) {
+            if (position.getQuantity() != 0) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    public String getSummary() {
+        return String.format("cash $%.2f, %d open positions, P&L realized $%.2f unrealized $%.2f",
+                getCash(), getOpenPositions(), getRealizedPnl(), getUnrealizedPnl());
+    }
+}
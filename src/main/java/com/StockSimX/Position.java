@@ -0,0 +1,183 @@
+package com.StockSimX;
+
+import java.lang.invoke.VarHandle;
+
+// One trader's holding in one symbol: signed quantity (negative when short), the cost of the open quantity and
+// the profit realized by closing, all in ticks of the symbol's tick size. Fills reduce the position at its
+// average cost first and open the other side with whatever is left over. Cash is not kept separately: what a
+// position has done to the trader's cash is always its realized P&L less the cost of what it still holds.
+// Settlement writes it through the same seqlock protocol Stock uses; two writers only meet when the same trader
+// trades the same symbol on two matching threads at once. Reads never block, and marking to market is O(1)
+// against the stock's current (last trade) price.
+public final class Position {
+    private static final int SPIN_TRIES = 64;
+
+    private final String symbol;
+    private final double tickSize;
+    private final Stock stock;                  // mark price source; null for a symbol outside the universe
+
+    private final PaddedAtomicLong version;     // odd while a fill is being applied
+
+    // Guarded by version
+    private long quantity;
+    private long costTicks;                     // sum of quantity * price over the open lots, signed like quantity
+    private long realizedTicks;
+    private long lastPriceTicks;                // mark of last resort when there is no stock
+    private long fills;
+
+    // One consistent view of the position, with prices in currency
+    public record Snapshot(String symbol,
+                           long quantity,
+                           double averageCost,
+                           double realizedPnl,
+                           double unrealizedPnl,
+                           double marketValue,
+                           long fills) {
+    }
+
+    Position(String symbol, double tickSize, Stock stock) {
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.stock = stock;
+        this.version = new PaddedAtomicLong(0);
+        this.lastPriceTicks = Ticks.NONE;
+    }
+
+    // signedQuantity is positive for a buy and negative for a sell
+    void apply(long signedQuantity, long priceTicks) {
+        long writeVersion = beginWrite();
+        long remaining = Math.abs(signedQuantity);
+        if (quantity != 0 && Long.signum(quantity) != Long.signum(signedQuantity)) {
+            long held = Math.abs(quantity);
+            long closed = Math.min(remaining, held);
+            long side = Long.signum(quantity);
+            long closedCost = closed == held ? costTicks : Math.round((double) costTicks * closed / held);
+            realizedTicks += side * closed * priceTicks - closedCost;
+            costTicks -= closedCost;
+            quantity -= side * closed;
+            remaining -= closed;
+        }
+        if (remaining > 0) {
+            long opened = Long.signum(signedQuantity) * remaining;
+            quantity += opened;
+            costTicks += opened * priceTicks;
+        }
+        lastPriceTicks = priceTicks;
+        fills++;
+        endWrite(writeVersion);
+    }
+
+    public long getQuantity() {
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long held = quantity;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return held;
+            }
+            backOff(attempt);
+        }
+    }
+
+    // What the open quantity would make or lose if closed at the stock's current price
+    public double getUnrealizedPnl() {
+        long markTicks = markTicks();
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long held = quantity;
+            long cost = costTicks;
+            long mark = markTicks == Ticks.NONE ? lastPriceTicks : markTicks;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return held == 0 ? 0 : (held * mark - cost) * tickSize;
+            }
+            backOff(attempt);
+        }
+    }
+
+    public Snapshot getSnapshot() {
+        long markTicks = markTicks();
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long held = quantity;
+            long cost = costTicks;
+            long realized = realizedTicks;
+            long mark = markTicks == Ticks.NONE ? lastPriceTicks : markTicks;
+            long count = fills;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                double averageCost = held == 0 ? Double.NaN : (double) cost / held * tickSize;
+                double unrealized = held == 0 ? 0 : (held * mark - cost) * tickSize;
+                return new Snapshot(symbol, held, averageCost, realized * tickSize, unrealized,
+                        held * mark * tickSize, count);
+            }
+            backOff(attempt);
+        }
+    }
+
+    // Net cash paid out for this symbol: the cost of the open quantity less the profit realized
+    double getCashSpent() {
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long spent = costTicks - realizedTicks;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return spent * tickSize;
+            }
+            backOff(attempt);
+        }
+    }
+
+    double getRealizedPnl() {
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long realized = realizedTicks;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return realized * tickSize;
+            }
+            backOff(attempt);
+        }
+    }
+
+    // The stock's price in this position's ticks
+    private long markTicks() {
+        if (stock == null) {
+            return Ticks.NONE;
+        }
+        if (Double.compare(stock.getTickSize(), tickSize) == 0) {
+            return stock.getCurrentPriceTicks();
+        }
+        return Ticks.nearest(stock.getCurrentPrice(), tickSize);
+    }
+
+    private long beginWrite() {
+        for (int attempt = 0; ; attempt++) {
+            long current = version.get();
+            if ((current & 1) == 0 && version.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+            backOff(attempt);
+        }
+    }
+
+    private void endWrite(long writeVersion) {
+        version.setRelease(writeVersion + 1);
+    }
+
+    private static void backOff(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+}
@@ -0,0 +1,26 @@
+package com.StockSimX;
+
+// Writes every order and amendment traders send into a journal before passing it on, so the generated order
+// stream can later be replayed through a MatchingEngine (see StockSimulator's replay mode). Requests are
+// recorded whether or not the gateway behind accepts them; the recording holds no trades.
+class RecordingGateway implements OrderGateway {
+    private final OrderGateway gateway;
+    private final OrderJournal recording;
+
+    RecordingGateway(OrderGateway gateway, OrderJournal recording) {
+        this.gateway = gateway;
+        this.recording = recording;
+    }
+
+    @Override
+    public boolean submit(Order order) {
+        recording.append(order);
+        return gateway.submit(order);
+    }
+
+    @Override
+    public boolean amend(OrderAmendment amendment) {
+        recording.append(amendment);
+        return gateway.amend(amendment);
+    }
+}
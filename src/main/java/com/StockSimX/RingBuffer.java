@@ -0,0 +1,179 @@
+package com.StockSimX;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Preallocated multi-producer / single-consumer ring buffer (LMAX Disruptor style), used for order
+// ingress and the journal. Producers claim a sequence with one atomic increment, write the event into the slot for that
+// sequence and mark the slot published for the current lap. The consumer reads every contiguous
+// published sequence in one batch and only then publishes its own progress. No locks or monitors
+// are involved, and slots are reused lap after lap, so enqueueing allocates nothing.
+public class RingBuffer<E> {
+    public enum WaitStrategy {
+        BUSY_SPIN,      // lowest latency, burns a core per consumer
+        YIELD,          // spins briefly, then yields the CPU
+        PARK            // parks the consumer until a producer wakes it up
+    }
+
+    public interface BatchHandler<E> {
+        void onEvent(E event, long sequence, boolean endOfBatch);
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final int capacity;
+    private final int mask;
+    private final int indexShift;
+    private final WaitStrategy waitStrategy;
+
+    private final E[] slots;
+    private final AtomicIntegerArray publishedLap;
+    private final AtomicLong claimSequence;         // next sequence to hand out to a producer
+    private final PaddedAtomicLong consumedSequence; // last sequence the consumer has finished with
+
+    private volatile Thread consumerThread;
+    private volatile boolean consumerParked;
+    private final AtomicLong producerWaits;
+
+    @SuppressWarnings("unchecked")
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.waitStrategy = waitStrategy;
+
+        this.slots = (E[]) new Object[capacity];
+        this.publishedLap = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            publishedLap.set(i, -1);
+        }
+        this.claimSequence = new PaddedAtomicLong(0);
+        this.consumedSequence = new PaddedAtomicLong(-1);
+        this.producerWaits = new AtomicLong(0);
+    }
+
+    // Returns the sequence the event was published at
+    public long publish(E event) {
+        long sequence = claimSequence.getAndIncrement();
+
+        // Wait (never on a monitor) until the consumer has freed the slot from the previous lap
+        long wrapPoint = sequence - capacity;
+        if (wrapPoint > consumedSequence.get()) {
+            producerWaits.incrementAndGet();
+            int tries = 0;
+            while (wrapPoint > consumedSequence.get()) {
+                backOff(tries++);
+                wakeConsumer();
+            }
+        }
+
+        int index = (int) sequence & mask;
+        slots[index] = event;
+        if (waitStrategy == WaitStrategy.PARK) {
+            // Full fence: the store must be visible before we check whether the consumer went to sleep
+            publishedLap.set(index, (int) (sequence >>> indexShift));
+            if (consumerParked) {
+                wakeConsumer();
+            }
+        } else {
+            publishedLap.lazySet(index, (int) (sequence >>> indexShift));
+        }
+        return sequence;
+    }
+
+    // Hands every contiguous published event (up to maxBatch) to the handler; returns how many were consumed
+    public int drain(BatchHandler<E> handler, int maxBatch) {
+        long next = consumedSequence.get() + 1;
+        long limit = Math.min(claimSequence.get() - 1, next + maxBatch - 1);
+
+        long available = next - 1;
+        for (long sequence = next; sequence <= limit; sequence++) {
+            if (publishedLap.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                break;
+            }
+            available = sequence;
+        }
+        if (available < next) {
+            return 0;
+        }
+
+        for (long sequence = next; sequence <= available; sequence++) {
+            int index = (int) sequence & mask;
+            E event = slots[index];
+            slots[index] = null;
+            handler.onEvent(event, sequence, sequence == available);
+        }
+        consumedSequence.lazySet(available);
+        return (int) (available - next + 1);
+    }
+
+    // Called by the consumer when drain() found nothing; idleCount is the number of empty drains in a row
+    public void awaitEvents(int idleCount) {
+        if (waitStrategy != WaitStrategy.PARK) {
+            backOff(idleCount);
+            return;
+        }
+
+        consumerThread = Thread.currentThread();
+        consumerParked = true;
+        if (!hasPublished()) {
+            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        }
+        consumerParked = false;
+    }
+
+    // Wakes a parked consumer, e.g. when shutting down
+    public void wakeConsumer() {
+        Thread consumer = consumerThread;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private boolean hasPublished() {
+        long next = consumedSequence.get() + 1;
+        return publishedLap.get((int) next & mask) == (int) (next >>> indexShift);
+    }
+
+    private void backOff(int tries) {
+        if (waitStrategy == WaitStrategy.BUSY_SPIN || tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (waitStrategy == WaitStrategy.YIELD) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(1_000);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    // Last sequence handed out to a producer, -1 before the first one
+    public long getClaimedSequence() {
+        return claimSequence.get() - 1;
+    }
+
+    // Last sequence the consumer has fully handled, -1 before the first one
+    public long getConsumedSequence() {
+        return consumedSequence.get();
+    }
+
+    // Claimed but not yet consumed sequences, including slots still being written
+    public long getDepth() {
+        return claimSequence.get() - consumedSequence.get() - 1;
+    }
+
+    public long getProducerWaits() {
+        return producerWaits.get();
+    }
+}
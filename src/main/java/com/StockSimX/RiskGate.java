@@ -0,0 +1,321 @@
+package com.StockSimX;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Pre-trade risk checks between a trader and the order books. Each trader gets its own gate, and the trader's
+// thread is the only one that runs its checks: the order-rate bucket is two plain longs and the rejection
+// counters are published with opaque stores for monitoring, with no locks. An order is rejected (submit
+// returns false) when
+// - its quantity is above maxOrderQuantity,
+// - its limit price is further than collarBasisPoints from the stock's current price (market and stop orders
+//   have no limit price to check),
+// - the trader's position in the symbol would end up beyond maxOpenQuantity shares if the order and every
+//   order the trader still has working on the same side filled completely, or
+// - the trader has used up its maxOrdersPerSecond, refilled continuously and at most one second's worth banked.
+// Resting orders and stops are working from the moment they pass until every share is accounted for, and each
+// one is followed by its own id through the portfolio's OrderTracker: a fill comes off its order as it
+// settles, into the position, and a cancel, reduce or replace changes it by what the book actually took off or
+// added when it applied it. The check never counts a share less than the books can still trade. Market, IOC
+// and FOK orders are checked the same way but are never working: they are done on arrival, and their fills
+// only show in the position. Replacements are held to the size and collar checks, the shares they would add
+// and the rate; the added shares count as soon as the replace is sent. Cancels and reductions only lower risk
+// and always pass. The rate follows SimulationClock, so seeded runs throttle the same way every time.
+public class RiskGate implements OrderGateway {
+    public enum Rejection {
+        ORDER_SIZE,
+        PRICE_COLLAR,
+        OPEN_QUANTITY,
+        ORDER_RATE
+    }
+
+    public record Limits(int maxOrderQuantity, int collarBasisPoints, long maxOpenQuantity, int maxOrdersPerSecond) {
+    }
+
+    private static final long TOKEN = 1000;         // one order, in the per-millisecond units the bucket refills in
+
+    private final OrderGateway gateway;
+    private final Map<String, Stock> stocks;
+    private final Portfolio portfolio;              // null: no position to check
+    private final Limits limits;
+
+    // Only the trader's thread touches these
+    private long rateTokens;
+    private long lastRefillMillis;
+    private final Map<String, Exposure> exposures;
+
+    private final WorkingOrders workingOrders;      // also updated by the threads that settle and amend orders
+    private final AtomicLongArray rejections;       // indexed by Rejection ordinal
+
+    public RiskGate(OrderGateway gateway, Map<String, Stock> stocks, Portfolio portfolio, Limits limits) {
+        this.gateway = gateway;
+        this.stocks = stocks;
+        this.portfolio = portfolio;
+        this.limits = limits;
+        this.rateTokens = limits.maxOrdersPerSecond() * TOKEN;
+        this.lastRefillMillis = SimulationClock.currentTimeMillis();
+        this.exposures = new HashMap<>();
+        this.workingOrders = new WorkingOrders();
+        this.rejections = new AtomicLongArray(Rejection.values().length);
+        if (portfolio != null) {
+            portfolio.setOrderTracker(workingOrders);
+        }
+    }
+
+    @Override
+    public boolean submit(Order order) {
+        Rejection rejection = check(order);
+        if (rejection != null) {
+            reject(rejection);
+            return false;
+        }
+        if (portfolio == null || !(order.isResting() || order.getKind().isStop())) {
+            return gateway.submit(order);
+        }
+        // Working before it reaches a book, which may fill it on this very thread
+        workingOrders.open(order, exposure(order.getSymbol()));
+        if (!gateway.submit(order)) {
+            workingOrders.onRemoved(order.getOrderId(), order.getQuantity());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean amend(OrderAmendment amendment) {
+        if (amendment.getAction() != OrderAmendment.Action.REPLACE) {
+            return gateway.amend(amendment);
+        }
+        WorkingOrder working = workingOrders.get(amendment.getOrderId());
+        int added = working == null ? 0 : amendment.getQuantity() - working.getRemaining();
+        Rejection rejection = null;
+        if (amendment.getQuantity() > limits.maxOrderQuantity()) {
+            rejection = Rejection.ORDER_SIZE;
+        } else if (outsideCollar(amendment.getSymbol(), amendment.getPriceTicks(), Double.NaN)) {
+            rejection = Rejection.PRICE_COLLAR;
+        } else if (added > 0 && beyondOpenQuantity(working.exposure, working.side, added)) {
+            rejection = Rejection.OPEN_QUANTITY;
+        } else if (!takeRateToken()) {
+            rejection = Rejection.ORDER_RATE;
+        }
+        if (rejection != null) {
+            reject(rejection);
+            return false;
+        }
+        if (added > 0 && !working.reserve(added)) {
+            added = 0;      // filled or cancelled meanwhile: the book will not find it
+        }
+        boolean accepted = gateway.amend(amendment);
+        if (!accepted && added > 0) {
+            working.release(added);
+        }
+        return accepted;
+    }
+
+    // Null when the order passes every check; cheapest checks first, the rate last so a rejected order
+    // does not use up a token
+    public Rejection check(Order order) {
+        if (order.getQuantity() > limits.maxOrderQuantity()) {
+            return Rejection.ORDER_SIZE;
+        }
+        if (outsideCollar(order.getSymbol(), order.getPriceTicks(), order.getTickSize())) {
+            return Rejection.PRICE_COLLAR;
+        }
+        if (portfolio != null && beyondOpenQuantity(exposure(order.getSymbol()), order.getType(), order.getQuantity())) {
+            return Rejection.OPEN_QUANTITY;
+        }
+        if (!takeRateToken()) {
+            return Rejection.ORDER_RATE;
+        }
+        return null;
+    }
+
+    // Whether adding quantity on one side could take the position beyond maxOpenQuantity, counting everything
+    // already working on that side; orders that move the position back towards flat always pass. The working
+    // quantity is read before the position: a fill settling in between is then counted twice, never missed.
+    private boolean beyondOpenQuantity(Exposure exposure, OrderType side, long quantity) {
+        long working = exposure.getWorking(side);
+        long held = exposure.getHeld(portfolio);
+        return side == OrderType.BUY ? held + working + quantity > limits.maxOpenQuantity()
+                : held - working - quantity < -limits.maxOpenQuantity();
+    }
+
+    private Exposure exposure(String symbol) {
+        Exposure exposure = exposures.get(symbol);
+        if (exposure == null) {
+            exposure = new Exposure(symbol);
+            exposures.put(symbol, exposure);
+        }
+        return exposure;
+    }
+
+    // tickSize is the price's grid, NaN for the stock's own
+    private boolean outsideCollar(String symbol, long priceTicks, double tickSize) {
+        if (priceTicks == Ticks.NONE) {
+            return false;
+        }
+        Stock stock = stocks.get(symbol);
+        if (stock == null) {
+            // No reference price; the gateway behind turns away a symbol it has no book for
+            return false;
+        }
+        long referenceTicks = (Double.isNaN(tickSize) || Double.compare(tickSize, stock.getTickSize()) == 0)
+                ? stock.getCurrentPriceTicks() : Ticks.nearest(stock.getCurrentPrice(), tickSize);
+        long collarTicks = referenceTicks * limits.collarBasisPoints() / 10_000;
+        return Math.abs(priceTicks - referenceTicks) > collarTicks;
+    }
+
+    private boolean takeRateToken() {
+        long now = SimulationClock.currentTimeMillis();
+        long elapsed = now - lastRefillMillis;
+        if (elapsed > 0) {
+            long capacity = limits.maxOrdersPerSecond() * TOKEN;
+            // Capped before multiplying, so a long idle gap cannot overflow
+            rateTokens = Math.min(capacity, rateTokens + Math.min(elapsed, 1000) * limits.maxOrdersPerSecond());
+            lastRefillMillis = now;
+        }
+        if (rateTokens < TOKEN) {
+            return false;
+        }
+        rateTokens -= TOKEN;
+        return true;
+    }
+
+    private void reject(Rejection rejection) {
+        int index = rejection.ordinal();
+        rejections.setOpaque(index, rejections.getPlain(index) + 1);
+    }
+
+    public long getRejections(Rejection rejection) {
+        return rejections.getOpaque(rejection.ordinal());
+    }
+
+    public long getTotalRejections() {
+        long total = 0;
+        for (int i = 0; i < rejections.length(); i++) {
+            total += rejections.getOpaque(i);
+        }
+        return total;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    // Shares one symbol's working orders have left on each side
+    private static final class Exposure {
+        private final String symbol;
+        private final AtomicLong buying;
+        private final AtomicLong selling;
+        private Position position;                  // trader's thread only; looked up until the first fill
+
+        Exposure(String symbol) {
+            this.symbol = symbol;
+            this.buying = new AtomicLong();
+            this.selling = new AtomicLong();
+        }
+
+        void add(OrderType side, long quantity) {
+            (side == OrderType.BUY ? buying : selling).addAndGet(quantity);
+        }
+
+        long getWorking(OrderType side) {
+            return (side == OrderType.BUY ? buying : selling).get();
+        }
+
+        long getHeld(Portfolio portfolio) {
+            if (position == null) {
+                position = portfolio.getPosition(symbol);
+                if (position == null) {
+                    return 0;
+                }
+            }
+            return position.getQuantity();
+        }
+    }
+
+    // One resting order or stop and the shares it can still trade. Fills and removals arrive on the settling
+    // and amending threads while the trader's thread reserves shares for a replace, so each order is its own
+    // small monitor; the symbol totals change with it.
+    private static final class WorkingOrder {
+        private final Exposure exposure;
+        private final OrderType side;
+        private int remaining;
+        private int reserved;                       // added by a replace that has not been applied yet
+
+        WorkingOrder(Exposure exposure, OrderType side, int quantity) {
+            this.exposure = exposure;
+            this.side = side;
+            this.remaining = quantity;
+            exposure.add(side, quantity);
+        }
+
+        synchronized int getRemaining() {
+            return remaining;
+        }
+
+        // Takes shares off (a negative quantity adds them, from an applied replace). True once nothing is
+        // left, when any reservation still held goes too.
+        synchronized boolean remove(int quantity) {
+            int change = Math.min(quantity, remaining);
+            remaining -= change;
+            exposure.add(side, -change);
+            if (quantity < 0) {
+                releaseReserved(-quantity);
+            }
+            if (remaining == 0) {
+                releaseReserved(reserved);
+            }
+            return remaining == 0;
+        }
+
+        // False when the order has nothing left, so no book can apply a replace to it any more
+        synchronized boolean reserve(int quantity) {
+            if (remaining == 0) {
+                return false;
+            }
+            reserved += quantity;
+            exposure.add(side, quantity);
+            return true;
+        }
+
+        synchronized void release(int quantity) {
+            releaseReserved(quantity);
+        }
+
+        private void releaseReserved(int quantity) {
+            int released = Math.min(quantity, reserved);
+            reserved -= released;
+            exposure.add(side, -released);
+        }
+    }
+
+    private static final class WorkingOrders implements Portfolio.OrderTracker {
+        private final ConcurrentHashMap<Long, WorkingOrder> orders = new ConcurrentHashMap<>();
+
+        void open(Order order, Exposure exposure) {
+            orders.put(order.getOrderId(), new WorkingOrder(exposure, order.getType(), order.getQuantity()));
+        }
+
+        WorkingOrder get(long orderId) {
+            return orders.get(orderId);
+        }
+
+        // Fills of market, IOC and FOK orders find nothing here and only move the position
+        @Override
+        public void onFill(long orderId, int quantity) {
+            onRemoved(orderId, quantity);
+        }
+
+        @Override
+        public void onRemoved(long orderId, int quantity) {
+            WorkingOrder working = orders.get(orderId);
+            if (working != null && working.remove(quantity)) {
+                orders.remove(orderId, working);
+            }
+        }
+    }
+}
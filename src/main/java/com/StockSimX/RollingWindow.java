@@ -0,0 +1,68 @@
+package com.StockSimX;
+
+// Trade count, volume and notional over a sliding time window, kept in a ring of fixed-width time buckets.
+// A trade only adds to the bucket of its own time slot, reusing the ring position once the slot it held has
+// left the window, so recording is O(1); a read adds up the buckets still inside the window. Not
+// thread-safe: owned by a Stock and written and read through its seqlock.
+final class RollingWindow {
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final long[] bucketSlot;        // time / bucketMillis of what each position holds, -1 when unused
+    private final long[] trades;
+    private final long[] volume;
+    private final long[] notionalTicks;     // sum of quantity * price in ticks
+
+    RollingWindow(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.bucketSlot = new long[bucketCount];
+        this.trades = new long[bucketCount];
+        this.volume = new long[bucketCount];
+        this.notionalTicks = new long[bucketCount];
+        clear();
+    }
+
+    void add(long timeMillis, long quantity, long priceTicks) {
+        long slot = timeMillis / bucketMillis;
+        int position = (int) (slot % bucketCount);
+        if (bucketSlot[position] != slot) {
+            if (bucketSlot[position] > slot) {
+                // Older than everything the ring still holds, e.g. a replayed trade
+                return;
+            }
+            bucketSlot[position] = slot;
+            trades[position] = 0;
+            volume[position] = 0;
+            notionalTicks[position] = 0;
+        }
+        trades[position]++;
+        volume[position] += quantity;
+        notionalTicks[position] += quantity * priceTicks;
+    }
+
+    // Sums of the buckets within the window ending at nowMillis, into totals[0..2]: trades, volume, notional
+    void sum(long nowMillis, long[] totals) {
+        long newestSlot = nowMillis / bucketMillis;
+        long oldestSlot = newestSlot - bucketCount + 1;
+        totals[0] = 0;
+        totals[1] = 0;
+        totals[2] = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long slot = bucketSlot[i];
+            if (slot >= oldestSlot && slot <= newestSlot) {
+                totals[0] += trades[i];
+                totals[1] += volume[i];
+                totals[2] += notionalTicks[i];
+            }
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < bucketCount; i++) {
+            bucketSlot[i] = -1;
+            trades[i] = 0;
+            volume[i] = 0;
+            notionalTicks[i] = 0;
+        }
+    }
+}
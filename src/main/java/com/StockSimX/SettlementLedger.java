@@ -0,0 +1,65 @@
+package com.StockSimX;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Settles every executed trade against the buyer's and the seller's Portfolio. The matching engine calls
+// settle from wherever it settles a trade: the POLLING settlement stage, or the CONTINUOUS and SHARDED
+// matching threads. A trade only writes the two positions it moves, so settlements of different symbols or
+// traders never wait for each other. A trader not opened in advance (e.g. from a replayed recording) gets a
+// portfolio with the initial cash on its first fill.
+public class SettlementLedger {
+    private final Map<String, Stock> stocks;
+    private final double initialCash;
+    private final ConcurrentHashMap<String, Portfolio> portfolios;
+
+    public SettlementLedger(Map<String, Stock> stocks, double initialCash) {
+        this.stocks = stocks;
+        this.initialCash = initialCash;
+        this.portfolios = new ConcurrentHashMap<>();
+    }
+
+    public Portfolio open(String traderId) {
+        return portfolios.computeIfAbsent(traderId, id -> new Portfolio(id, initialCash, stocks));
+    }
+
+    public void settle(Trade trade) {
+        portfolio(trade.buyTraderId()).settle(trade, OrderType.BUY);
+        portfolio(trade.sellTraderId()).settle(trade, OrderType.SELL);
+    }
+
+    // A book took shares off an order without trading them; only the trader's order tracker cares
+    public void onQuantityRemoved(Order order, int quantity) {
+        Portfolio portfolio = portfolios.get(order.getTraderId());
+        if (portfolio != null) {
+            portfolio.removed(order.getOrderId(), quantity);
+        }
+    }
+
+    private Portfolio portfolio(String traderId) {
+        Portfolio portfolio = portfolios.get(traderId);
+        return portfolio != null ? portfolio : open(traderId);
+    }
+
+    // Null if the trader has neither been opened nor traded
+    public Portfolio getPortfolio(String traderId) {
+        return portfolios.get(traderId);
+    }
+
+    public Collection<Portfolio> getPortfolios() {
+        return portfolios.values();
+    }
+
+    // Every share bought was sold by someone, so this is zero once all trades are settled
+    public long getNetQuantity(String symbol) {
+        long net = 0;
+        for (Portfolio portfolio : portfolios.values()) {
+            Position position = portfolio.getPosition(symbol);
+            if (position != null) {
+                net += position.getQuantity();
+            }
+        }
+        return net;
+    }
+}
@@ -0,0 +1,51 @@
+package com.StockSimX;
+
+// Wall-clock time as the simulated market sees it: order, amendment and trade timestamps and the rolling trade
+// windows all read it. By default it is the system clock; a seeded run installs a Simulated clock that only
+// moves when the driver advances it, so the same seed stamps the same times on every run. Observability
+// (log lines, market data updates, metrics dumps) keeps using real time.
+public abstract class SimulationClock {
+    public static final SimulationClock SYSTEM = new SimulationClock() {
+        @Override
+        protected long millis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static volatile SimulationClock installed = SYSTEM;
+
+    public static long currentTimeMillis() {
+        return installed.millis();
+    }
+
+    public static void install(SimulationClock clock) {
+        installed = clock;
+    }
+
+    public static SimulationClock installed() {
+        return installed;
+    }
+
+    protected abstract long millis();
+
+    // Time that passes only when advanced; one driving thread moves it, any thread may read it
+    public static final class Simulated extends SimulationClock {
+        private volatile long nowMillis;
+
+        public Simulated(long startMillis) {
+            this.nowMillis = startMillis;
+        }
+
+        // Never goes backwards: an earlier time leaves the clock where it is
+        public void advanceTo(long timeMillis) {
+            if (timeMillis > nowMillis) {
+                nowMillis = timeMillis;
+            }
+        }
+
+        @Override
+        protected long millis() {
+            return nowMillis;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.StockSimX;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Reference book: one ConcurrentSkipListMap per side keyed by price in ticks, so orders entered at nearby
+// prices share a level and best-price comparisons are exact integer compares.
+// Each level is an intrusive doubly linked FIFO of pooled, mutable resting entries around the immutable Order:
+// a partial fill only lowers the head entry's remaining quantity, so the order keeps its time priority and no
+// remainder is allocated, and a cancel finds its entry through the order id index and unlinks it in O(1).
+public class SkipListOrderBook extends OrderBook {
+    private static final int MAX_POOLED_ENTRIES = 1 << 16;
+    private static final int MAX_POOLED_LEVELS = 1 << 10;
+    private static final int INITIAL_SLOTS = 1024;
+
+    // Resting state of one order; the Order itself stays immutable and shared
+    private static final class RestingOrder {
+        private final int slot;             // fixed position in the slot registry, what the order index stores
+        private Order order;
+        private int remaining;
+        private PriceLevel level;
+        private RestingOrder prev;
+        private RestingOrder next;
+
+        RestingOrder(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    private static final class PriceLevel {
+        private Long priceTicks;
+        private RestingOrder head;
+        private RestingOrder tail;
+        private int orderCount;
+        private long quantity;
+    }
+
+    // Levels are never empty: a level is removed together with its last entry.
+    // The levels are only touched with the book locked or by its single writer.
+    private final ConcurrentSkipListMap<Long, PriceLevel> buyOrders;
+    private final ConcurrentSkipListMap<Long, PriceLevel> sellOrders;
+    private final ArrayDeque<RestingOrder> freeEntries;
+    private final ArrayDeque<PriceLevel> freeLevels;  // emptied levels, reused for new levels
+    private RestingOrder[] slots;                     // every entry ever allocated, by slot
+    private int slotCount;
+    private final LongIntHashMap orderIndex;          // order id -> slot of every resting order
+
+    // Prices changed since the last checkpoint capture; only touched with the book locked or by its single writer
+    private final Set<Long> changedBuyPrices;
+    private final Set<Long> changedSellPrices;
+
+    public SkipListOrderBook(String symbol, double tickSize) {
+        super(symbol, tickSize);
+        this.buyOrders = new ConcurrentSkipListMap<>(Collections.reverseOrder());
+        this.sellOrders = new ConcurrentSkipListMap<>();
+        this.freeEntries = new ArrayDeque<>();
+        this.freeLevels = new ArrayDeque<>();
+        this.slots = new RestingOrder[INITIAL_SLOTS];
+        this.orderIndex = new LongIntHashMap(INITIAL_SLOTS);
+        this.changedBuyPrices = new HashSet<>();
+        this.changedSellPrices = new HashSet<>();
+    }
+
+    @Override
+    protected void insert(Order order) {
+        Map<Long, PriceLevel> orderMap = (order.getType() == OrderType.BUY) ? buyOrders : sellOrders;
+        Long priceTicks = order.getPriceTicks();
+        ((order.getType() == OrderType.BUY) ? changedBuyPrices : changedSellPrices).add(priceTicks);
+
+        PriceLevel level = orderMap.get(priceTicks);
+        if (level == null) {
+            level = acquireLevel(priceTicks);
+            orderMap.put(priceTicks, level);
+        }
+        append(level, acquire(order, order.getQuantity()));
+    }
+
+    @Override
+    protected boolean isCrossed() {
+        // Called with the book locked, so neither side can empty between the checks
+        return !buyOrders.isEmpty() && !sellOrders.isEmpty() && buyOrders.firstKey() >= sellOrders.firstKey();
+    }
+
+    @Override
+    protected int match(FillListener listener) {
+        int fills = 0;
+
+//            Trade can happen iff buyPrice >= sellPrice
+        while (!buyOrders.isEmpty() && !sellOrders.isEmpty()){
+            Long highestBuyPrice = buyOrders.firstKey(); // highest buy price, in ticks
+            Long lowestSellPrice = sellOrders.firstKey(); // lowest sell price, in ticks
+
+            if(highestBuyPrice >= lowestSellPrice){
+                changedBuyPrices.add(highestBuyPrice);
+                changedSellPrices.add(lowestSellPrice);
+
+                RestingOrder buyOrder = buyOrders.get(highestBuyPrice).head;
+                RestingOrder sellOrder = sellOrders.get(lowestSellPrice).head;
+
+                int tradedQuantity = Math.min(buyOrder.remaining, sellOrder.remaining);
+                fill(listener, buyOrder.order, sellOrder.order, tradedQuantity, lowestSellPrice);
+                fills++;
+
+                // A partially filled order stays at the head of its level with the rest of its quantity
+                reduce(buyOrder, buyOrder.remaining - tradedQuantity);
+                reduce(sellOrder, sellOrder.remaining - tradedQuantity);
+                if (buyOrder.remaining == 0) {
+                    unlink(buyOrder);
+                }
+                if (sellOrder.remaining == 0) {
+                    unlink(sellOrder);
+                }
+            } else {
+                break;
+            }
+        }
+        return fills;
+    }
+
+    @Override
+    protected int take(Order order, long limitTicks, FillListener listener) {
+        boolean buy = order.getType() == OrderType.BUY;
+        ConcurrentSkipListMap<Long, PriceLevel> opposite = buy ? sellOrders : buyOrders;
+        Set<Long> changedPrices = buy ? changedSellPrices : changedBuyPrices;
+        int remaining = order.getQuantity();
+        while (remaining > 0 && !opposite.isEmpty()) {
+            Long priceTicks = opposite.firstKey();
+            if (buy ? priceTicks > limitTicks : priceTicks < limitTicks) {
+                break;
+            }
+            changedPrices.add(priceTicks);
+            RestingOrder resting = opposite.get(priceTicks).head;
+            int tradedQuantity = Math.min(remaining, resting.remaining);
+            remaining -= tradedQuantity;
+            if (buy) {
+                fill(listener, order, resting.order, tradedQuantity, priceTicks);
+            } else {
+                fill(listener, resting.order, order, tradedQuantity, priceTicks);
+            }
+            reduce(resting, resting.remaining - tradedQuantity);
+            if (resting.remaining == 0) {
+                unlink(resting);
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    protected void walkLevels(OrderType side, LevelWalker walker) {
+        for (PriceLevel level : ((side == OrderType.BUY) ? buyOrders : sellOrders).values()) {
+            // A reader off a single writer's thread can meet a level just emptied and returned to the pool
+            Long priceTicks = level.priceTicks;
+            if (priceTicks != null && !walker.onLevel(priceTicks, level.quantity, level.orderCount)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected Order findResting(long orderId) {
+        int slot = orderIndex.get(orderId);
+        return slot == LongIntHashMap.MISSING ? null : slots[slot].order;
+    }
+
+    @Override
+    protected int remainingOf(long orderId) {
+        return slots[orderIndex.get(orderId)].remaining;
+    }
+
+    @Override
+    protected void reduceResting(long orderId, int remainingQuantity) {
+        RestingOrder entry = slots[orderIndex.get(orderId)];
+        reduce(entry, remainingQuantity);
+        ((entry.order.getType() == OrderType.BUY) ? changedBuyPrices : changedSellPrices).add(entry.level.priceTicks);
+    }
+
+    @Override
+    protected void removeResting(long orderId) {
+        RestingOrder entry = slots[orderIndex.get(orderId)];
+        ((entry.order.getType() == OrderType.BUY) ? changedBuyPrices : changedSellPrices).add(entry.level.priceTicks);
+        unlink(entry);
+    }
+
+    private void append(PriceLevel level, RestingOrder entry) {
+        entry.level = level;
+        entry.prev = level.tail;
+        entry.next = null;
+        if (level.tail == null) {
+            level.head = entry;
+        } else {
+            level.tail.next = entry;
+        }
+        level.tail = entry;
+        level.orderCount++;
+        level.quantity += entry.remaining;
+    }
+
+    private void reduce(RestingOrder entry, int remainingQuantity) {
+        entry.level.quantity -= entry.remaining - remainingQuantity;
+        entry.remaining = remainingQuantity;
+    }
+
+    // Removes an entry from anywhere in its level, and the level from its side once it is empty
+    private void unlink(RestingOrder entry) {
+        PriceLevel level = entry.level;
+        if (entry.prev == null) {
+            level.head = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            level.tail = entry.prev;
+        } else {
+            entry.next.prev = entry.prev;
+        }
+        level.quantity -= entry.remaining;
+        if (--level.orderCount == 0) {
+            ((entry.order.getType() == OrderType.BUY) ? buyOrders : sellOrders).remove(level.priceTicks);
+            releaseLevel(level);
+        }
+        release(entry);
+    }
+
+    private RestingOrder acquire(Order order, int remaining) {
+        RestingOrder entry = freeEntries.poll();
+        boolean allocated = entry == null;
+        if (allocated) {
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slotCount * 2);
+            }
+            entry = new RestingOrder(slotCount);
+            slots[slotCount++] = entry;
+        }
+        countEntries(1, allocated ? 1 : 0);
+        entry.order = order;
+        entry.remaining = remaining;
+        orderIndex.put(order.getOrderId(), entry.slot);
+        return entry;
+    }
+
+    private void release(RestingOrder entry) {
+        orderIndex.remove(entry.order.getOrderId(), entry.slot);
+        entry.order = null;
+        entry.level = null;
+        entry.prev = null;
+        entry.next = null;
+        // An entry that is not pooled keeps its slot but is never handed out again
+        if (freeEntries.size() < MAX_POOLED_ENTRIES) {
+            freeEntries.push(entry);
+        }
+    }
+
+    private PriceLevel acquireLevel(Long priceTicks) {
+        PriceLevel level = freeLevels.isEmpty() ? new PriceLevel() : freeLevels.pop();
+        level.priceTicks = priceTicks;
+        return level;
+    }
+
+    private void releaseLevel(PriceLevel level) {
+        level.priceTicks = null;
+        level.head = null;
+        level.tail = null;
+        level.orderCount = 0;
+        level.quantity = 0;
+        if (freeLevels.size() < MAX_POOLED_LEVELS) {
+            freeLevels.push(level);
+        }
+    }
+
+    @Override
+    protected void visitDepth(int maxLevels, DepthVisitor visitor) {
+        visitDepthSide(OrderType.BUY, buyOrders, maxLevels, visitor);
+        visitDepthSide(OrderType.SELL, sellOrders, maxLevels, visitor);
+    }
+
+    private void visitDepthSide(OrderType side, Map<Long, PriceLevel> orderMap, int maxLevels,
+                                DepthVisitor visitor) {
+        int reported = 0;
+        for (PriceLevel level : orderMap.values()) {
+            if (reported++ == maxLevels) {
+                break;
+            }
+            visitor.onDepthLevel(side, level.priceTicks, level.quantity, level.orderCount);
+        }
+    }
+
+    @Override
+    protected void visitLevels(boolean changedOnly, LevelVisitor visitor) {
+        visitSide(OrderType.BUY, buyOrders, changedOnly ? changedBuyPrices : buyOrders.keySet(), visitor);
+        visitSide(OrderType.SELL, sellOrders, changedOnly ? changedSellPrices : sellOrders.keySet(), visitor);
+    }
+
+    private void visitSide(OrderType side, Map<Long, PriceLevel> orderMap, Set<Long> prices,
+                           LevelVisitor visitor) {
+        for (Long priceTicks : prices) {
+            PriceLevel level = orderMap.get(priceTicks);
+            visitor.onLevel(side, priceTicks, level == null ? 0 : level.orderCount);
+            if (level != null) {
+                for (RestingOrder entry = level.head; entry != null; entry = entry.next) {
+                    visitor.onOrder(entry.order, entry.remaining);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void clearChangedLevels() {
+        changedBuyPrices.clear();
+        changedSellPrices.clear();
+    }
+
+    @Override
+    protected void replaceLevel(OrderType side, long priceTicks, Order[] orders, int[] remainingQuantities,
+                                int offset, int count) {
+        Map<Long, PriceLevel> orderMap = (side == OrderType.BUY) ? buyOrders : sellOrders;
+        PriceLevel previous = orderMap.remove(priceTicks);
+        if (previous != null) {
+            for (RestingOrder entry = previous.head; entry != null; ) {
+                RestingOrder next = entry.next;
+                release(entry);
+                entry = next;
+            }
+            releaseLevel(previous);
+        }
+        if (count == 0) {
+            return;
+        }
+
+        PriceLevel level = acquireLevel(priceTicks);
+        for (int i = offset; i < offset + count; i++) {
+            append(level, acquire(orders[i], remainingQuantities[i]));
+        }
+        orderMap.put(priceTicks, level);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return buyOrders.isEmpty() && sellOrders.isEmpty();
+    }
+
+    @Override
+    public int getBuyLevelCount() {
+        return buyOrders.size();
+    }
+
+    @Override
+    public int getSellLevelCount() {
+        return sellOrders.size();
+    }
+
+    @Override
+    public long getBestBidTicks() {
+        Map.Entry<Long, PriceLevel> bestBid = buyOrders.firstEntry();
+        return bestBid == null ? Ticks.NONE : bestBid.getKey();
+    }
+
+    @Override
+    public long getBestAskTicks() {
+        Map.Entry<Long, PriceLevel> bestAsk = sellOrders.firstEntry();
+        return bestAsk == null ? Ticks.NONE : bestAsk.getKey();
+    }
+
+    @Override
+    public String getDetailedStatus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("=== ORDER BOOK: %s ===\n", symbol));
+
+        // Show sell orders (lowest price first)
+        sb.append("SELL ORDERS (Ask):\n");
+        sellOrders.forEach((price, level) -> {
+            sb.append(String.format("  $%.2f: %d orders, %d shares\n", price * tickSize, level.orderCount, level.quantity));
+        });
+
+        sb.append("--- SPREAD ---\n");
+
+        // Show buy orders (highest price first)
+        sb.append("BUY ORDERS (Bid):\n");
+        buyOrders.forEach((price, level) -> {
+            sb.append(String.format("  $%.2f: %d orders, %d shares\n", price * tickSize, level.orderCount, level.quantity));
+        });
+
+        return sb.toString();
+    }
+}
@@ -1,67 +1,335 @@
 package com.StockSimX;
 
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.lang.invoke.VarHandle;
 
+// Price, last trade, top of book and volume are published together through a seqlock.
+// Writers bump the version to odd, update the fields and bump it back to even; readers
+// read the version, the fields and the version again, and retry if a write overlapped.
+// Readers never block and never write to shared memory, so any number of trader and
+// reporting threads can read while the matching thread writes.
+// The price is the last executed trade's (the initial reference price until the first trade). The same
+// writes keep rolling one-second and one-minute trade windows and 1s/1m/5m OHLCV bars up to date; window
+// totals and VWAP are only added up when someone reads them, and bars are copied into the caller's array.
+// All prices are fixed-point ticks of the stock's tick size (Ticks.NONE when absent).
 public class Stock {
+    private static final int SPIN_TRIES = 64;
+
     private final String symbol;
-    private volatile double currentPrice;
-    private final AtomicLong totalVolume;
-    private final ReadWriteLock priceLock;
-    private final Random random;
+    private final double tickSize;
+
+    private final PaddedAtomicLong version;     // odd while a writer is in the middle of an update
+
+    // Guarded by version; only read through the seqlock protocol
+    private long currentPrice;
+    private long lastTradePrice;
+    private long bestBid;
+    private long bestAsk;
+    private long totalVolume;
+    private long tradeCount;
+    private final RollingWindow lastSecond;
+    private final RollingWindow lastMinute;
+    private final BarSeries[] bars;             // indexed by BarInterval ordinal
+
+    // One consistent view of the stock's market state; the price accessors convert ticks to currency (NaN if absent)
+    public record Snapshot(long priceTicks,
+                           long lastTradeTicks,
+                           long bestBidTicks,
+                           long bestAskTicks,
+                           long totalVolume,
+                           long tradeCount,
+                           double tickSize) {
+
+        public double price() {
+            return Ticks.toPrice(priceTicks, tickSize);
+        }
+
+        public double lastTradePrice() {
+            return Ticks.toPrice(lastTradeTicks, tickSize);
+        }
+
+        public double bestBid() {
+            return Ticks.toPrice(bestBidTicks, tickSize);
+        }
+
+        public double bestAsk() {
+            return Ticks.toPrice(bestAskTicks, tickSize);
+        }
+    }
+
+    // Trades executed within a recent time window; vwap is NaN when there were none
+    public record TradeWindow(long trades, long volume, double vwap) {
+    }
+
+    // Candle lengths kept per symbol, and how many of the newest traded intervals each keeps
+    public enum BarInterval {
+        ONE_SECOND(1_000, 300),
+        ONE_MINUTE(60_000, 120),
+        FIVE_MINUTES(300_000, 96);
+
+        private final long millis;
+        private final int capacity;
+
+        BarInterval(long millis, int capacity) {
+            this.millis = millis;
+            this.capacity = capacity;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+    }
+
+    // Layout of the bars readBars copies out: BAR_FIELDS longs per bar, prices in ticks
+    public static final int BAR_FIELDS = BarSeries.FIELDS;
+    public static final int BAR_START = BarSeries.START;
+    public static final int BAR_OPEN = BarSeries.OPEN;
+    public static final int BAR_HIGH = BarSeries.HIGH;
+    public static final int BAR_LOW = BarSeries.LOW;
+    public static final int BAR_CLOSE = BarSeries.CLOSE;
+    public static final int BAR_VOLUME = BarSeries.VOLUME;
+    public static final int BAR_TRADES = BarSeries.TRADES;
+
+    // One OHLCV candle; the price accessors convert ticks to currency
+    public record Bar(long startMillis,
+                      long openTicks,
+                      long highTicks,
+                      long lowTicks,
+                      long closeTicks,
+                      long volume,
+                      long trades,
+                      double tickSize) {
+
+        public double open() {
+            return Ticks.toPrice(openTicks, tickSize);
+        }
+
+        public double high() {
+            return Ticks.toPrice(highTicks, tickSize);
+        }
+
+        public double low() {
+            return Ticks.toPrice(lowTicks, tickSize);
+        }
+
+        public double close() {
+            return Ticks.toPrice(closeTicks, tickSize);
+        }
+    }
 
     public Stock(String symbol, double initialPrice){
+        this(symbol, initialPrice, OrderBook.DEFAULT_TICK_SIZE);
+    }
+
+    public Stock(String symbol, double initialPrice, double tickSize){
         this.symbol = symbol;
-        this.currentPrice = initialPrice;
-        this.totalVolume = new AtomicLong(0);
-        this.priceLock = new ReentrantReadWriteLock(false);
-        this.random = new Random();
+        this.tickSize = tickSize;
+        this.version = new PaddedAtomicLong(0);
+
+        this.currentPrice = Ticks.nearest(initialPrice, tickSize);
+        this.lastTradePrice = Ticks.NONE;
+        this.bestBid = Ticks.NONE;
+        this.bestAsk = Ticks.NONE;
+        this.totalVolume = 0;
+        this.tradeCount = 0;
+        this.lastSecond = new RollingWindow(100, 10);
+        this.lastMinute = new RollingWindow(1000, 60);
+        this.bars = new BarSeries[BarInterval.values().length];
+        for (BarInterval interval : BarInterval.values()) {
+            bars[interval.ordinal()] = new BarSeries(interval.getMillis(), interval.getCapacity());
+        }
+    }
+
+    public long getCurrentPriceTicks() {
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long price = currentPrice;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return price;
+            }
+            backOff(attempt);
+        }
     }
 
     public double getCurrentPrice() {
-        priceLock.readLock().lock();
-        try {
-            return currentPrice;
-        } finally {
-            priceLock.readLock().unlock();
+        return getCurrentPriceTicks() * tickSize;
+    }
+
+    public Snapshot getSnapshot() {
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            long price = currentPrice;
+            long lastTrade = lastTradePrice;
+            long bid = bestBid;
+            long ask = bestAsk;
+            long volume = totalVolume;
+            long trades = tradeCount;
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return new Snapshot(price, lastTrade, bid, ask, volume, trades, tickSize);
+            }
+            backOff(attempt);
         }
     }
 
+    // Rounded to the nearest tick, never below one tick
     public void updatePrice(double newPrice) {
-        priceLock.writeLock().lock();
-        try {
-            this.currentPrice = Math.max(0.01,newPrice);
-            System.out.printf("[PRICE UPDATE] %s: $%.2f%n", symbol, this.currentPrice);
-        } finally {
-            priceLock.writeLock().unlock();
-        }
+        updatePriceTicks(Ticks.nearest(newPrice, tickSize));
     }
 
-    public void stimulatePriceFluctuation() {
-        double changePercent = random.nextGaussian() * 0.02; // 2% movement
-        double currentPrice = getCurrentPrice();
-        double newPrice = currentPrice * (1 + changePercent);
+    public void updatePriceTicks(long newPriceTicks) {
+        long price = Math.max(1, newPriceTicks);
+        long writeVersion = beginWrite();
+        this.currentPrice = price;
+        endWrite(writeVersion);
 
-        updatePrice(newPrice);
+        if (EventLog.isEnabled(EventLog.Level.INFO)) {
+            EventLog.info("[PRICE UPDATE] %s: $%.2f", symbol, price * tickSize);
+        }
+    }
+
+    // Top of book as last seen by the matching path (Ticks.NONE for an empty side)
+    public void updateQuote(long bidTicks, long askTicks) {
+        long writeVersion = beginWrite();
+        this.bestBid = bidTicks;
+        this.bestAsk = askTicks;
+        endWrite(writeVersion);
     }
 
     public void addVolume(long volume) {
-        totalVolume.addAndGet(volume); // Uses Compare-And-Swap (CAS) operation
+        long writeVersion = beginWrite();
+        this.totalVolume += volume;
+        endWrite(writeVersion);
+    }
+
+    public void addVolume(Trade trade) {
+        // A replayed trade may come from an older tick grid
+        long priceTicks = (Double.compare(trade.tickSize(), tickSize) == 0)
+                ? trade.priceTicks() : Ticks.nearest(trade.price(), tickSize);
+        long writeVersion = beginWrite();
+        this.totalVolume += trade.quantity();
+        this.tradeCount++;
+        this.lastTradePrice = priceTicks;
+        this.currentPrice = priceTicks;
+        lastSecond.add(trade.executionTimestamp(), trade.quantity(), priceTicks);
+        lastMinute.add(trade.executionTimestamp(), trade.quantity(), priceTicks);
+        for (BarSeries series : bars) {
+            series.add(trade.executionTimestamp(), trade.quantity(), priceTicks);
+        }
+        endWrite(writeVersion);
+    }
+
+    public TradeWindow getLastSecond() {
+        return readWindow(lastSecond);
+    }
+
+    public TradeWindow getLastMinute() {
+        return readWindow(lastMinute);
+    }
+
+    private TradeWindow readWindow(RollingWindow window) {
+        long now = SimulationClock.currentTimeMillis();
+        long[] totals = new long[3];
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            window.sum(now, totals);
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                double vwap = totals[1] == 0 ? Double.NaN : (double) totals[2] / totals[1] * tickSize;
+                return new TradeWindow(totals[0], totals[1], vwap);
+            }
+            backOff(attempt);
+        }
+    }
+
+    // Copies up to count of the newest bars into out (BAR_FIELDS longs each, oldest first) and returns how many
+    // were copied; allocates nothing, so it can be polled at any rate
+    public int readBars(BarInterval interval, int count, long[] out) {
+        BarSeries series = bars[interval.ordinal()];
+        for (int attempt = 0; ; attempt++) {
+            long before = version.get();
+            int copied = series.read(count, out);
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && before == version.get()) {
+                return copied;
+            }
+            backOff(attempt);
+        }
+    }
+
+    // The bar being built (or the last one if no trade has come since), null before the first trade
+    public Bar getLatestBar(BarInterval interval) {
+        long[] bar = new long[BAR_FIELDS];
+        if (readBars(interval, 1, bar) == 0) {
+            return null;
+        }
+        return new Bar(bar[BAR_START], bar[BAR_OPEN], bar[BAR_HIGH], bar[BAR_LOW], bar[BAR_CLOSE],
+                bar[BAR_VOLUME], bar[BAR_TRADES], tickSize);
+    }
+
+    // Puts back state saved in a checkpoint
+    public void restore(Snapshot snapshot) {
+        long writeVersion = beginWrite();
+        this.currentPrice = snapshot.priceTicks();
+        this.lastTradePrice = snapshot.lastTradeTicks();
+        this.bestBid = snapshot.bestBidTicks();
+        this.bestAsk = snapshot.bestAskTicks();
+        this.totalVolume = snapshot.totalVolume();
+        this.tradeCount = snapshot.tradeCount();
+        lastSecond.clear();
+        lastMinute.clear();
+        for (BarSeries series : bars) {
+            series.clear();
+        }
+        endWrite(writeVersion);
+    }
+
+    // Writers serialise among themselves by CAS-ing the version from even to odd
+    private long beginWrite() {
+        for (int attempt = 0; ; attempt++) {
+            long current = version.get();
+            if ((current & 1) == 0 && version.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+            backOff(attempt);
+        }
+    }
+
+    private void endWrite(long writeVersion) {
+        // Release store: every field write above is visible before the version turns even again
+        version.setRelease(writeVersion + 1);
+    }
+
+    // Spin briefly, then yield: a writer preempted mid-update must get the CPU back to finish it
+    private static void backOff(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
     }
 
     public String getSymbol() {
         return symbol;
     }
 
+    public double getTickSize() {
+        return tickSize;
+    }
+
     public long getTotalVolume() {
-        return totalVolume.get();
+        return getSnapshot().totalVolume();
     }
 
     public String getStatusReport() {
-        return String.format("Stock[%s]: Price=$%.2f, Volume=%d shares",
-                symbol, getCurrentPrice(), getTotalVolume());
+        Snapshot snapshot = getSnapshot();
+        return String.format("Stock[%s]: Price=$%.2f, Last=$%.2f, Bid=$%.2f, Ask=$%.2f, Volume=%d shares (%d trades)",
+                symbol, snapshot.price(), snapshot.lastTradePrice(), snapshot.bestBid(), snapshot.bestAsk(),
+                snapshot.totalVolume(), snapshot.tradeCount());
     }
 
     @Override
@@ -1,5 +1,9 @@
 package com.StockSimX;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -7,26 +11,87 @@ import java.util.concurrent.*;
 public class StockSimulator {
 
     // Simulation configuration
-    private static final int NUM_TRADERS = 6;
-    private static final int NUM_STOCKS = 4;
+    // -Dstocksimx.traders=100000 -Dstocksimx.virtualTraders=true runs a large virtual-thread load
+    private static final int NUM_TRADERS = Integer.getInteger("stocksimx.traders", 6);
+    private static final boolean VIRTUAL_TRADERS = Boolean.getBoolean("stocksimx.virtualTraders");
+    private static final int MAX_TRADERS_IN_REPORT = 20;
+    // -Dstocksimx.symbols=universe.csv trades the instruments listed there (symbol,price,tickSize per line)
+    // instead of the four built-in ones; reports then list only the most traded symbols
+    private static final String SYMBOLS_PATH = System.getProperty("stocksimx.symbols");
+    private static final int MAX_STOCKS_IN_REPORT = 20;
     private static final int SIMULATION_DURATION_SEC = 30;
-    private static final int PRICE_UPDATE_INTERVAL_MS = 500;
+    // -Dstocksimx.matchingMode=SHARDED opts into single-writer shards (needed for the journal and checkpoints)
+    private static final MatchingEngine.Mode MATCHING_MODE =
+            MatchingEngine.Mode.valueOf(System.getProperty("stocksimx.matchingMode", "POLLING"));
+    private static final RingBuffer.WaitStrategy INGRESS_WAIT_STRATEGY = RingBuffer.WaitStrategy.PARK;
+    // -Dstocksimx.bookType=TICK_LADDER opts into the allocation-free ladder. It preallocates +/-50% of the price
+    // in ticks and rejects orders priced outside that band, which the skip list accepts at any price.
+    private static final OrderBook.BookType ORDER_BOOK_TYPE =
+            OrderBook.BookType.valueOf(System.getProperty("stocksimx.bookType", "SKIP_LIST"));
+    private static final EventLog.Level LOG_LEVEL =
+            EventLog.Level.valueOf(System.getProperty("stocksimx.logLevel", "INFO"));
+    // -Dstocksimx.journal=market.journal journals every order and trade; an existing journal is replayed first
+    private static final String JOURNAL_PATH = System.getProperty("stocksimx.journal");
+    private static final OrderJournal.FsyncPolicy JOURNAL_FSYNC =
+            OrderJournal.FsyncPolicy.valueOf(System.getProperty("stocksimx.journalFsync", "PERIODIC"));
+    private static final long JOURNAL_FSYNC_INTERVAL_MS = 10;
+    // -Dstocksimx.checkpointDir=checkpoints snapshots the books periodically so a restart only replays the journal tail
+    private static final String CHECKPOINT_DIR = System.getProperty("stocksimx.checkpointDir");
+    private static final int CHECKPOINT_INTERVAL_MS = 5000;
+    private static final int FULL_CHECKPOINT_EVERY = 6;    // rounds in between are deltas
+    private static final int MARKET_DATA_DEPTH = 5;
+    // -Dstocksimx.metrics=metrics.jsonl appends a JSON line of engine and book metrics every interval (JMX always)
+    private static final String METRICS_PATH = System.getProperty("stocksimx.metrics");
+    private static final int METRICS_INTERVAL_MS = 1000;
+    // -Dstocksimx.seed=42 runs the traders on one thread in simulated time, each with its own random stream split
+    // from the seed, so the same seed always produces the same order stream, trades and final books
+    private static final Long SEED = Long.getLong("stocksimx.seed");
+    private static final int ORDERS_PER_TRADER = Integer.getInteger("stocksimx.ordersPerTrader", 8);
+    // -Dstocksimx.initialCash=250000 sets every trader's starting cash (shorting and negative cash are allowed)
+    private static final double INITIAL_CASH = Double.parseDouble(System.getProperty("stocksimx.initialCash", "1000000"));
+    // Pre-trade risk limits every trader's orders pass through (see RiskGate)
+    private static final RiskGate.Limits RISK_LIMITS = new RiskGate.Limits(
+            Integer.getInteger("stocksimx.maxOrderQuantity", 5_000),
+            Integer.getInteger("stocksimx.priceCollarBps", 1_000),
+            Long.getLong("stocksimx.maxOpenQuantity", 10_000),
+            Integer.getInteger("stocksimx.maxOrdersPerSecond", 20));
+    private static final long SIMULATED_START_MS = 1_704_205_800_000L;    // 2024-01-02 14:30 UTC, a market open
+    // -Dstocksimx.record=orders.journal writes the generated order stream (orders and amendments) to a journal;
+    // -Dstocksimx.replay=orders.journal feeds such a recording through the engine as fast as it goes instead
+    private static final String RECORD_PATH = System.getProperty("stocksimx.record");
+    private static final String REPLAY_PATH = System.getProperty("stocksimx.replay");
 
     // Core components
     private final Map<String, Stock> stocks;
     private final Map<String, OrderBook> orderBooks;
     private final List<Trader> traders;
+    private final List<RiskGate> riskGates = new ArrayList<>();
     private final MatchingEngine matchingEngine;
+    private final OrderJournal journal;
+    private final CheckpointStore checkpoints;
+    private final MarketDataPublisher marketData;
+    private final SettlementLedger ledger;
+    private final MetricsReporter metrics;
+    private final MatchingEngine.Mode matchingMode;
+    private final SimulationClock.Simulated simulatedClock;    // null unless seeded
+    private final OrderJournal recording;
+    private int checkpointRounds;
+    private long replayedOrders;
+    private long replayedAmendments;
+    private long replayNanos;
+    private long[] reportedStageEvents = new long[0];    // pipeline counters at the previous status report
+    private long reportedStageNanos;
 
     // Thread management
     private final ExecutorService traderExecutor;
-    private final ScheduledExecutorService priceUpdater;
+    private final ScheduledExecutorService backgroundServices;
     private final CountDownLatch simulationComplete;
-    private final CyclicBarrier marketCycleBarrier;
+    private final MarketCycle marketCycle;
 
 
     public StockSimulator() {
-        System.out.println("=== INITIALIZING StockSimX -> A STOCK MARKET SIMULATOR ===");
+        EventLog.setLevel(LOG_LEVEL);
+        EventLog.info("=== INITIALIZING StockSimX -> A STOCK MARKET SIMULATOR ===");
 
         // Initialize core data structures
         this.stocks = new ConcurrentHashMap<>();
@@ -35,91 +100,253 @@ public class StockSimulator {
 
         // Initialize thread coordination objects
         this.simulationComplete = new CountDownLatch(NUM_TRADERS);
-        this.marketCycleBarrier = new CyclicBarrier(NUM_TRADERS, () -> {
+        this.marketCycle = new MarketCycle(() -> {
 
-            System.out.println("[MARKET CYCLE] All traders synchronized - market cycle begins!");
+            EventLog.info("[MARKET CYCLE] All traders synchronized - market cycle begins!");
         });
 
-        this.traderExecutor = Executors.newFixedThreadPool(NUM_TRADERS, r -> {
-            Thread t = new Thread(r);
-            t.setName("Trader-" + t.getId());
-            return t;
-        });
+        // Virtual threads: traders spend nearly all their time sleeping, so they need no platform thread each
+        this.traderExecutor = VIRTUAL_TRADERS
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Trader-", 1).factory())
+                : Executors.newFixedThreadPool(NUM_TRADERS, r -> {
+                    Thread t = new Thread(r);
+                    t.setName("Trader-" + t.getId());
+                    return t;
+                });
 
-        this.priceUpdater = Executors.newScheduledThreadPool(2, r -> {
+        this.backgroundServices = Executors.newScheduledThreadPool(2, r -> {
             Thread t = new Thread(r);
-            t.setName("PriceUpdater-" + t.getId());
+            t.setName("Background-" + t.getId());
             t.setDaemon(true);
             return t;
         });
 
+        // A seeded run matches inline on its single trading thread, so no thread scheduling decides the outcome
+        boolean seeded = SEED != null && REPLAY_PATH == null;
+        this.matchingMode = seeded ? MatchingEngine.Mode.CONTINUOUS : MATCHING_MODE;
+        this.simulatedClock = seeded ? new SimulationClock.Simulated(SIMULATED_START_MS) : null;
+        SplittableRandom seeds = seeded ? new SplittableRandom(SEED) : null;
+        if (seeded) {
+            SimulationClock.install(simulatedClock);
+        }
+
         // Initialize market components
         initializeStocks();
         initializeOrderBooks();
-        initializeTraders();
 
-        // Create matching engine
-        this.matchingEngine = new MatchingEngine(orderBooks, stocks);
+        // Create matching engine; traders submit their orders through it
+        this.matchingEngine = new MatchingEngine(orderBooks, stocks, matchingMode,
+                Runtime.getRuntime().availableProcessors(), INGRESS_WAIT_STRATEGY);
+        this.matchingEngine.setTradeLog(trade -> EventLog.info("[TRADE COMPLETE] %s", trade));
+        this.marketData = new MarketDataPublisher(orderBooks.keySet(), MARKET_DATA_DEPTH);
+        this.matchingEngine.setMarketData(marketData);
+        this.ledger = new SettlementLedger(stocks, INITIAL_CASH);
+        this.matchingEngine.setSettlementLedger(ledger);
+        this.marketData.subscribe("Console", update -> EventLog.debug("[MARKET DATA] %s", update));
+        if (SEED != null || REPLAY_PATH != null) {
+            if (JOURNAL_PATH != null || CHECKPOINT_DIR != null) {
+                EventLog.warn("Reproducible runs start from an empty market, journal and checkpoints ignored");
+            }
+            this.checkpoints = null;
+            this.journal = null;
+        } else {
+            this.checkpoints = initializeCheckpoints();
+            recoverMarketState();
+            this.journal = initializeJournal();
+        }
+        this.metrics = initializeMetrics();
+        this.recording = initializeRecording();
 
-        System.out.println("=== INITIALIZATION COMPLETE ===\\n");
+        if (REPLAY_PATH == null) {
+            initializeTraders(seeds);
+        }
+
+        EventLog.info("=== INITIALIZATION COMPLETE ===");
     }
 
     private void initializeStocks() {
-        System.out.println("Initializing stocks...");
+        EventLog.info("Initializing stocks...");
+
 
+        List<SymbolUniverse.Instrument> universe;
+        try {
+            universe = SYMBOLS_PATH == null ? SymbolUniverse.defaults() : SymbolUniverse.load(Path.of(SYMBOLS_PATH));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read symbol universe " + SYMBOLS_PATH, e);
+        }
 
-        String[] stockSymbols = {"AAPL", "GOOGL", "TSLA", "MSFT"};
-        double[] startingPrices = {150.0, 2800.0, 250.0, 300.0};
+        for (SymbolUniverse.Instrument instrument : universe) {
+            Stock stock = new Stock(instrument.symbol(), instrument.price(), instrument.tickSize());
+            stocks.put(instrument.symbol(), stock);
+            if (stocks.size() <= MAX_STOCKS_IN_REPORT) {
+                EventLog.info("  Created %s at $%.2f (tick $%.2f)", instrument.symbol(), instrument.price(),
+                        instrument.tickSize());
+            }
+        }
+        EventLog.info("  Created %d stocks%s", stocks.size(), SYMBOLS_PATH == null ? "" : " from " + SYMBOLS_PATH);
+    }
 
-        for (int i = 0; i < NUM_STOCKS; i++) {
-            Stock stock = new Stock(stockSymbols[i], startingPrices[i]);
-            stocks.put(stockSymbols[i], stock);
-            System.out.printf("  Created %s at $%.2f%n", stockSymbols[i], startingPrices[i]);
+    // Every stock while there are few, otherwise the most traded ones
+    private Collection<Stock> reportedStocks() {
+        if (stocks.size() <= MAX_STOCKS_IN_REPORT) {
+            return stocks.values();
         }
+        List<Stock> mostTraded = new ArrayList<>(stocks.values());
+        mostTraded.sort(Comparator.comparingLong(Stock::getTotalVolume).reversed());
+        return mostTraded.subList(0, MAX_STOCKS_IN_REPORT);
     }
 
     private void initializeOrderBooks() {
-        System.out.println("Initializing order books...");
+        EventLog.info("Initializing order books...");
 
-        for (String symbol : stocks.keySet()) {
-            OrderBook orderBook = new OrderBook(symbol);
+        for (Stock stock : stocks.values()) {
+            String symbol = stock.getSymbol();
+            OrderBook orderBook = OrderBook.create(ORDER_BOOK_TYPE, symbol, stock.getCurrentPrice(), stock.getTickSize());
             orderBooks.put(symbol, orderBook);
-            System.out.printf("  Created order book for %s%n", symbol);
+            if (orderBooks.size() <= MAX_STOCKS_IN_REPORT) {
+                EventLog.info("  Created %s order book for %s", ORDER_BOOK_TYPE, symbol);
+            }
+        }
+        EventLog.info("  Created %d %s order books", orderBooks.size(), ORDER_BOOK_TYPE);
+    }
+
+    private CheckpointStore initializeCheckpoints() {
+        if (CHECKPOINT_DIR == null) {
+            return null;
+        }
+        if (matchingMode != MatchingEngine.Mode.SHARDED) {
+            EventLog.warn("Checkpoints need SHARDED matching, %s ignored", CHECKPOINT_DIR);
+            return null;
+        }
+        EventLog.info("Initializing checkpoints...");
+
+        try {
+            return new CheckpointStore(Path.of(CHECKPOINT_DIR));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open checkpoint directory " + CHECKPOINT_DIR, e);
         }
     }
 
-    private void initializeTraders() {
-        System.out.println("Initializing traders...");
+    // Restores the books from the latest checkpoint and the journal tail left by a previous run
+    private void recoverMarketState() {
+        Path journalPath = journalEnabled() ? Path.of(JOURNAL_PATH) : null;
+        if (journalPath != null && !Files.exists(journalPath)) {
+            journalPath = null;
+        }
+        if (checkpoints == null && journalPath == null) {
+            return;
+        }
+        EventLog.info("Recovering market state...");
+
+        try {
+            matchingEngine.recover(checkpoints, journalPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover market state", e);
+        }
+    }
+
+    // Like checkpoints, the journal only replays into the same books under SHARDED matching (see setJournal)
+    private boolean journalEnabled() {
+        return JOURNAL_PATH != null && matchingMode == MatchingEngine.Mode.SHARDED;
+    }
+
+    private OrderJournal initializeJournal() {
+        if (JOURNAL_PATH == null) {
+            return null;
+        }
+        if (!journalEnabled()) {
+            EventLog.warn("The journal needs SHARDED matching, %s ignored", JOURNAL_PATH);
+            return null;
+        }
+        EventLog.info("Initializing journal...");
+
+        try {
+            Path path = Path.of(JOURNAL_PATH);
+            OrderJournal orderJournal = OrderJournal.open(path, JOURNAL_FSYNC, JOURNAL_FSYNC_INTERVAL_MS);
+            matchingEngine.setJournal(orderJournal);
+            return orderJournal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + JOURNAL_PATH, e);
+        }
+    }
+
+    private MetricsReporter initializeMetrics() {
+        EventLog.info("Initializing metrics...");
+
+        try {
+            return new MetricsReporter(matchingEngine, orderBooks.values(),
+                    METRICS_PATH == null ? null : Path.of(METRICS_PATH));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open metrics dump " + METRICS_PATH, e);
+        }
+    }
+
+    private OrderJournal initializeRecording() {
+        if (RECORD_PATH == null || REPLAY_PATH != null) {
+            return null;
+        }
+        EventLog.info("Initializing order stream recording...");
+
+        try {
+            // A recording is one run's stream, never appended to an older one
+            Path path = Path.of(RECORD_PATH);
+            Files.deleteIfExists(path);
+            return OrderJournal.open(path, OrderJournal.FsyncPolicy.NEVER, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open order stream recording " + RECORD_PATH, e);
+        }
+    }
+
+    private void initializeTraders(SplittableRandom seeds) {
+        EventLog.info("Initializing traders...");
 
         List<Stock> stockList = new ArrayList<>(stocks.values());
+        OrderGateway gateway = recording == null ? matchingEngine : new RecordingGateway(matchingEngine, recording);
 
         for (int i = 1; i <= NUM_TRADERS; i++) {
             String traderId = "Trader-" + i;
-            Trader trader = new Trader(traderId, stockList, orderBooks,
-                    marketCycleBarrier, simulationComplete);
+            Portfolio portfolio = ledger.open(traderId);
+            // One gate per trader: only the trader's thread writes its throttle and counters
+            RiskGate riskGate = new RiskGate(gateway, stocks, portfolio, RISK_LIMITS);
+            Trader trader = new Trader(traderId, stockList, riskGate,
+                    marketCycle.register(), simulationComplete,
+                    seeds == null ? new SplittableRandom() : seeds.split(), ORDERS_PER_TRADER, portfolio);
             traders.add(trader);
-            System.out.printf("  Created %s%n", traderId);
+            riskGates.add(riskGate);
+            if (i <= MAX_TRADERS_IN_REPORT) {
+                EventLog.info("  Created %s", traderId);
+            }
         }
+        EventLog.info("  Created %d traders on %d market cycle phasers (%s threads)",
+                NUM_TRADERS, marketCycle.getLeafCount(), VIRTUAL_TRADERS ? "virtual" : "platform");
     }
 
 
     public void runSimulation() {
-        System.out.println("\\n=== STARTING SIMULATION ===");
+        EventLog.info("=== STARTING SIMULATION ===");
 
         try {
 
             startBackgroundServices();
 
-            startTraders();
+            if (REPLAY_PATH != null) {
+                startMatchingEngine();
+                replayOrderStream();
+            } else if (simulatedClock != null) {
+                startMatchingEngine();
+                runSeededSimulation();
+            } else {
+                startTraders();
 
-            startMatchingEngine();
+                startMatchingEngine();
 
-            runSimulationLoop();
+                runSimulationLoop();
 
-            waitForCompletion();
+                waitForCompletion();
+            }
 
         } catch (Exception e) {
-            System.err.printf("Simulation error: %s%n", e.getMessage());
+            EventLog.error("Simulation error: %s", e.getMessage());
         } finally {
             cleanup();
         }
@@ -129,44 +356,56 @@ public class StockSimulator {
 
 
     private void startBackgroundServices() {
-        System.out.println("Starting background services...");
-
-        priceUpdater.scheduleAtFixedRate(() -> {
-            for (Stock stock : stocks.values()) {
-                stock.stimulatePriceFluctuation();
-            }
-        }, 1000, PRICE_UPDATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        EventLog.info("Starting background services...");
 
-        priceUpdater.scheduleAtFixedRate(() -> {
-            System.out.println("\\n" + generateStatusReport());
+        // Prices follow executed trades (Stock.addVolume), so nothing moves them on a timer
+        backgroundServices.scheduleAtFixedRate(() -> {
+            EventLog.info(generateStatusReport());
         }, 5000, 5000, TimeUnit.MILLISECONDS);
 
-        System.out.println("Background services started");
+        backgroundServices.scheduleAtFixedRate(metrics::dump,
+                METRICS_INTERVAL_MS, METRICS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        if (checkpoints != null) {
+            backgroundServices.scheduleWithFixedDelay(() -> takeCheckpoint(false),
+                    CHECKPOINT_INTERVAL_MS, CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        EventLog.info("Background services started");
+    }
+
+    private void takeCheckpoint(boolean forceFull) {
+        boolean full = forceFull || checkpointRounds++ % FULL_CHECKPOINT_EVERY == 0;
+        try {
+            matchingEngine.checkpoint(checkpoints, full).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            EventLog.error("[ERROR] Checkpoint failed: %s", e.getMessage());
+        }
     }
 
     private void startTraders() {
-        System.out.println("Starting trader threads...");
+        EventLog.info("Starting trader threads...");
 
         for (Trader trader : traders) {
             traderExecutor.submit(trader);
         }
 
-        System.out.printf("Started %d trader threads%n", traders.size());
+        EventLog.info("Started %d %s trader threads", traders.size(), VIRTUAL_TRADERS ? "virtual" : "platform");
     }
 
     private void startMatchingEngine() {
-        System.out.println("Starting matching engine...");
+        EventLog.info("Starting matching engine...");
 
         Thread engineThread = new Thread(matchingEngine, "MatchingEngine-Main");
         engineThread.start();
 
         matchingEngine.start();
 
-        System.out.println("Matching engine started");
+        EventLog.info("Matching engine started");
     }
 
     private void runSimulationLoop() throws InterruptedException {
-        System.out.printf("Running simulation for %d seconds...%n", SIMULATION_DURATION_SEC);
+        EventLog.info("Running simulation for %d seconds...", SIMULATION_DURATION_SEC);
 
         long startTime = System.currentTimeMillis();
         long endTime = startTime + (SIMULATION_DURATION_SEC * 1000L);
@@ -174,7 +413,7 @@ public class StockSimulator {
         while (System.currentTimeMillis() < endTime) {
             // Check if all traders finished early
             if (simulationComplete.getCount() == 0) {
-                System.out.println("All traders finished early!");
+                EventLog.info("All traders finished early!");
                 break;
             }
 
@@ -184,97 +423,353 @@ public class StockSimulator {
             // Show remaining time
             long remaining = (endTime - System.currentTimeMillis()) / 1000;
             if (remaining % 10 == 0 && remaining > 0) {
-                System.out.printf("[TIME] %d seconds remaining%n", remaining);
+                EventLog.info("[TIME] %d seconds remaining", remaining);
             }
         }
     }
 
 
+    // Discrete-event version of the trading loop: traders take turns on this thread in order of their next simulated
+    // wake-up (ties by trader index) and the clock jumps straight to each one instead of sleeping. Matching is
+    // CONTINUOUS, inline on this thread.
+    private void runSeededSimulation() {
+        EventLog.info("Running seeded simulation (seed %d) for %d simulated seconds...", SEED, SIMULATION_DURATION_SEC);
+
+        long endTime = SIMULATED_START_MS + SIMULATION_DURATION_SEC * 1000L;
+        // {wake-up time, trader index}
+        PriorityQueue<long[]> wakeups = new PriorityQueue<>(
+                Comparator.<long[]>comparingLong(wakeup -> wakeup[0]).thenComparingLong(wakeup -> wakeup[1]));
+        for (int i = 0; i < traders.size(); i++) {
+            wakeups.add(new long[] {SIMULATED_START_MS, i});
+        }
+
+        while (!wakeups.isEmpty() && wakeups.peek()[0] < endTime) {
+            long[] wakeup = wakeups.poll();
+            simulatedClock.advanceTo(wakeup[0]);
+
+            Trader trader = traders.get((int) wakeup[1]);
+            long delay = trader.trade();
+            if (trader.hasOrdersLeft()) {
+                wakeup[0] += delay;
+                wakeups.add(wakeup);
+            }
+        }
+
+        // Traders still waiting when simulated time runs out stop there
+        for (long[] wakeup : wakeups) {
+            traders.get((int) wakeup[1]).stop();
+        }
+        EventLog.info("Seeded simulation finished at +%.1f simulated seconds",
+                (SimulationClock.currentTimeMillis() - SIMULATED_START_MS) / 1000.0);
+    }
+
+    // Feeds a recorded order stream to the engine from this one thread as fast as the engine takes it. Every
+    // book sees its orders in recorded order, so a recording always ends in the same trades and books.
+    private void replayOrderStream() throws IOException {
+        EventLog.info("Replaying order stream %s...", REPLAY_PATH);
+
+        long start = System.nanoTime();
+        OrderJournal.replay(Path.of(REPLAY_PATH), new OrderJournal.ReplayListener() {
+            @Override
+            public void onOrder(long sequence, Order order) {
+                matchingEngine.submit(order);
+                replayedOrders++;
+            }
+
+            @Override
+            public void onTrade(long sequence, Trade trade) {
+                // Recordings hold no trades; the engine executes its own
+            }
+
+            @Override
+            public void onAmendment(long sequence, OrderAmendment amendment) {
+                matchingEngine.amend(amendment);
+                replayedAmendments++;
+            }
+        });
+        // Stopping drains the shards, so the measured time covers matching every replayed order
+        matchingEngine.stop();
+        replayNanos = System.nanoTime() - start;
+    }
+
     private void waitForCompletion() throws InterruptedException {
-        System.out.println("Waiting for all traders to complete...");
+        EventLog.info("Waiting for all traders to complete...");
 
         boolean completed = simulationComplete.await(10, TimeUnit.SECONDS);
 
         if (completed) {
-            System.out.println("All traders completed successfully!");
+            EventLog.info("All traders completed successfully!");
         } else {
-            System.out.println("Timeout waiting for traders - forcing shutdown");
+            EventLog.info("Timeout waiting for traders - forcing shutdown");
             // Stop any remaining traders
             traders.forEach(Trader::stop);
         }
     }
 
     private void cleanup() {
-        System.out.println("\\nCleaning up resources...");
+        EventLog.info("Cleaning up resources...");
 
         // Stop matching engine
         matchingEngine.stop();
+        marketData.shutdown();
+        if (checkpoints != null) {
+            takeCheckpoint(true);
+            checkpoints.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (recording != null) {
+            recording.close();
+        }
 
         // Shutdown thread pools
         traderExecutor.shutdown();
-        priceUpdater.shutdown();
+        backgroundServices.shutdown();
 
         try {
             // Wait for threads to finish
             if (!traderExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
                 traderExecutor.shutdownNow();
             }
-            if (!priceUpdater.awaitTermination(5, TimeUnit.SECONDS)) {
-                priceUpdater.shutdownNow();
+            if (!backgroundServices.awaitTermination(5, TimeUnit.SECONDS)) {
+                backgroundServices.shutdownNow();
             }
         } catch (InterruptedException e) {
             traderExecutor.shutdownNow();
-            priceUpdater.shutdownNow();
+            backgroundServices.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        // Last dump once nothing is scheduled any more, so it is the final state
+        metrics.dump();
+        metrics.close();
 
-        System.out.println("Cleanup complete");
+        EventLog.info("Cleanup complete");
     }
 
 
+    private static String formatBar(Stock.Bar bar) {
+        return String.format("%.2f/%.2f/%.2f/%.2f %d", bar.open(), bar.high(), bar.low(), bar.close(), bar.volume());
+    }
+
     private String generateStatusReport() {
         StringBuilder report = new StringBuilder();
-        report.append("=== SIMULATION STATUS ===\\n");
+        report.append(String.format("=== SIMULATION STATUS ===%n"));
 
         // Stock prices and volumes
-        report.append("STOCK PRICES:\\n");
-        for (Stock stock : stocks.values()) {
+        report.append(String.format("STOCK PRICES:%n"));
+        Collection<Stock> reported = reportedStocks();
+        for (Stock stock : reported) {
             report.append(String.format("  %s%n", stock.getStatusReport()));
         }
+        if (reported.size() < stocks.size()) {
+            report.append(String.format("  ... %d more symbols%n", stocks.size() - reported.size()));
+        }
 
-        // Trader statistics
-        report.append("\\nTRADER STATUS:\\n");
-        for (Trader trader : traders) {
-            report.append(String.format("  %s%n", trader.getTradingStats()));
+        // Rolling windows, added up here from the stocks' time buckets
+        report.append(String.format("%nTRADING WINDOWS (last second | last minute):%n"));
+        for (Stock stock : reported) {
+            Stock.TradeWindow second = stock.getLastSecond();
+            Stock.TradeWindow minute = stock.getLastMinute();
+            report.append(String.format("  %s: %d trades, %d shares, VWAP $%.2f | %d trades, %d shares, VWAP $%.2f%n",
+                    stock.getSymbol(), second.trades(), second.volume(), second.vwap(),
+                    minute.trades(), minute.volume(), minute.vwap()));
+        }
+
+        // Latest traded candles, copied out of the stocks' bar rings
+        report.append(String.format("%nLATEST BARS (1 second | 1 minute | 5 minutes, O/H/L/C volume):%n"));
+        for (Stock stock : reported) {
+            Stock.Bar second = stock.getLatestBar(Stock.BarInterval.ONE_SECOND);
+            if (second == null) {
+                continue;
+            }
+            report.append(String.format("  %s: %s | %s | %s%n", stock.getSymbol(), formatBar(second),
+                    formatBar(stock.getLatestBar(Stock.BarInterval.ONE_MINUTE)),
+                    formatBar(stock.getLatestBar(Stock.BarInterval.FIVE_MINUTES))));
+        }
+
+        // Trader statistics (summarised for large trader populations)
+        report.append(String.format("%nTRADER STATUS:%n"));
+        if (traders.size() <= MAX_TRADERS_IN_REPORT) {
+            for (Trader trader : traders) {
+                report.append(String.format("  %s%n", trader.getTradingStats()));
+            }
+        } else {
+            long active = traders.stream().filter(Trader::isRunning).count();
+            long orders = traders.stream().mapToLong(Trader::getOrdersPlaced).sum();
+            report.append(String.format("  %d traders (%d active), %d orders placed, market cycle %d%n",
+                    traders.size(), active, orders, marketCycle.getPhase()));
+            report.append(String.format("  %s%n", summarizePortfolios()));
+        }
+        if (!riskGates.isEmpty()) {
+            report.append(String.format("  Risk rejections: %s%n", summarizeRiskRejections()));
         }
 
         // Matching engine statistics
-        report.append("\\nMATCHING ENGINE:\\n");
+        report.append(String.format("%nMATCHING ENGINE:%n"));
         report.append(String.format("  %s%n", matchingEngine.getStatistics()));
+        report.append(String.format("  Ingress queue depth %d, insert-to-fill p99 %.1fus, lock wait p99 %.1fus",
+                matchingEngine.getIngressDepth(),
+                matchingEngine.getInsertToFillLatency().getValueAtPercentile(99.0) / 1_000.0,
+                matchingEngine.getLockWaitLatency().getValueAtPercentile(99.0) / 1_000.0));
+
+        // POLLING pipeline stages, with their rate since the previous report
+        List<PipelineStage.Snapshot> stages = matchingEngine.getPipelineStages();
+        long now = System.nanoTime();
+        double seconds = (now - reportedStageNanos) / 1e9;
+        boolean haveRate = reportedStageEvents.length == stages.size();
+        long[] stageEvents = new long[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            PipelineStage.Snapshot stage = stages.get(i);
+            stageEvents[i] = stage.getProcessed();
+            report.append(String.format("%n  %s", stage));
+            if (haveRate) {
+                report.append(String.format(", %.0f/s", (stageEvents[i] - reportedStageEvents[i]) / seconds));
+            }
+        }
+        reportedStageEvents = stageEvents;
+        reportedStageNanos = now;
 
         return report.toString();
     }
 
+    // Totals over every portfolio plus the best and worst trader. Every trade moves cash and shares from one
+    // trader to another, so total P&L only differs from zero by average-cost rounding.
+    private String summarizePortfolios() {
+        Portfolio best = null;
+        Portfolio worst = null;
+        double bestPnl = 0;
+        double worstPnl = 0;
+        double realized = 0;
+        double unrealized = 0;
+        int portfolios = 0;
+        for (Portfolio portfolio : ledger.getPortfolios()) {
+            double portfolioRealized = portfolio.getRealizedPnl();
+            double portfolioUnrealized = portfolio.getUnrealizedPnl();
+            double pnl = portfolioRealized + portfolioUnrealized;
+            if (best == null || pnl > bestPnl) {
+                best = portfolio;
+                bestPnl = pnl;
+            }
+            if (worst == null || pnl < worstPnl) {
+                worst = portfolio;
+                worstPnl = pnl;
+            }
+            realized += portfolioRealized;
+            unrealized += portfolioUnrealized;
+            portfolios++;
+        }
+        if (best == null) {
+            return "No portfolios settled";
+        }
+        return String.format("%d portfolios, P&L realized $%.2f unrealized $%.2f (total $%.2f), best %s $%.2f, worst %s $%.2f",
+                portfolios, realized, unrealized, realized + unrealized,
+                best.getTraderId(), bestPnl, worst.getTraderId(), worstPnl);
+    }
+
+    private String summarizeRiskRejections() {
+        long[] rejected = new long[RiskGate.Rejection.values().length];
+        for (RiskGate riskGate : riskGates) {
+            for (RiskGate.Rejection rejection : RiskGate.Rejection.values()) {
+                rejected[rejection.ordinal()] += riskGate.getRejections(rejection);
+            }
+        }
+        return String.format("%d order size, %d price collar, %d open quantity, %d order rate",
+                rejected[RiskGate.Rejection.ORDER_SIZE.ordinal()], rejected[RiskGate.Rejection.PRICE_COLLAR.ordinal()],
+                rejected[RiskGate.Rejection.OPEN_QUANTITY.ordinal()], rejected[RiskGate.Rejection.ORDER_RATE.ordinal()]);
+    }
+
     private void printFinalResults() {
+        // Let the async log catch up so the results are not interleaved with pending events
+        EventLog.flush();
+
         System.out.println("\\n=== FINAL SIMULATION RESULTS ===");
 
         // Final stock prices
         System.out.println("\\nFINAL STOCK PRICES:");
-        for (Stock stock : stocks.values()) {
+        Collection<Stock> reported = reportedStocks();
+        for (Stock stock : reported) {
             System.out.printf("  %s%n", stock.getStatusReport());
         }
+        if (reported.size() < stocks.size()) {
+            System.out.printf("  ... %d more symbols%n", stocks.size() - reported.size());
+        }
 
         // Trading statistics
         System.out.println("\\nTRADING STATISTICS:");
         int totalOrders = traders.stream().mapToInt(Trader::getOrdersPlaced).sum();
         System.out.printf("  Total Orders Placed: %d%n", totalOrders);
+        if (!riskGates.isEmpty()) {
+            System.out.printf("  Risk Rejections: %s%n", summarizeRiskRejections());
+        }
+        if (REPLAY_PATH != null) {
+            double seconds = replayNanos / 1e9;
+            System.out.printf("  Replayed: %d orders and %d amendments in %.3f s (%.0f orders/s)%n",
+                    replayedOrders, replayedAmendments, seconds, seconds > 0 ? replayedOrders / seconds : 0.0);
+        } else if (simulatedClock != null) {
+            System.out.printf("  Seed: %d, %.1f simulated seconds%n",
+                    SEED, (SimulationClock.currentTimeMillis() - SIMULATED_START_MS) / 1000.0);
+        }
         System.out.printf("  Total Matches: %d%n", matchingEngine.getTotalMatches());
         System.out.printf("  Total Volume Traded: %d shares%n", matchingEngine.getTotalVolumeTraded());
+        System.out.printf("  Order-to-Fill Latency (%s): %s%n",
+                matchingEngine.getMode(), matchingEngine.getFillLatency().getSummary());
+        System.out.printf("  Gateway Latency: %s%n", matchingEngine.getGatewayLatency().getSummary());
+        System.out.printf("  Ingress Latency: %s%n", matchingEngine.getIngressLatency().getSummary());
+        System.out.printf("  Insert-to-Fill Latency: %s%n", matchingEngine.getInsertToFillLatency().getSummary());
+        System.out.printf("  Match Cycle Latency: %s%n", matchingEngine.getMatchLatency().getSummary());
+        System.out.printf("  Lock Wait Latency: %s%n", matchingEngine.getLockWaitLatency().getSummary());
+        for (PipelineStage.Snapshot stage : matchingEngine.getPipelineStages()) {
+            System.out.printf("  Pipeline: %s%n", stage);
+        }
+
+        // Pool pressure: entries allocated stay flat once the pools are warm, however many orders rest
+        System.out.printf("  Book Entries: %d acquired, %d allocated",
+                matchingEngine.getEntryAcquisitions(), matchingEngine.getEntryAllocations());
+        long matchingBytes = matchingEngine.getMatchingAllocatedBytes();
+        if (matchingBytes >= 0) {
+            System.out.printf(", matching threads allocated %.1f MB", matchingBytes / (1024.0 * 1024.0));
+        }
+        System.out.println();
 
         // Order book status
+        System.out.printf("  Log Events Written/Dropped: %d/%d%n",
+                EventLog.getWrittenEvents(), EventLog.getDroppedEvents());
+        System.out.printf("  Market Data Updates: %d published", marketData.getPublishedUpdates());
+        for (MarketDataPublisher.Subscription subscription : marketData.getSubscriptions()) {
+            System.out.printf(", %s %d delivered/%d conflated", subscription.getName(),
+                    subscription.getDeliveredUpdates(), subscription.getConflatedUpdates());
+        }
+        System.out.println();
+        if (journal != null) {
+            System.out.printf("  Journal: %d events, %d bytes, %d forces (%s)%n", journal.getWrittenEvents(),
+                    journal.getBytesWritten(), journal.getForceCount(), journal.getFsyncPolicy());
+        }
+        if (recording != null) {
+            System.out.printf("  Recorded Order Stream: %d events, %d bytes to %s%n", recording.getWrittenEvents(),
+                    recording.getBytesWritten(), RECORD_PATH);
+        }
+
+        System.out.println("\\nFINAL PORTFOLIOS:");
+        if (traders.size() <= MAX_TRADERS_IN_REPORT) {
+            for (Trader trader : traders) {
+                System.out.printf("  %s: %s%n", trader.getTraderId(), trader.getPortfolio().getSummary());
+            }
+        }
+        System.out.printf("  %s%n", summarizePortfolios());
+        for (Stock stock : reported) {
+            long net = ledger.getNetQuantity(stock.getSymbol());
+            if (net != 0) {
+                System.out.printf("  [WARN] %s positions net to %d shares%n", stock.getSymbol(), net);
+            }
+        }
+
         System.out.println("\\nFINAL ORDER BOOK STATUS:");
-        for (OrderBook orderBook : orderBooks.values()) {
-            System.out.printf("  %s%n", orderBook.getOrderBookStatus());
+        for (Stock stock : reported) {
+            System.out.printf("  %s%n", orderBooks.get(stock.getSymbol()).getOrderBookStatus());
+        }
+        if (reported.size() < orderBooks.size()) {
+            System.out.printf("  ... %d more books%n", orderBooks.size() - reported.size());
         }
 
         System.out.println("\\n=== SIMULATION COMPLETE ===");
@@ -295,6 +790,7 @@ public class StockSimulator {
             e.printStackTrace();
         }
 
+        EventLog.shutdown();
         System.out.println("\\nSimulation terminated. Goodbye!");
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.StockSimX;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+// Parked stop orders keyed by trigger price. A buy stop triggers once a trade prints at or above its stop
+// price and a sell stop at or below it, so after a trade only the lowest buy stop and the highest sell stop
+// have to be compared with the price; parked orders are never walked. Within one trigger price stops fire
+// in arrival order. Not thread-safe: owned by one book and used with the book locked.
+final class StopOrderIndex {
+    private final TreeMap<Long, LinkedHashMap<Long, Order>> buyStops;      // lowest trigger price first
+    private final TreeMap<Long, LinkedHashMap<Long, Order>> sellStops;     // highest trigger price first
+    private final Map<Long, Order> byId;
+
+    StopOrderIndex() {
+        this.buyStops = new TreeMap<>();
+        this.sellStops = new TreeMap<>(Collections.reverseOrder());
+        this.byId = new HashMap<>();
+    }
+
+    static boolean isTriggered(Order stop, long lastTradeTicks) {
+        if (lastTradeTicks == Ticks.NONE) {
+            return false;
+        }
+        return stop.getType() == OrderType.BUY
+                ? lastTradeTicks >= stop.getStopPriceTicks() : lastTradeTicks <= stop.getStopPriceTicks();
+    }
+
+    void add(Order stop) {
+        TreeMap<Long, LinkedHashMap<Long, Order>> stops = (stop.getType() == OrderType.BUY) ? buyStops : sellStops;
+        stops.computeIfAbsent(stop.getStopPriceTicks(), price -> new LinkedHashMap<>()).put(stop.getOrderId(), stop);
+        byId.put(stop.getOrderId(), stop);
+    }
+
+    boolean remove(long orderId) {
+        Order stop = byId.remove(orderId);
+        if (stop == null) {
+            return false;
+        }
+        TreeMap<Long, LinkedHashMap<Long, Order>> stops = (stop.getType() == OrderType.BUY) ? buyStops : sellStops;
+        LinkedHashMap<Long, Order> level = stops.get(stop.getStopPriceTicks());
+        level.remove(orderId);
+        if (level.isEmpty()) {
+            stops.remove(stop.getStopPriceTicks());
+        }
+        return true;
+    }
+
+    // Removes and returns one stop the price has reached, buy stops first; null when none has
+    Order pollTriggered(long lastTradeTicks) {
+        if (byId.isEmpty() || lastTradeTicks == Ticks.NONE) {
+            return null;
+        }
+        if (!buyStops.isEmpty() && buyStops.firstKey() <= lastTradeTicks) {
+            return poll(buyStops);
+        }
+        if (!sellStops.isEmpty() && sellStops.firstKey() >= lastTradeTicks) {
+            return poll(sellStops);
+        }
+        return null;
+    }
+
+    private Order poll(TreeMap<Long, LinkedHashMap<Long, Order>> stops) {
+        Map.Entry<Long, LinkedHashMap<Long, Order>> first = stops.firstEntry();
+        Iterator<Order> level = first.getValue().values().iterator();
+        Order stop = level.next();
+        level.remove();
+        if (first.getValue().isEmpty()) {
+            stops.remove(first.getKey());
+        }
+        byId.remove(stop.getOrderId());
+        return stop;
+    }
+
+    Order get(long orderId) {
+        return byId.get(orderId);
+    }
+
+    // Buy stops, then sell stops, each in trigger order
+    void forEach(Consumer<Order> action) {
+        buyStops.values().forEach(level -> level.values().forEach(action));
+        sellStops.values().forEach(level -> level.values().forEach(action));
+    }
+
+    void clear() {
+        buyStops.clear();
+        sellStops.clear();
+        byId.clear();
+    }
+
+    int size() {
+        return byId.size();
+    }
+}
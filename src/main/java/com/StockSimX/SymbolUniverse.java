@@ -0,0 +1,76 @@
+package com.StockSimX;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The instruments a simulation trades. Either the four built-in symbols or a CSV file with one
+// "symbol,price,tickSize" line per instrument (tick size optional, default one cent); blank lines, '#'
+// comments and a header line starting with "symbol" are skipped. File order is kept, so seeded runs
+// hand out their random streams the same way every time.
+public final class SymbolUniverse {
+    public record Instrument(String symbol, double price, double tickSize) {
+    }
+
+    private SymbolUniverse() {
+    }
+
+    public static List<Instrument> defaults() {
+        return List.of(
+                new Instrument("AAPL", 150.0, 0.01),
+                new Instrument("GOOGL", 2800.0, 0.05),
+                new Instrument("TSLA", 250.0, 0.01),
+                new Instrument("MSFT", 300.0, 0.01));
+    }
+
+    public static List<Instrument> load(Path path) throws IOException {
+        List<Instrument> instruments = new ArrayList<>();
+        Set<String> symbols = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")
+                        || (instruments.isEmpty() && line.regionMatches(true, 0, "symbol", 0, 6))) {
+                    continue;
+                }
+                Instrument instrument = parse(line, path, lineNumber);
+                if (!symbols.add(instrument.symbol())) {
+                    throw new IllegalArgumentException(String.format("%s:%d: duplicate symbol %s",
+                            path, lineNumber, instrument.symbol()));
+                }
+                instruments.add(instrument);
+            }
+        }
+        if (instruments.isEmpty()) {
+            throw new IllegalArgumentException(path + ": no instruments");
+        }
+        return instruments;
+    }
+
+    private static Instrument parse(String line, Path path, int lineNumber) {
+        String[] fields = line.split(",");
+        try {
+            if (fields.length < 2 || fields.length > 3 || fields[0].isBlank()) {
+                throw new IllegalArgumentException("expected symbol,price[,tickSize]");
+            }
+            double price = Double.parseDouble(fields[1].strip());
+            double tickSize = fields.length == 3 ? Double.parseDouble(fields[2].strip()) : OrderBook.DEFAULT_TICK_SIZE;
+            if (!(price > 0) || !(tickSize > 0)) {
+                throw new IllegalArgumentException("price and tick size must be positive");
+            }
+            return new Instrument(fields[0].strip(), price, tickSize);
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException included
+            throw new IllegalArgumentException(String.format("%s:%d: %s (%s)", path, lineNumber, ex.getMessage(), line), ex);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.StockSimX;
+
+import java.util.Arrays;
+
+// Order book that keeps prices as integer ticks and each side as a ladder of levels indexed by tick offset.
+// Orders live in a pooled struct-of-arrays with intrusive doubly linked FIFO lists, so steady-state matching
+// allocates nothing, and an order id index lets a cancel unlink any entry in O(1).
+public final class TickLadderOrderBook extends OrderBook {
+    private static final double DEFAULT_PRICE_BAND = 0.5;  // ladder covers +/-50% around the reference price
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NONE = -1;
+
+    private final long baseTick;        // tick value of ladder index 0
+    private final int ladderSize;
+
+    // Per level FIFO list (head/tail entry), order count and remaining quantity, one set per side
+    private final int[] bidHead;
+    private final int[] bidTail;
+    private final int[] bidCount;
+    private final long[] bidQuantity;
+    private final int[] askHead;
+    private final int[] askTail;
+    private final int[] askCount;
+    private final long[] askQuantity;
+
+    private int bestBid;                // highest non-empty bid level, NONE when side is empty
+    private int bestAsk;                // lowest non-empty ask level, NONE when side is empty
+    private int bidLevels;
+    private int askLevels;
+
+    // One bit per level changed since the last checkpoint capture
+    private final long[] bidChanged;
+    private final long[] askChanged;
+
+    // Entry pool: an entry is linked either into a level list or into the free list through entryNext
+    private Order[] entryOrder;
+    private int[] entryRemaining;
+    private int[] entryLevel;
+    private int[] entryNext;
+    private int[] entryPrev;
+    private int freeHead;
+    private final LongIntHashMap orderIndex;   // order id -> entry of every resting order
+
+    private int rejectedOrders;
+
+    public TickLadderOrderBook(String symbol, double referencePrice) {
+        this(symbol, referencePrice, DEFAULT_TICK_SIZE);
+    }
+
+    public TickLadderOrderBook(String symbol, double referencePrice, double tickSize) {
+        this(symbol, referencePrice, tickSize, 2 * (int) Math.ceil(referencePrice * DEFAULT_PRICE_BAND / tickSize) + 1);
+    }
+
+    public TickLadderOrderBook(String symbol, double referencePrice, double tickSize, int ladderSize) {
+        super(symbol, tickSize);
+        this.ladderSize = ladderSize;
+        this.baseTick = Math.max(1, Ticks.nearest(referencePrice, tickSize) - ladderSize / 2);
+
+        this.bidHead = newLevelArray(ladderSize);
+        this.bidTail = newLevelArray(ladderSize);
+        this.bidCount = new int[ladderSize];
+        this.bidQuantity = new long[ladderSize];
+        this.askHead = newLevelArray(ladderSize);
+        this.askTail = newLevelArray(ladderSize);
+        this.askCount = new int[ladderSize];
+        this.askQuantity = new long[ladderSize];
+        this.bestBid = NONE;
+        this.bestAsk = NONE;
+        this.bidChanged = new long[(ladderSize + 63) >>> 6];
+        this.askChanged = new long[(ladderSize + 63) >>> 6];
+
+        this.entryOrder = new Order[0];
+        this.entryRemaining = new int[0];
+        this.entryLevel = new int[0];
+        this.entryNext = new int[0];
+        this.entryPrev = new int[0];
+        this.freeHead = NONE;
+        this.orderIndex = new LongIntHashMap(INITIAL_CAPACITY);
+        growEntries(INITIAL_CAPACITY);
+    }
+
+    @Override
+    protected void insert(Order order) {
+        long offset = order.getPriceTicks() - baseTick;
+        if (offset < 0 || offset >= ladderSize) {
+            rejectedOrders++;
+            throw new IllegalArgumentException(String.format("Price $%.2f is outside the %s ladder ($%.2f - $%.2f)",
+                    order.getPrice(), symbol, baseTick * tickSize, (baseTick + ladderSize - 1) * tickSize));
+        }
+        int level = (int) offset;
+        int entry = allocateEntry(order, level);
+
+        if (order.getType() == OrderType.BUY) {
+            append(bidHead, bidTail, level, entry);
+            markChanged(bidChanged, level);
+            bidQuantity[level] += order.getQuantity();
+            if (bidCount[level]++ == 0) {
+                bidLevels++;
+                if (bestBid == NONE || level > bestBid) {
+                    bestBid = level;
+                }
+            }
+        } else {
+            append(askHead, askTail, level, entry);
+            markChanged(askChanged, level);
+            askQuantity[level] += order.getQuantity();
+            if (askCount[level]++ == 0) {
+                askLevels++;
+                if (bestAsk == NONE || level < bestAsk) {
+                    bestAsk = level;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected boolean isCrossed() {
+        return bestBid != NONE && bestAsk != NONE && bestBid >= bestAsk;
+    }
+
+    @Override
+    protected int match(FillListener listener) {
+        int fills = 0;
+
+        // Trade can happen iff best bid level >= best ask level; partial fills stay at the head of their level
+        while (isCrossed()) {
+            int buyEntry = bidHead[bestBid];
+            int sellEntry = askHead[bestAsk];
+
+            int tradedQuantity = Math.min(entryRemaining[buyEntry], entryRemaining[sellEntry]);
+            long tradedPriceTicks = baseTick + bestAsk;
+            entryRemaining[buyEntry] -= tradedQuantity;
+            entryRemaining[sellEntry] -= tradedQuantity;
+            markChanged(bidChanged, bestBid);
+            markChanged(askChanged, bestAsk);
+            bidQuantity[bestBid] -= tradedQuantity;
+            askQuantity[bestAsk] -= tradedQuantity;
+
+            fill(listener, entryOrder[buyEntry], entryOrder[sellEntry], tradedQuantity, tradedPriceTicks);
+            fills++;
+
+            if (entryRemaining[buyEntry] == 0) {
+                unlink(buyEntry);
+            }
+            if (entryRemaining[sellEntry] == 0) {
+                unlink(sellEntry);
+            }
+        }
+        return fills;
+    }
+
+    @Override
+    protected int take(Order order, long limitTicks, FillListener listener) {
+        int remaining = order.getQuantity();
+        if (order.getType() == OrderType.BUY) {
+            while (remaining > 0 && bestAsk != NONE && baseTick + bestAsk <= limitTicks) {
+                int sellEntry = askHead[bestAsk];
+                int tradedQuantity = Math.min(remaining, entryRemaining[sellEntry]);
+                remaining -= tradedQuantity;
+                entryRemaining[sellEntry] -= tradedQuantity;
+                markChanged(askChanged, bestAsk);
+                askQuantity[bestAsk] -= tradedQuantity;
+
+                fill(listener, order, entryOrder[sellEntry], tradedQuantity, baseTick + bestAsk);
+                if (entryRemaining[sellEntry] == 0) {
+                    unlink(sellEntry);
+                }
+            }
+        } else {
+            while (remaining > 0 && bestBid != NONE && baseTick + bestBid >= limitTicks) {
+                int buyEntry = bidHead[bestBid];
+                int tradedQuantity = Math.min(remaining, entryRemaining[buyEntry]);
+                remaining -= tradedQuantity;
+                entryRemaining[buyEntry] -= tradedQuantity;
+                markChanged(bidChanged, bestBid);
+                bidQuantity[bestBid] -= tradedQuantity;
+
+                fill(listener, entryOrder[buyEntry], order, tradedQuantity, baseTick + bestBid);
+                if (entryRemaining[buyEntry] == 0) {
+                    unlink(buyEntry);
+                }
+            }
+        }
+        return remaining;
+    }
+
+    // Empty ticks between levels are stepped over; the span from the best price bounds the walk
+    @Override
+    protected void walkLevels(OrderType side, LevelWalker walker) {
+        if (side == OrderType.BUY) {
+            for (int level = bestBid; level >= 0; level--) {
+                if (bidCount[level] > 0 && !walker.onLevel(baseTick + level, bidQuantity[level], bidCount[level])) {
+                    return;
+                }
+            }
+        } else {
+            for (int level = bestAsk; level != NONE && level < ladderSize; level++) {
+                if (askCount[level] > 0 && !walker.onLevel(baseTick + level, askQuantity[level], askCount[level])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Removes an entry from anywhere in its level: filled at the head, or cancelled from the middle
+    private void unlink(int entry) {
+        boolean buy = entryOrder[entry].getType() == OrderType.BUY;
+        int level = entryLevel[entry];
+        int[] head = buy ? bidHead : askHead;
+        int[] tail = buy ? bidTail : askTail;
+        int prev = entryPrev[entry];
+        int next = entryNext[entry];
+        if (prev == NONE) {
+            head[level] = next;
+        } else {
+            entryNext[prev] = next;
+        }
+        if (next == NONE) {
+            tail[level] = prev;
+        } else {
+            entryPrev[next] = prev;
+        }
+
+        if (buy) {
+            bidQuantity[level] -= entryRemaining[entry];
+            markChanged(bidChanged, level);
+            if (--bidCount[level] == 0) {
+                bidLevels--;
+                if (level == bestBid) {
+                    bestBid = NONE;
+                    for (int i = level - 1; i >= 0 && bidLevels > 0; i--) {
+                        if (bidCount[i] > 0) {
+                            bestBid = i;
+                            break;
+                        }
+                    }
+                }
+            }
+        } else {
+            askQuantity[level] -= entryRemaining[entry];
+            markChanged(askChanged, level);
+            if (--askCount[level] == 0) {
+                askLevels--;
+                if (level == bestAsk) {
+                    bestAsk = NONE;
+                    for (int i = level + 1; i < ladderSize && askLevels > 0; i++) {
+                        if (askCount[i] > 0) {
+                            bestAsk = i;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        releaseEntry(entry);
+    }
+
+    @Override
+    protected Order findResting(long orderId) {
+        int entry = orderIndex.get(orderId);
+        return entry == LongIntHashMap.MISSING ? null : entryOrder[entry];
+    }
+
+    @Override
+    protected int remainingOf(long orderId) {
+        return entryRemaining[orderIndex.get(orderId)];
+    }
+
+    @Override
+    protected void reduceResting(long orderId, int remainingQuantity) {
+        int entry = orderIndex.get(orderId);
+        int level = entryLevel[entry];
+        int reduction = entryRemaining[entry] - remainingQuantity;
+        entryRemaining[entry] = remainingQuantity;
+        if (entryOrder[entry].getType() == OrderType.BUY) {
+            bidQuantity[level] -= reduction;
+            markChanged(bidChanged, level);
+        } else {
+            askQuantity[level] -= reduction;
+            markChanged(askChanged, level);
+        }
+    }
+
+    @Override
+    protected void removeResting(long orderId) {
+        unlink(orderIndex.get(orderId));
+    }
+
+    @Override
+    protected boolean isValidPrice(long priceTicks) {
+        return priceTicks >= baseTick && priceTicks < baseTick + ladderSize;
+    }
+
+    @Override
+    protected void visitDepth(int maxLevels, DepthVisitor visitor) {
+        int reported = 0;
+        for (int level = bestBid; level >= 0 && reported < maxLevels && bestBid != NONE; level--) {
+            if (bidCount[level] > 0) {
+                visitor.onDepthLevel(OrderType.BUY, baseTick + level, bidQuantity[level], bidCount[level]);
+                reported++;
+            }
+        }
+        reported = 0;
+        for (int level = Math.max(bestAsk, 0); level < ladderSize && reported < maxLevels && bestAsk != NONE; level++) {
+            if (askCount[level] > 0) {
+                visitor.onDepthLevel(OrderType.SELL, baseTick + level, askQuantity[level], askCount[level]);
+                reported++;
+            }
+        }
+    }
+
+    @Override
+    protected void visitLevels(boolean changedOnly, LevelVisitor visitor) {
+        visitSide(OrderType.BUY, bidHead, bidCount, bidChanged, changedOnly, visitor);
+        visitSide(OrderType.SELL, askHead, askCount, askChanged, changedOnly, visitor);
+    }
+
+    private void visitSide(OrderType side, int[] head, int[] count, long[] changed, boolean changedOnly,
+                           LevelVisitor visitor) {
+        if (!changedOnly) {
+            for (int level = 0; level < ladderSize; level++) {
+                if (count[level] > 0) {
+                    visitLevel(side, head, count, level, visitor);
+                }
+            }
+            return;
+        }
+        for (int word = 0; word < changed.length; word++) {
+            for (long bits = changed[word]; bits != 0; bits &= bits - 1) {
+                visitLevel(side, head, count, (word << 6) + Long.numberOfTrailingZeros(bits), visitor);
+            }
+        }
+    }
+
+    private void visitLevel(OrderType side, int[] head, int[] count, int level, LevelVisitor visitor) {
+        visitor.onLevel(side, baseTick + level, count[level]);
+        for (int entry = head[level]; entry != NONE; entry = entryNext[entry]) {
+            visitor.onOrder(entryOrder[entry], entryRemaining[entry]);
+        }
+    }
+
+    @Override
+    protected void clearChangedLevels() {
+        Arrays.fill(bidChanged, 0);
+        Arrays.fill(askChanged, 0);
+    }
+
+    @Override
+    protected void replaceLevel(OrderType side, long priceTicks, Order[] orders, int[] remainingQuantities,
+                                int offset, int count) {
+        long ticks = priceTicks - baseTick;
+        if (ticks < 0 || ticks >= ladderSize) {
+            throw new IllegalArgumentException(String.format("Checkpointed level $%.2f is outside the %s ladder",
+                    priceTicks * tickSize, symbol));
+        }
+        int level = (int) ticks;
+        boolean buy = side == OrderType.BUY;
+        int[] head = buy ? bidHead : askHead;
+        int[] tail = buy ? bidTail : askTail;
+        int[] levelCount = buy ? bidCount : askCount;
+        long[] levelQuantity = buy ? bidQuantity : askQuantity;
+
+        boolean wasEmpty = levelCount[level] == 0;
+        for (int entry = head[level]; entry != NONE; ) {
+            int next = entryNext[entry];
+            orderIndex.remove(entryOrder[entry].getOrderId(), entry);
+            releaseEntry(entry);
+            entry = next;
+        }
+        head[level] = NONE;
+        tail[level] = NONE;
+        levelCount[level] = count;
+        levelQuantity[level] = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int entry = allocateEntry(orders[i], level);
+            entryRemaining[entry] = remainingQuantities[i];
+            levelQuantity[level] += remainingQuantities[i];
+            append(head, tail, level, entry);
+        }
+
+        int delta = (count > 0 ? 1 : 0) - (wasEmpty ? 0 : 1);
+        if (buy) {
+            bidLevels += delta;
+            if (count > 0 && (bestBid == NONE || level > bestBid)) {
+                bestBid = level;
+            } else if (count == 0 && level == bestBid) {
+                bestBid = NONE;
+                for (int i = level - 1; i >= 0 && bidLevels > 0; i--) {
+                    if (bidCount[i] > 0) {
+                        bestBid = i;
+                        break;
+                    }
+                }
+            }
+        } else {
+            askLevels += delta;
+            if (count > 0 && (bestAsk == NONE || level < bestAsk)) {
+                bestAsk = level;
+            } else if (count == 0 && level == bestAsk) {
+                bestAsk = NONE;
+                for (int i = level + 1; i < ladderSize && askLevels > 0; i++) {
+                    if (askCount[i] > 0) {
+                        bestAsk = i;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void markChanged(long[] changed, int level) {
+        changed[level >>> 6] |= 1L << level;
+    }
+
+    private void append(int[] head, int[] tail, int level, int entry) {
+        entryPrev[entry] = tail[level];
+        if (tail[level] == NONE) {
+            head[level] = entry;
+        } else {
+            entryNext[tail[level]] = entry;
+        }
+        tail[level] = entry;
+    }
+
+    private int allocateEntry(Order order, int level) {
+        if (freeHead == NONE) {
+            growEntries(entryOrder.length * 2);
+        }
+        int entry = freeHead;
+        freeHead = entryNext[entry];
+        countEntries(1, 0);
+
+        entryOrder[entry] = order;
+        entryRemaining[entry] = order.getQuantity();
+        entryLevel[entry] = level;
+        entryNext[entry] = NONE;
+        orderIndex.put(order.getOrderId(), entry);
+        return entry;
+    }
+
+    private void releaseEntry(int entry) {
+        orderIndex.remove(entryOrder[entry].getOrderId(), entry);
+        entryOrder[entry] = null;
+        entryNext[entry] = freeHead;
+        freeHead = entry;
+    }
+
+    // Only runs when the pool is exhausted, never in steady state
+    private void growEntries(int newCapacity) {
+        int oldCapacity = entryOrder.length;
+        entryOrder = Arrays.copyOf(entryOrder, newCapacity);
+        entryRemaining = Arrays.copyOf(entryRemaining, newCapacity);
+        entryLevel = Arrays.copyOf(entryLevel, newCapacity);
+        entryNext = Arrays.copyOf(entryNext, newCapacity);
+        entryPrev = Arrays.copyOf(entryPrev, newCapacity);
+        countEntries(0, newCapacity - oldCapacity);
+
+        for (int i = newCapacity - 1; i >= oldCapacity; i--) {
+            entryNext[i] = freeHead;
+            freeHead = i;
+        }
+    }
+
+    private static int[] newLevelArray(int size) {
+        int[] levels = new int[size];
+        Arrays.fill(levels, NONE);
+        return levels;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bidLevels == 0 && askLevels == 0;
+    }
+
+    @Override
+    public int getBuyLevelCount() {
+        return bidLevels;
+    }
+
+    @Override
+    public int getSellLevelCount() {
+        return askLevels;
+    }
+
+    @Override
+    public long getBestBidTicks() {
+        int level = bestBid;
+        return level == NONE ? Ticks.NONE : baseTick + level;
+    }
+
+    @Override
+    public long getBestAskTicks() {
+        int level = bestAsk;
+        return level == NONE ? Ticks.NONE : baseTick + level;
+    }
+
+    public int getRejectedOrders() {
+        return rejectedOrders;
+    }
+
+    @Override
+    public String getDetailedStatus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("=== ORDER BOOK: %s ===\n", symbol));
+
+        // Show sell orders (lowest price first)
+        sb.append("SELL ORDERS (Ask):\n");
+        for (int level = Math.max(bestAsk, 0); bestAsk != NONE && level < ladderSize; level++) {
+            if (askCount[level] > 0) {
+                sb.append(String.format("  $%.2f: %d orders, %d shares\n", (baseTick + level) * tickSize,
+                        askCount[level], askQuantity[level]));
+            }
+        }
+
+        sb.append("--- SPREAD ---\n");
+
+        // Show buy orders (highest price first)
+        sb.append("BUY ORDERS (Bid):\n");
+        for (int level = bestBid; level >= 0; level--) {
+            if (bidCount[level] > 0) {
+                sb.append(String.format("  $%.2f: %d orders, %d shares\n", (baseTick + level) * tickSize,
+                        bidCount[level], bidQuantity[level]));
+            }
+        }
+
+        return sb.toString();
+    }
+}
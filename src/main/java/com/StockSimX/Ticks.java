@@ -0,0 +1,30 @@
+package com.StockSimX;
+
+// Fixed-point prices: every price in the book is a whole number of ticks of its symbol's tick size.
+// Doubles only appear at the edges (order entry, display); rounding happens once, when a price is entered.
+public final class Ticks {
+    public static final long NONE = Long.MIN_VALUE;     // no price, e.g. an empty side of the book
+
+    // Absorbs representation error such as 150.13 / 0.01 = 15012.999999999998
+    private static final double EPSILON = 1e-6;
+
+    private Ticks() {
+    }
+
+    // Rounds an entered limit price to the tick grid without making the order more aggressive:
+    // buy prices round down, sell prices round up. Never returns less than one tick.
+    public static long fromPrice(double price, double tickSize, OrderType side) {
+        double ticks = price / tickSize;
+        long rounded = (side == OrderType.BUY) ? (long) Math.floor(ticks + EPSILON) : (long) Math.ceil(ticks - EPSILON);
+        return Math.max(1, rounded);
+    }
+
+    // Nearest tick, for reference prices that do not belong to either side
+    public static long nearest(double price, double tickSize) {
+        return Math.max(1, Math.round(price / tickSize));
+    }
+
+    public static double toPrice(long ticks, double tickSize) {
+        return ticks == NONE ? Double.NaN : ticks * tickSize;
+    }
+}
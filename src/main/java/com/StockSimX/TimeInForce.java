@@ -0,0 +1,7 @@
+package com.StockSimX;
+
+public enum TimeInForce {
+    GTC,            // good till cancelled: the unfilled rest stays in the book
+    IOC,            // immediate or cancel: fills what it can on arrival, the rest is cancelled
+    FOK             // fill or kill: fills completely on arrival or not at all
+}
@@ -0,0 +1,37 @@
+package com.StockSimX;
+
+// Immutable record of one executed fill, produced by the matching path.
+// Prices are carried as integer ticks; text is only built when a log sink asks for toString().
+public record Trade(String buyTraderId,
+                    String sellTraderId,
+                    String symbol,
+                    int quantity,
+                    long priceTicks,
+                    double tickSize,
+                    long buyOrderId,
+                    long sellOrderId,
+                    long buyOrderTimestamp,
+                    long sellOrderTimestamp,
+                    long executionTimestamp,
+                    OrderType aggressorSide) {
+
+    public double price() {
+        return priceTicks * tickSize;
+    }
+
+    public double notional() {
+        return quantity * price();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TRADE EXECUTED: %s bought %d shares of %s from %s at $%.2f (Total: $%.2f, aggressor: %s)",
+                buyTraderId,
+                quantity,
+                symbol,
+                sellTraderId,
+                price(),
+                notional(),
+                aggressorSide);
+    }
+}
@@ -2,79 +2,100 @@ package com.StockSimX;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.BrokenBarrierException;
+import java.util.SplittableRandom;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Phaser;
 
 public class Trader implements Runnable {
     private final String traderId;
     private final List<Stock> avaliableStocks;
-    private final Map<String,OrderBook> orderBooks;
-    private final Random random;
+    private final OrderGateway orderGateway;
+    private final SplittableRandom random;
+    private final Portfolio portfolio;      // settled by the matching engine; null when nothing settles
 
-    private final AtomicInteger ordersPlaced;
-    private final CyclicBarrier marketCyclicBarrier;
+    private volatile int ordersPlaced;      // only the trader's own thread writes it, so a plain increment is safe
+    private final Phaser marketCycle;
     private final CountDownLatch simulationLatch;
     private volatile boolean running;
+    private Order lastOrder;                // most recent order, which the trader may still amend
 
     private final int maxOrdersPerTrader;
     private final int minTradingDelay;
     private final int maxTradingDelay;
 
     public Trader(String traderId, List<Stock> stocks,
-                  Map<String, OrderBook> orderBooks,
-                  CyclicBarrier barrier, CountDownLatch latch) {
+                  OrderGateway orderGateway,
+                  Phaser marketCycle, CountDownLatch latch) {
+        this(traderId, stocks, orderGateway, marketCycle, latch, new SplittableRandom(), 8, null);
+    }
+
+    // A seeded random stream makes every decision the trader takes repeatable
+    public Trader(String traderId, List<Stock> stocks,
+                  OrderGateway orderGateway,
+                  Phaser marketCycle, CountDownLatch latch,
+                  SplittableRandom random, int maxOrdersPerTrader, Portfolio portfolio) {
 
         this.traderId = traderId;
         this.avaliableStocks = new ArrayList<>(stocks);
-        this.orderBooks = orderBooks;
-        this.random = new Random();
-        this.ordersPlaced = new AtomicInteger(0);
-        this.marketCyclicBarrier = barrier;
+        this.orderGateway = orderGateway;
+        this.random = random;
+        this.portfolio = portfolio;
+        this.marketCycle = marketCycle;
         this.simulationLatch = latch;
         this.running = true;
 
-        this.maxOrdersPerTrader = 8;
+        this.maxOrdersPerTrader = maxOrdersPerTrader;
         this.minTradingDelay = 100;
         this.maxTradingDelay = 500;
     }
 
     @Override
     public void run() {
-        System.out.printf("[TRADER START] %s begins trading%n", traderId);
+        EventLog.info("[TRADER START] %s begins trading", traderId);
 
         try {
-            while(running && ordersPlaced.get() < maxOrdersPerTrader){
-                try {
-                    marketCyclicBarrier.await();
-                    System.out.printf("[MARKET CYCLE] %s ready for trading%n", traderId);
-                } catch (BrokenBarrierException ex){
-                    System.out.printf("[ERROR] %s: Market cycle barrier broken%n", traderId);
+            while(hasOrdersLeft()){
+                if(marketCycle.awaitAdvanceInterruptibly(marketCycle.arrive()) < 0){
+                    EventLog.error("[ERROR] %s: Market cycle terminated", traderId);
                     break;
                 }
-                placeRandomOrder();
-
-                int orderCount = ordersPlaced.incrementAndGet();
-                Thread.sleep(minTradingDelay + random.nextInt(maxTradingDelay - minTradingDelay));
-
-                if(orderCount % 3 == 0) {
-                    System.out.printf("[PROGRESS] %s has placed %d orders%n",
-                            traderId, orderCount);
-                }
+                EventLog.debug("[MARKET CYCLE] %s ready for trading", traderId);
+                Thread.sleep(trade());
             }
         } catch (InterruptedException e) {
            Thread.currentThread().interrupt();
-            System.out.printf("[INTERRUPTED] %s was interrupted%n", traderId);
+            EventLog.info("[INTERRUPTED] %s was interrupted", traderId);
         } finally {
+            // Leave the market cycle so the remaining traders do not wait for us
+            marketCycle.arriveAndDeregister();
             simulationLatch.countDown();
-            System.out.printf("[TRADER COMPLETE] %s finished with %d orders%n",
-                    traderId, ordersPlaced.get());
+            EventLog.info("[TRADER COMPLETE] %s finished with %d orders",
+                    traderId, ordersPlaced);
         }
     }
 
+    // One trading decision: maybe amend the previous order, then place a new one. Returns how long the trader
+    // waits before the next; the threaded run sleeps it, a seeded run advances its simulated clock instead.
+    public long trade() {
+        if(lastOrder != null && random.nextInt(4) == 0){
+            amendLastOrder();
+        }
+        placeRandomOrder();
+
+        int orderCount = ++ordersPlaced;
+        long delay = minTradingDelay + random.nextInt(maxTradingDelay - minTradingDelay);
+
+        if(orderCount % 3 == 0) {
+            EventLog.info("[PROGRESS] %s has placed %d orders",
+                    traderId, orderCount);
+        }
+        return delay;
+    }
+
+    public boolean hasOrdersLeft() {
+        return running && ordersPlaced < maxOrdersPerTrader;
+    }
+
     public void placeRandomOrder() {
         try {
             Stock selectedStock = avaliableStocks.get(random.nextInt(avaliableStocks.size()));
@@ -83,26 +104,67 @@ public class Trader implements Runnable {
             int baseQuantity = (random.nextInt(10) + 1) * 100;
             int quantity = baseQuantity;
 
-            double curentPrice = selectedStock.getCurrentPrice();
+            Stock.Snapshot market = selectedStock.getSnapshot();
+            double curentPrice = market.price();
             double priceVariation = generatePriceVariation(orderType);
-            double orderPrice = Math.max(0.01,curentPrice * (1+priceVariation));
+            // Rounded onto the symbol's tick grid here, at entry; everything downstream works in ticks
+            long orderTicks = Ticks.fromPrice(curentPrice * (1+priceVariation), market.tickSize(), orderType);
+
+            // Never pay through the book: a marketable order is priced at the opposite touch
+            if(orderType == OrderType.BUY && market.bestAskTicks() != Ticks.NONE && market.bestAskTicks() < orderTicks){
+                orderTicks = market.bestAskTicks();
+            } else if(orderType == OrderType.SELL && market.bestBidTicks() > orderTicks){
+                orderTicks = market.bestBidTicks();
+            }
 
-            Order order = new Order(traderId,selectedStock.getSymbol(), orderType,quantity,orderPrice);
+            Order order = createOrder(selectedStock.getSymbol(), orderType, quantity, orderTicks, market);
 
-            OrderBook orderBook = orderBooks.get(selectedStock.getSymbol());
-            if(orderBook != null){
-                orderBook.addOrders(order);
-                System.out.printf("[ORDER PLACED] %s: %s%n", traderId, order);
+            if(orderGateway.submit(order)){
+                if(order.isResting()){
+                    lastOrder = order;
+                }
+                EventLog.info("[ORDER PLACED] %s: %s", traderId, order);
             } else {
-                System.out.printf("[ERROR] %s: No order book for %s%n",
-                        traderId, selectedStock.getSymbol());
+                EventLog.warn("[ORDER REJECTED] %s: %s", traderId, order);
             }
         } catch (Exception ex){
-            System.out.printf("[ERROR] %s: Failed to place order - %s%n",
+            EventLog.error("[ERROR] %s: Failed to place order - %s",
                     traderId, ex.getMessage());
         }
     }
 
+    // Mostly resting limit orders, plus some aggressive flow: IOC and FOK limits, market orders and stops
+    // a few ticks away from the current price
+    private Order createOrder(String symbol, OrderType orderType, int quantity, long orderTicks, Stock.Snapshot market) {
+        int kind = random.nextInt(20);
+        if(kind < 14){
+            return new Order(traderId, symbol, orderType, quantity, orderTicks, market.tickSize());
+        } else if(kind < 16){
+            return Order.limit(traderId, symbol, orderType, quantity, orderTicks, market.tickSize(), TimeInForce.IOC);
+        } else if(kind < 17){
+            return Order.limit(traderId, symbol, orderType, quantity, orderTicks, market.tickSize(), TimeInForce.FOK);
+        } else if(kind < 19){
+            return Order.market(traderId, symbol, orderType, quantity, market.tickSize(), TimeInForce.IOC);
+        }
+        long stopOffset = 1 + random.nextInt(10);
+        long stopTicks = market.priceTicks() + (orderType == OrderType.BUY ? stopOffset : -stopOffset);
+        return Order.stop(traderId, symbol, orderType, quantity, Math.max(1, stopTicks), market.tickSize());
+    }
+
+    // Cancels, halves or reprices the previous order; it may have been filled already, then nothing happens
+    private void amendLastOrder() {
+        OrderAmendment amendment = switch (random.nextInt(3)) {
+            case 0 -> OrderAmendment.cancel(lastOrder);
+            case 1 -> OrderAmendment.reduce(lastOrder, lastOrder.getQuantity() / 2);
+            default -> OrderAmendment.replace(lastOrder,
+                    lastOrder.getPriceTicks() + (lastOrder.getType() == OrderType.BUY ? -1 : 1), lastOrder.getQuantity());
+        };
+        if(orderGateway.amend(amendment)){
+            EventLog.info("[ORDER AMEND] %s: %s", traderId, amendment);
+        }
+        lastOrder = null;
+    }
+
     private double generatePriceVariation(OrderType orderType) {
         double baseVariation = random.nextGaussian() * 0.02;
         if(orderType == OrderType.BUY){
@@ -113,11 +175,11 @@ public class Trader implements Runnable {
     }
     public void stop() {
         running = false;
-        System.out.printf("[STOP SIGNAL] %s received stop signal%n", traderId);
+        EventLog.info("[STOP SIGNAL] %s received stop signal", traderId);
     }
 
     public int getOrdersPlaced() {
-        return ordersPlaced.get();
+        return ordersPlaced;
     }
 
     public String getTraderId() {
@@ -129,15 +191,26 @@ public class Trader implements Runnable {
     }
 
     public String getTradingStats(){
-        return String.format("Trader[%s]: %d orders placed, Status: %s",
+        if(portfolio == null){
+            return String.format("Trader[%s]: %d orders placed, Status: %s",
+                    traderId,
+                    ordersPlaced,
+                    running ? "ACTIVE" : "STOPPED");
+        }
+        return String.format("Trader[%s]: %d orders placed, %s, Status: %s",
                 traderId,
-                ordersPlaced.get(),
+                ordersPlaced,
+                portfolio.getSummary(),
                 running ? "ACTIVE" : "STOPPED");
     }
 
+    public Portfolio getPortfolio() {
+        return portfolio;
+    }
+
     @Override
     public String toString() {
         return String.format("Trader{id='%s', orders=%d, running=%s}",
-                traderId, ordersPlaced.get(), running);
+                traderId, ordersPlaced, running);
     }
 }
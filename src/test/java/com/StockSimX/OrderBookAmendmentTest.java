@@ -0,0 +1,109 @@
+package com.StockSimX;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Time priority under amendments, on both book types: reducing an order keeps its place in the level, while a
+// replace that adds shares or moves the price sends it to the back. Amending an order that no longer rests
+// is refused and changes nothing.
+class OrderBookAmendmentTest {
+    private static final String SYMBOL = "AAPL";
+    private static final double TICK = 0.01;
+    private static final long PRICE = 15000;
+
+    @BeforeAll
+    static void quietLog() {
+        EventLog.setLevel(EventLog.Level.WARN);
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void reduceKeepsTheQueuePosition(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        Order first = rest(book, 300);
+        Order second = rest(book, 300);
+
+        assertTrue(book.amend(OrderAmendment.reduce(first, 100)));
+        // A same-price replace with fewer shares is a reduction too
+        assertTrue(book.amend(OrderAmendment.replace(second, PRICE, 200)));
+
+        List<Trade> trades = sell(book, 250);
+        assertEquals(2, trades.size());
+        assertFill(trades.get(0), first, 100);
+        assertFill(trades.get(1), second, 150);
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void replaceWithMoreSharesGoesToTheBack(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        Order first = rest(book, 100);
+        Order second = rest(book, 100);
+
+        assertTrue(book.amend(OrderAmendment.replace(first, PRICE, 150)));
+
+        List<Trade> trades = sell(book, 200);
+        assertEquals(2, trades.size());
+        assertFill(trades.get(0), second, 100);
+        assertFill(trades.get(1), first, 100);
+        assertEquals(50, book.getDepthQuantity(OrderType.BUY, Integer.MAX_VALUE));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void replaceToAnotherPriceAndBackGoesToTheBack(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        Order first = rest(book, 100);
+        Order second = rest(book, 100);
+
+        assertTrue(book.amend(OrderAmendment.replace(first, PRICE - 1, 100)));
+        assertTrue(book.amend(OrderAmendment.replace(first, PRICE, 100)));
+
+        List<Trade> trades = sell(book, 100);
+        assertEquals(1, trades.size());
+        assertFill(trades.get(0), second, 100);
+        assertEquals(PRICE, book.getBestBidTicks());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void amendingAFilledOrderIsRefused(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        Order filled = rest(book, 100);
+        Order other = rest(book, 300);
+        assertEquals(1, sell(book, 100).size());
+
+        assertFalse(book.amend(OrderAmendment.cancel(filled)));
+        assertFalse(book.amend(OrderAmendment.reduce(filled, 50)));
+        assertFalse(book.amend(OrderAmendment.replace(filled, PRICE, 200)));
+        assertEquals(300, book.getDepthQuantity(OrderType.BUY, Integer.MAX_VALUE));
+
+        // A partly filled order can be cancelled once
+        assertEquals(1, sell(book, 100).size());
+        assertTrue(book.amend(OrderAmendment.cancel(other)));
+        assertFalse(book.amend(OrderAmendment.cancel(other)));
+        assertTrue(book.isEmpty());
+    }
+
+    private static Order rest(OrderBook book, int quantity) {
+        Order order = new Order("Buyer", SYMBOL, OrderType.BUY, quantity, PRICE, TICK);
+        book.addOrders(order);
+        assertTrue(book.matchOrders().isEmpty());
+        return order;
+    }
+
+    private static List<Trade> sell(OrderBook book, int quantity) {
+        book.addOrders(Order.limit("Seller", SYMBOL, OrderType.SELL, quantity, PRICE - 5, TICK, TimeInForce.IOC));
+        return book.matchOrders();
+    }
+
+    private static void assertFill(Trade trade, Order buyOrder, int quantity) {
+        assertEquals(buyOrder.getOrderId(), trade.buyOrderId());
+        assertEquals(quantity, trade.quantity());
+    }
+}
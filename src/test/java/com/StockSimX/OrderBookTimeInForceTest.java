@@ -0,0 +1,170 @@
+package com.StockSimX;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Orders that do not simply rest, on both book types: FOK fills completely or leaves the book untouched, IOC
+// never leaves a remainder behind, and a parked stop turns into its market or limit order once the last trade
+// reaches it. The books run without a listener, so every call is followed by a matching pass.
+class OrderBookTimeInForceTest {
+    private static final String SYMBOL = "AAPL";
+    private static final double TICK = 0.01;
+
+    @BeforeAll
+    static void quietLog() {
+        EventLog.setLevel(EventLog.Level.WARN);
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void fillOrKillTakesEverythingOrNothing(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        send(book, sell("Seller", 300, 15000));
+        send(book, sell("Seller", 200, 15001));
+
+        // 500 are offered, but only 300 within the limit, and never 600
+        assertTrue(send(book, Order.limit("Buyer", SYMBOL, OrderType.BUY, 500, 15000, TICK, TimeInForce.FOK)).isEmpty());
+        assertTrue(send(book, Order.limit("Buyer", SYMBOL, OrderType.BUY, 600, 15001, TICK, TimeInForce.FOK)).isEmpty());
+        assertTrue(send(book, Order.market("Buyer", SYMBOL, OrderType.BUY, 600, TICK, TimeInForce.FOK)).isEmpty());
+        assertEquals(500, book.getDepthQuantity(OrderType.SELL, Integer.MAX_VALUE));
+        assertEquals(Ticks.NONE, book.getBestBidTicks());
+
+        List<Trade> trades = send(book, Order.limit("Buyer", SYMBOL, OrderType.BUY, 500, 15001, TICK, TimeInForce.FOK));
+        assertEquals(2, trades.size());
+        assertEquals(300, trades.get(0).quantity());
+        assertEquals(15000, trades.get(0).priceTicks());
+        assertEquals(200, trades.get(1).quantity());
+        assertEquals(15001, trades.get(1).priceTicks());
+        assertTrue(book.isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void immediateOrCancelDropsTheRemainder(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        send(book, sell("Seller", 300, 15000));
+        send(book, sell("Seller", 100, 15002));
+
+        List<Trade> trades = send(book, Order.limit("Buyer", SYMBOL, OrderType.BUY, 500, 15001, TICK, TimeInForce.IOC));
+        assertEquals(1, trades.size());
+        assertEquals(300, trades.get(0).quantity());
+        // The 200 left over are cancelled, not rested at 150.01
+        assertEquals(Ticks.NONE, book.getBestBidTicks());
+        assertEquals(0, book.getDepthQuantity(OrderType.BUY, Integer.MAX_VALUE));
+        assertEquals(100, book.getDepthQuantity(OrderType.SELL, Integer.MAX_VALUE));
+        assertEquals(200, book.getUnfilledImmediateQuantity());
+
+        // Nothing within the limit: the whole order goes
+        assertTrue(send(book, Order.limit("Buyer", SYMBOL, OrderType.BUY, 100, 15001, TICK, TimeInForce.IOC)).isEmpty());
+        assertEquals(300, book.getUnfilledImmediateQuantity());
+        assertEquals(Ticks.NONE, book.getBestBidTicks());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void stopWaitsForTheLastTradeAndThenTakesLiquidity(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        send(book, sell("Seller", 100, 15005));
+        send(book, sell("Seller", 300, 15010));
+        Order stop = Order.stop("Stopper", SYMBOL, OrderType.BUY, 200, 15005, TICK);
+
+        // No trade yet, and the offers alone do not trigger it
+        assertTrue(send(book, stop).isEmpty());
+        assertEquals(1, book.getParkedStopCount());
+
+        // A trade below the stop price leaves it parked
+        send(book, sell("Seller", 50, 15004));
+        assertEquals(1, send(book, buy("Buyer", 50, 15004)).size());
+        assertEquals(1, book.getParkedStopCount());
+
+        // The trade at 150.05 triggers it, and it buys at the market from what is left
+        List<Trade> trades = send(book, buy("Buyer", 100, 15005));
+        assertEquals(2, trades.size());
+        assertEquals(15005, trades.get(0).priceTicks());
+        assertEquals(stop.getOrderId(), trades.get(1).buyOrderId());
+        assertEquals(200, trades.get(1).quantity());
+        assertEquals(15010, trades.get(1).priceTicks());
+        assertEquals(0, book.getParkedStopCount());
+        assertEquals(1, book.getTriggeredStops());
+        assertEquals(100, book.getDepthQuantity(OrderType.SELL, Integer.MAX_VALUE));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void sellStopTriggersAtOrBelowItsPrice(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        send(book, buy("Buyer", 100, 14995));
+        send(book, buy("Buyer", 100, 14990));
+        Order stop = Order.stop("Stopper", SYMBOL, OrderType.SELL, 150, 14995, TICK);
+        send(book, stop);
+
+        List<Trade> trades = send(book, Order.limit("Seller", SYMBOL, OrderType.SELL, 50, 14995, TICK, TimeInForce.IOC));
+        assertEquals(3, trades.size());
+        assertEquals(stop.getOrderId(), trades.get(1).sellOrderId());
+        assertEquals(50, trades.get(1).quantity());
+        assertEquals(14995, trades.get(1).priceTicks());
+        assertEquals(100, trades.get(2).quantity());
+        assertEquals(14990, trades.get(2).priceTicks());
+        assertTrue(book.isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void triggeredGoodTillCancelledStopLimitRestsItsRemainder(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        send(book, sell("Seller", 100, 15005));
+        send(book, sell("Seller", 100, 15010));
+        Order stop = Order.stopLimit("Stopper", SYMBOL, OrderType.BUY, 500, 15005, 15005, TICK, TimeInForce.GTC);
+        send(book, stop);
+
+        List<Trade> trades = send(book, buy("Buyer", 40, 15005));
+        assertEquals(2, trades.size());
+        assertEquals(stop.getOrderId(), trades.get(1).buyOrderId());
+        assertEquals(60, trades.get(1).quantity());
+        assertEquals(15005, trades.get(1).priceTicks());
+
+        // Nothing is taken above the limit; the other 440 now rest as a bid at 150.05
+        assertEquals(15005, book.getBestBidTicks());
+        assertEquals(440, book.getDepthQuantity(OrderType.BUY, Integer.MAX_VALUE));
+        assertEquals(100, book.getDepthQuantity(OrderType.SELL, Integer.MAX_VALUE));
+        assertEquals(0, book.getUnfilledImmediateQuantity());
+
+        // ...where they trade like any resting order
+        trades = send(book, sell("Seller", 40, 15005));
+        assertEquals(1, trades.size());
+        assertEquals(stop.getOrderId(), trades.get(0).buyOrderId());
+        assertEquals(400, book.getDepthQuantity(OrderType.BUY, Integer.MAX_VALUE));
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderBook.BookType.class)
+    void triggeredImmediateStopLimitCancelsItsRemainder(OrderBook.BookType bookType) {
+        OrderBook book = OrderBook.create(bookType, SYMBOL, 150.0);
+        send(book, sell("Seller", 100, 15005));
+        send(book, Order.stopLimit("Stopper", SYMBOL, OrderType.BUY, 500, 15005, 15005, TICK, TimeInForce.IOC));
+
+        assertEquals(2, send(book, buy("Buyer", 40, 15005)).size());
+        assertEquals(Ticks.NONE, book.getBestBidTicks());
+        assertEquals(440, book.getUnfilledImmediateQuantity());
+        assertTrue(book.isEmpty());
+    }
+
+    private static Order buy(String traderId, int quantity, long priceTicks) {
+        return new Order(traderId, SYMBOL, OrderType.BUY, quantity, priceTicks, TICK);
+    }
+
+    private static Order sell(String traderId, int quantity, long priceTicks) {
+        return new Order(traderId, SYMBOL, OrderType.SELL, quantity, priceTicks, TICK);
+    }
+
+    // Adds the order and runs the matching pass an engine would; returns the trades of both, in order
+    private static List<Trade> send(OrderBook book, Order order) {
+        book.addOrders(order);
+        return book.matchOrders();
+    }
+}
@@ -0,0 +1,147 @@
+package com.StockSimX;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Journal write/replay round trip: the books, stock volumes and totals a restart recovers from the journal
+// must be exactly the ones the run that wrote it ended with, whatever order concurrent traders' requests
+// arrived in.
+class OrderJournalRecoveryTest {
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "TSLA", "MSFT"};
+    private static final double[] PRICES = {150.0, 2800.0, 250.0, 300.0};
+    private static final int TRADERS = 16;
+    private static final int ORDERS_PER_TRADER = 400;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void quietLog() {
+        EventLog.setLevel(EventLog.Level.WARN);
+    }
+
+    @Test
+    void shardedRecoveryRebuildsTheSameMarket() throws Exception {
+        Path journalPath = directory.resolve("market.journal");
+        Market live = new Market(MatchingEngine.Mode.SHARDED);
+        try (OrderJournal journal = OrderJournal.open(journalPath, OrderJournal.FsyncPolicy.NEVER, 0)) {
+            live.engine.setJournal(journal);
+            live.engine.start();
+            trade(live.engine);
+            live.engine.stop();
+        }
+        assertTrue(live.engine.getTotalMatches() > 0, "the run should have traded");
+
+        Market recovered = new Market(MatchingEngine.Mode.SHARDED);
+        recovered.engine.recover(journalPath);
+
+        for (String symbol : SYMBOLS) {
+            assertEquals(live.books.get(symbol).getDetailedStatus(), recovered.books.get(symbol).getDetailedStatus(),
+                    symbol + " book");
+            Stock.Snapshot liveStock = live.stocks.get(symbol).getSnapshot();
+            Stock.Snapshot recoveredStock = recovered.stocks.get(symbol).getSnapshot();
+            assertEquals(liveStock.totalVolume(), recoveredStock.totalVolume(), symbol + " volume");
+            assertEquals(liveStock.tradeCount(), recoveredStock.tradeCount(), symbol + " trades");
+            assertEquals(liveStock.lastTradeTicks(), recoveredStock.lastTradeTicks(), symbol + " last trade");
+        }
+        assertEquals(live.engine.getTotalMatches(), recovered.engine.getTotalMatches());
+        assertEquals(live.engine.getTotalVolumeTraded(), recovered.engine.getTotalVolumeTraded());
+    }
+
+    @Test
+    void journalIsRefusedOutsideShardedMatching() throws Exception {
+        Path journalPath = directory.resolve("refused.journal");
+        try (OrderJournal journal = OrderJournal.open(journalPath, OrderJournal.FsyncPolicy.NEVER, 0)) {
+            for (MatchingEngine.Mode mode : new MatchingEngine.Mode[] {MatchingEngine.Mode.CONTINUOUS,
+                    MatchingEngine.Mode.POLLING}) {
+                MatchingEngine engine = new Market(mode).engine;
+                assertThrows(IllegalStateException.class, () -> engine.setJournal(journal), mode.name());
+            }
+        }
+    }
+
+    @Test
+    void recordsOfAnEarlierLayoutAreRejected() throws Exception {
+        // One intact record of type 4, a limit order from before order kinds: length, CRC32C, type, sequence
+        byte[] body = new byte[8 + 8 + 1 + 4 + 8 + 8];
+        ByteBuffer record = ByteBuffer.allocate(4 + 4 + 1 + 8 + body.length);
+        record.putInt(record.capacity()).putInt(0).put((byte) 4).putLong(0).put(body);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 8, record.capacity() - 8);
+        record.putInt(4, (int) crc.getValue());
+        Path journalPath = directory.resolve("legacy.journal");
+        Files.write(journalPath, record.array());
+
+        IOException replayed = assertThrows(IOException.class, () -> OrderJournal.replay(journalPath,
+                new OrderJournal.ReplayListener() {
+                    @Override
+                    public void onOrder(long sequence, Order order) {
+                    }
+
+                    @Override
+                    public void onTrade(long sequence, Trade trade) {
+                    }
+                }));
+        assertTrue(replayed.getMessage().contains("type 4"), replayed.getMessage());
+        assertThrows(IOException.class, () -> OrderJournal.open(journalPath, OrderJournal.FsyncPolicy.NEVER, 0));
+    }
+
+    // Traders on their own threads sending crossing limit orders around the price, with some amendments
+    private static void trade(MatchingEngine engine) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < TRADERS; t++) {
+            String traderId = "Trader-" + t;
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                Order last = null;
+                for (int i = 0; i < ORDERS_PER_TRADER; i++) {
+                    int symbol = random.nextInt(SYMBOLS.length);
+                    OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                    long priceTicks = Math.round(PRICES[symbol] * 100) + random.nextInt(-20, 21);
+                    Order order = new Order(traderId, SYMBOLS[symbol], side, 100 * (1 + random.nextInt(10)),
+                            priceTicks, 0.01);
+                    engine.submit(order);
+                    if (last != null && random.nextInt(4) == 0) {
+                        engine.amend(random.nextBoolean() ? OrderAmendment.cancel(last)
+                                : OrderAmendment.reduce(last, last.getQuantity() / 2));
+                    }
+                    last = order;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static final class Market {
+        final Map<String, Stock> stocks = new HashMap<>();
+        final Map<String, OrderBook> books = new HashMap<>();
+        final MatchingEngine engine;
+
+        Market(MatchingEngine.Mode mode) {
+            for (int i = 0; i < SYMBOLS.length; i++) {
+                stocks.put(SYMBOLS[i], new Stock(SYMBOLS[i], PRICES[i]));
+                books.put(SYMBOLS[i], OrderBook.create(OrderBook.BookType.TICK_LADDER, SYMBOLS[i], PRICES[i]));
+            }
+            engine = new MatchingEngine(books, stocks, mode, 2);
+        }
+    }
+}
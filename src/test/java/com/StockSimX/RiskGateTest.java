@@ -0,0 +1,132 @@
+package com.StockSimX;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The open quantity check against a CONTINUOUS engine, where every fill and amendment is settled before the
+// call that caused it returns: the position plus what the trader still has working may never pass the limit,
+// and a share is taken off the working quantity exactly once, whether it trades or a book removes it.
+class RiskGateTest {
+    private static final String SYMBOL = "AAPL";
+    private static final long MAX_OPEN = 1000;
+
+    private MatchingEngine engine;
+    private Portfolio portfolio;
+    private RiskGate gate;
+
+    @BeforeAll
+    static void quietLog() {
+        EventLog.setLevel(EventLog.Level.WARN);
+    }
+
+    @BeforeEach
+    void createMarket() {
+        Map<String, Stock> stocks = new HashMap<>();
+        Map<String, OrderBook> books = new HashMap<>();
+        stocks.put(SYMBOL, new Stock(SYMBOL, 150.0));
+        books.put(SYMBOL, OrderBook.create(OrderBook.BookType.TICK_LADDER, SYMBOL, 150.0));
+        engine = new MatchingEngine(books, stocks, MatchingEngine.Mode.CONTINUOUS, 1);
+        SettlementLedger ledger = new SettlementLedger(stocks, 1_000_000);
+        engine.setSettlementLedger(ledger);
+        portfolio = ledger.open("Trader");
+        gate = new RiskGate(engine, stocks, portfolio, new RiskGate.Limits(5_000, 1_000, MAX_OPEN, 1_000_000));
+        engine.start();
+    }
+
+    @AfterEach
+    void stopEngine() {
+        engine.stop();
+    }
+
+    @Test
+    void cancelAfterAPartialFillOnlyReleasesTheRest() {
+        Order a = buy(500, 15000);
+        assertTrue(gate.submit(a));
+        assertTrue(gate.submit(buy(500, 14999)));
+        sellFromOther(300, 15000);
+        assertEquals(300, held());
+
+        assertTrue(gate.amend(OrderAmendment.cancel(a)));
+        // 300 held + 500 still working + 300 would be 1100
+        assertFalse(gate.submit(buy(300, 14998)));
+        assertTrue(gate.submit(buy(200, 14998)));
+        assertEquals(1, gate.getRejections(RiskGate.Rejection.OPEN_QUANTITY));
+    }
+
+    @Test
+    void reduceAfterAPartialFillKeepsWhatIsLeft() {
+        Order a = buy(600, 15000);
+        assertTrue(gate.submit(a));
+        sellFromOther(200, 15000);
+
+        // 400 left, reduced to 100: 200 held + 100 working
+        assertTrue(gate.amend(OrderAmendment.reduce(a, 100)));
+        assertFalse(gate.submit(buy(701, 14999)));
+        assertTrue(gate.submit(buy(700, 14999)));
+    }
+
+    @Test
+    void immediateFillsDoNotReleaseRestingOrders() {
+        assertTrue(gate.submit(buy(800, 14900)));
+        assertTrue(engine.submit(new Order("Other", SYMBOL, OrderType.SELL, 200, 15000, 0.01)));
+        assertTrue(gate.submit(Order.limit("Trader", SYMBOL, OrderType.BUY, 200, 15000, 0.01, TimeInForce.IOC)));
+        assertEquals(200, held());
+
+        // 200 held + 800 still resting
+        assertFalse(gate.submit(buy(100, 14900)));
+    }
+
+    @Test
+    void replaceCountsTheSharesItAdds() {
+        Order a = buy(500, 14900);
+        assertTrue(gate.submit(a));
+        assertTrue(gate.amend(OrderAmendment.replace(a, 14900, 900)));
+        assertFalse(gate.submit(buy(200, 14900)));
+        assertTrue(gate.submit(buy(100, 14900)));
+
+        // Raising it past the limit is itself rejected
+        assertFalse(gate.amend(OrderAmendment.replace(a, 14900, 950)));
+    }
+
+    @Test
+    void triggeredStopReleasesWhatItCouldNotFill() {
+        assertTrue(engine.submit(new Order("Other", SYMBOL, OrderType.SELL, 200, 15005, 0.01)));
+        assertTrue(engine.submit(new Order("Another", SYMBOL, OrderType.BUY, 100, 15005, 0.01)));
+
+        // The last trade at 150.05 triggers the stop on arrival: 100 fill, the other 500 are cancelled
+        assertTrue(gate.submit(Order.stop("Trader", SYMBOL, OrderType.BUY, 600, 15000, 0.01)));
+        assertEquals(100, held());
+        assertTrue(gate.submit(buy(900, 14900)));
+        assertFalse(gate.submit(buy(1, 14900)));
+    }
+
+    @Test
+    void sellsAgainstALongPositionAlwaysPass() {
+        assertTrue(gate.submit(buy(1000, 15000)));
+        sellFromOther(1000, 15000);
+        assertEquals(1000, held());
+
+        assertFalse(gate.submit(buy(1, 14900)));
+        assertTrue(gate.submit(new Order("Trader", SYMBOL, OrderType.SELL, 2000, 15100, 0.01)));
+    }
+
+    private static Order buy(int quantity, long priceTicks) {
+        return new Order("Trader", SYMBOL, OrderType.BUY, quantity, priceTicks, 0.01);
+    }
+
+    private void sellFromOther(int quantity, long priceTicks) {
+        assertTrue(engine.submit(Order.limit("Other", SYMBOL, OrderType.SELL, quantity, priceTicks, 0.01,
+                TimeInForce.IOC)));
+    }
+
+    private long held() {
+        return portfolio.getPosition(SYMBOL).getQuantity();
+    }
+}